@@ -0,0 +1,199 @@
+package com.slowdraw.converterbackend.assembler;
+
+import com.slowdraw.converterbackend.catalog.FormulaCatalog;
+import com.slowdraw.converterbackend.domain.Formula;
+import com.slowdraw.converterbackend.exception.AppException;
+import com.slowdraw.converterbackend.service.FormulaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+//keeps the GET /formulas body rendered and gzipped, rebuilt only when the catalog snapshot changes
+@Component
+public class FormulaCatalogResponseCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FormulaCatalogResponseCache.class);
+
+    //links are absolute, so bodies are kept per base URI; real deployments see a handful of hosts.
+    //hosts past this many are rendered per request, so rotating Host headers never evict the cached ones
+    private static final int MAX_BASE_URIS = 16;
+
+    private final FormulaService formulaService;
+    private final FormulaEntityModelAssembler formulaEntityModelAssembler;
+    private final ObjectProvider<RequestMappingHandlerAdapter> handlerAdapterProvider;
+
+    private volatile CatalogBodies catalogBodies;
+
+    //constructor injection
+    public FormulaCatalogResponseCache(FormulaService formulaService,
+                                       FormulaEntityModelAssembler formulaEntityModelAssembler,
+                                       @Qualifier("requestMappingHandlerAdapter")
+                                       ObjectProvider<RequestMappingHandlerAdapter> handlerAdapterProvider) {
+        this.formulaService = formulaService;
+        this.formulaEntityModelAssembler = formulaEntityModelAssembler;
+        this.handlerAdapterProvider = handlerAdapterProvider;
+    }
+
+    public CachedBody getAllFormulasBody() {
+
+        FormulaCatalog catalog = formulaService.getCatalog();
+
+        CatalogBodies current = catalogBodies;
+
+        if(current == null || current.catalog != catalog) {
+            current = new CatalogBodies(catalog);
+            catalogBodies = current;
+        }
+
+        String baseUri = ServletUriComponentsBuilder.fromCurrentContextPath().toUriString();
+
+        CachedBody body = current.bodiesByBaseUri.get(baseUri);
+
+        if(body != null)
+            return body;
+
+        if(current.bodiesByBaseUri.size() >= MAX_BASE_URIS) {
+            LOGGER.debug("Formula catalog body for {} not cached, {} hosts already are.", baseUri, MAX_BASE_URIS);
+            return render(catalog);
+        }
+
+        return current.bodiesByBaseUri.computeIfAbsent(baseUri, key -> render(catalog));
+    }
+
+    private CachedBody render(FormulaCatalog catalog) {
+
+        CollectionModel<EntityModel<Formula>> model = new CollectionModel<>(catalog.getFormulas()
+                .stream().map(formulaEntityModelAssembler::toModel)
+                .collect(Collectors.toList()));
+
+        byte[] raw = serialize(model);
+
+        LOGGER.info("Rendered formula catalog body: {} bytes.", raw.length);
+
+        String digest = DigestUtils.md5DigestAsHex(raw);
+
+        return new CachedBody(raw, gzip(raw), "\"" + digest + "\"", "\"" + digest + "-gzip\"");
+    }
+
+    //render through the same HAL converter Spring MVC would pick, so the bytes match the old output;
+    //the qualifier skips the Spring Data REST adapter, which is also a RequestMappingHandlerAdapter
+    @SuppressWarnings("unchecked")
+    private byte[] serialize(Object model) {
+
+        RequestMappingHandlerAdapter handlerAdapter = handlerAdapterProvider.getObject();
+
+        for(HttpMessageConverter<?> converter : handlerAdapter.getMessageConverters()) {
+
+            if(!converter.canWrite(model.getClass(), MediaTypes.HAL_JSON))
+                continue;
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+            try {
+                ((HttpMessageConverter<Object>) converter)
+                        .write(model, MediaTypes.HAL_JSON, new ByteArrayOutputMessage(body));
+            }
+            catch(IOException exceptMe) {
+                throw new AppException("Could not render formula catalog.", exceptMe);
+            }
+
+            return body.toByteArray();
+        }
+
+        throw new AppException("No HAL message converter registered.");
+    }
+
+    private static byte[] gzip(byte[] raw) {
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+
+        try(GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(raw);
+        }
+        catch(IOException exceptMe) {
+            throw new AppException("Could not compress formula catalog.", exceptMe);
+        }
+
+        return compressed.toByteArray();
+    }
+
+    private static final class CatalogBodies {
+
+        private final FormulaCatalog catalog;
+        private final ConcurrentMap<String, CachedBody> bodiesByBaseUri = new ConcurrentHashMap<>();
+
+        private CatalogBodies(FormulaCatalog catalog) {
+            this.catalog = catalog;
+        }
+    }
+
+    private static final class ByteArrayOutputMessage implements HttpOutputMessage {
+
+        private final OutputStream body;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private ByteArrayOutputMessage(OutputStream body) {
+            this.body = body;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    public static final class CachedBody {
+
+        private final byte[] raw;
+        private final byte[] gzipped;
+        private final String eTag;
+        private final String gzippedETag;
+
+        private CachedBody(byte[] raw, byte[] gzipped, String eTag, String gzippedETag) {
+            this.raw = raw;
+            this.gzipped = gzipped;
+            this.eTag = eTag;
+            this.gzippedETag = gzippedETag;
+        }
+
+        public byte[] getRaw() {
+            return raw;
+        }
+
+        public byte[] getGzipped() {
+            return gzipped;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getGzippedETag() {
+            return gzippedETag;
+        }
+    }
+}
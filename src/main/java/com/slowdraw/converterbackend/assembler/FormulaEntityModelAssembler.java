@@ -33,7 +33,7 @@ public class FormulaEntityModelAssembler
         return new EntityModel<>(entity,
                 linkTo(methodOn(FormulaController.class).getSingleFormulaInfo(entity.getFormulaName()))
                         .withRel("getFormulaInfo"),
-                linkTo(methodOn(FormulaController.class).getAllFormulas())
+                linkTo(methodOn(FormulaController.class).getAllFormulas(null, null))
                         .withRel("getAllFormulas"));
     }
 
@@ -3,14 +3,22 @@ package com.slowdraw.converterbackend.assembler;
 import com.slowdraw.converterbackend.controller.ResultHistoryController;
 import com.slowdraw.converterbackend.domain.ResultHistory;
 import com.slowdraw.converterbackend.exception.ResultHistoryException;
+import com.slowdraw.converterbackend.payload.ResultHistoryCursor;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 @Component
 public class ResultHistoryEntityModelAssembler
@@ -25,24 +33,67 @@ public class ResultHistoryEntityModelAssembler
         if(entity == null)
             throw new ResultHistoryException(RESULT_HISTORY_NOT_FOUND);
 
+        return toModel(entity, baseUri(), encode(entity.getUsername()));
+    }
+
+    //one page of a user's history. links are built from the controller's base uri once per page;
+    //going through methodOn for each of the five links of each entry dominated large responses
+    public List<EntityModel<ResultHistory>> toModels(List<ResultHistory> entities) {
+
+        String base = baseUri();
+        List<EntityModel<ResultHistory>> models = new ArrayList<>(entities.size());
+        String username = null;
+        String encodedUsername = null;
+
+        for(ResultHistory entity : entities) {
+
+            if(!Objects.equals(username, entity.getUsername())) {
+                username = entity.getUsername();
+                encodedUsername = encode(username);
+            }
+
+            models.add(toModel(entity, base, encodedUsername));
+        }
+
+        return models;
+    }
+
+    public Link nextPageLink(String username, ResultHistoryCursor after, int limit) {
+
+        return new Link(UriComponentsBuilder.fromUriString(baseUri())
+                .pathSegment(username)
+                .queryParam("after", after.toString())
+                .queryParam("limit", limit)
+                .build()
+                .encode()
+                .toUriString())
+                .withRel(IanaLinkRelations.NEXT);
+    }
+
+    private static EntityModel<ResultHistory> toModel(ResultHistory entity, String base, String encodedUsername) {
+
+        String userUri = base + "/" + encodedUsername;
+        String deleteUserUri = base + "/delete/" + encodedUsername;
+
         return new EntityModel<>(entity,
-                linkTo(methodOn(ResultHistoryController.class)
-                        .getSpecificResultHistory(entity.getUsername(), entity.getId()))
-                        .withSelfRel(),
-                linkTo(methodOn(ResultHistoryController.class)
-                        .getUsernameResultHistory(entity.getUsername()))
-                        .withRel("getAllUsernameResultHistory"),
+                new Link(userUri + "/" + entity.getId()).withSelfRel(),
+                new Link(userUri).withRel("getAllUsernameResultHistory"),
                 new Link("http://localhost/resultHistory")
                         .withRel("saveSingleResultHistory"),
-                linkTo(methodOn(ResultHistoryController.class)
-                        .deleteSingleResultHistory(entity.getUsername(), entity.getId()))
-                        .withRel("deleteSpecificResultHistory"),
-                linkTo(methodOn(ResultHistoryController.class)
-                        .deleteUsernameResultHistory(entity.getUsername()))
-                        .withRel("deleteAllUsernameResultHistory")
+                new Link(deleteUserUri + "/" + entity.getId()).withRel("deleteSpecificResultHistory"),
+                new Link(deleteUserUri).withRel("deleteAllUsernameResultHistory")
         );
     }
 
+    //scheme, host and context path of the current request followed by the controller mapping
+    private static String baseUri() {
+        return linkTo(ResultHistoryController.class).toUri().toString();
+    }
+
+    private static String encode(String pathSegment) {
+        return UriUtils.encodePathSegment(String.valueOf(pathSegment), StandardCharsets.UTF_8);
+    }
+
     @Override
     public CollectionModel<EntityModel<ResultHistory>> toCollectionModel(Iterable<? extends ResultHistory> entities) {
         return null;
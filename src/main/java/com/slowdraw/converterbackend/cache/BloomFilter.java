@@ -0,0 +1,111 @@
+package com.slowdraw.converterbackend.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//set membership with no false negatives: mightContain is false only for strings never put.
+//bits are set with CAS, so puts and lookups run concurrently without locking. strings cannot be removed;
+//callers rebuild the filter to drop them
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+
+    private final LongAdder insertions = new LongAdder();
+
+    //sized by the usual formulas: m = -n ln p / (ln 2)^2 bits and k = m/n ln 2 hashes
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+
+        if(expectedInsertions < 1)
+            throw new IllegalArgumentException("Expected insertions must be positive.");
+
+        if(!(falsePositiveRate > 0.0 && falsePositiveRate < 1.0))
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1.");
+
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate)
+                / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, (optimalBits + 63) / 64));
+
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public void put(String value) {
+
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1L;
+
+        for(int i = 0; i < hashCount; i++)
+            set(index(hash1 + i * hash2));
+
+        insertions.increment();
+    }
+
+    public boolean mightContain(String value) {
+
+        long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1L;
+
+        for(int i = 0; i < hashCount; i++) {
+
+            long bit = index(hash1 + i * hash2);
+
+            if((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    //puts so far, duplicates included
+    public long getInsertions() {
+        return insertions.sum();
+    }
+
+    //past this many puts the false positive rate climbs above the one the filter was sized for
+    public boolean isSaturated() {
+        return insertions.sum() > expectedInsertions;
+    }
+
+    private long index(long combinedHash) {
+        return (combinedHash & Long.MAX_VALUE) % bitCount;
+    }
+
+    private void set(long bit) {
+
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+
+        while(true) {
+
+            long current = bits.get(word);
+
+            if((current & mask) != 0 || bits.compareAndSet(word, current, current | mask))
+                return;
+        }
+    }
+
+    //two independently seeded 64-bit hashes drive the k probes (Kirsch-Mitzenmacher double hashing)
+    private static long hash(String value, long seed) {
+
+        long hash = seed ^ value.length();
+
+        for(int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+
+        //murmur3 finalizer so that nearby strings spread over the whole range
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
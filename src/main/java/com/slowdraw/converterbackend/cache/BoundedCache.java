@@ -0,0 +1,232 @@
+package com.slowdraw.converterbackend.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+//size-bounded LRU cache split into independently locked stripes so readers of different
+//keys rarely contend; the bound is enforced per stripe, so total size is approximate.
+//entries can optionally expire a fixed time after they were written
+public final class BoundedCache<K, V> {
+
+    private static final int DEFAULT_STRIPES = 16;
+
+    private final Stripe<K, V>[] stripes;
+    private final CacheCounters counters;
+
+    //0 keeps entries until they are evicted or invalidated
+    private final long expireAfterWriteNanos;
+    private final LongSupplier nanoTicker;
+
+    public BoundedCache(String name, int maximumSize) {
+        this(maximumSize, DEFAULT_STRIPES, new CacheCounters(name));
+    }
+
+    public BoundedCache(int maximumSize, int stripeCount, CacheCounters counters) {
+        this(maximumSize, stripeCount, counters, Duration.ZERO, System::nanoTime);
+    }
+
+    public BoundedCache(int maximumSize, int stripeCount, CacheCounters counters,
+                        Duration expireAfterWrite, LongSupplier nanoTicker) {
+
+        if(maximumSize < 1 || stripeCount < 1)
+            throw new IllegalArgumentException("Cache size and stripe count must be positive.");
+
+        if(expireAfterWrite.isNegative())
+            throw new IllegalArgumentException("Cache expiry must not be negative.");
+
+        int count = Math.min(stripeCount, maximumSize);
+        int stripeSize = (maximumSize + count - 1) / count;
+
+        this.counters = counters;
+        this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+        this.nanoTicker = nanoTicker;
+        this.stripes = newStripes(count);
+
+        for(int i = 0; i < count; i++)
+            stripes[i] = new Stripe<>(stripeSize, counters);
+    }
+
+    public CacheCounters getCounters() {
+        return counters;
+    }
+
+    public V get(K key) {
+
+        Stripe<K, V> stripe = stripeFor(key);
+        V value;
+
+        synchronized(stripe) {
+            value = read(stripe, key);
+        }
+
+        if(value != null)
+            counters.recordHit();
+        else
+            counters.recordMiss();
+
+        return value;
+    }
+
+    public void put(K key, V value) {
+
+        Stripe<K, V> stripe = stripeFor(key);
+
+        synchronized(stripe) {
+            stripe.put(key, new Written<>(value, nanoTicker.getAsLong()));
+        }
+    }
+
+    //the loader runs outside the stripe lock; a concurrent load of the same key keeps the first value.
+    //null results and exceptions are not cached, and neither is a load that overlapped an
+    //invalidation of its stripe, since it may have read the state the invalidation was meant to drop
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+
+        Stripe<K, V> stripe = stripeFor(key);
+        long invalidationsBeforeLoad;
+
+        synchronized(stripe) {
+            invalidationsBeforeLoad = stripe.invalidations;
+        }
+
+        V cached = get(key);
+
+        if(cached != null)
+            return cached;
+
+        V loaded = loader.apply(key);
+
+        if(loaded == null)
+            return null;
+
+        synchronized(stripe) {
+
+            V raced = read(stripe, key);
+
+            if(raced != null)
+                return raced;
+
+            if(stripe.invalidations == invalidationsBeforeLoad)
+                stripe.put(key, new Written<>(loaded, nanoTicker.getAsLong()));
+
+            return loaded;
+        }
+    }
+
+    public void invalidate(K key) {
+
+        Stripe<K, V> stripe = stripeFor(key);
+
+        synchronized(stripe) {
+            stripe.remove(key);
+            stripe.invalidations++;
+        }
+    }
+
+    public void invalidateAll() {
+        for(Stripe<K, V> stripe : stripes) {
+            synchronized(stripe) {
+                stripe.clear();
+                stripe.invalidations++;
+            }
+        }
+    }
+
+    //scans every stripe, so meant for rare bulk invalidation rather than the request path
+    public void invalidateAll(Predicate<? super K> keyFilter) {
+        for(Stripe<K, V> stripe : stripes) {
+            synchronized(stripe) {
+                stripe.keySet().removeIf(keyFilter);
+                stripe.invalidations++;
+            }
+        }
+    }
+
+    public int size() {
+
+        int size = 0;
+
+        for(Stripe<K, V> stripe : stripes) {
+            synchronized(stripe) {
+                size += stripe.size();
+            }
+        }
+
+        return size;
+    }
+
+    //caller holds the stripe lock; expired entries are dropped on sight and count as evictions
+    private V read(Stripe<K, V> stripe, K key) {
+
+        Written<V> entry = stripe.get(key);
+
+        if(entry == null)
+            return null;
+
+        if(expireAfterWriteNanos > 0 && nanoTicker.getAsLong() - entry.writtenAt >= expireAfterWriteNanos) {
+            stripe.remove(key);
+            counters.recordEviction();
+            return null;
+        }
+
+        return entry.value;
+    }
+
+    private Stripe<K, V> stripeFor(K key) {
+
+        int hash = key.hashCode();
+
+        //spread high bits so keys differing only there still land on different stripes
+        hash ^= hash >>> 16;
+
+        return stripes[(hash & 0x7fffffff) % stripes.length];
+    }
+
+    //no generic array creation in Java; the array only ever holds Stripe<K, V>
+    @SuppressWarnings("unchecked")
+    private static <K, V> Stripe<K, V>[] newStripes(int count) {
+        return (Stripe<K, V>[]) new Stripe<?, ?>[count];
+    }
+
+    private static final class Written<V> {
+
+        private final V value;
+        private final long writtenAt;
+
+        private Written(V value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    private static final class Stripe<K, V> extends LinkedHashMap<K, Written<V>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+        private final CacheCounters counters;
+
+        //bumped on every invalidation so in-flight loads can tell they may be stale
+        private long invalidations;
+
+        private Stripe(int maximumSize, CacheCounters counters) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+            this.counters = counters;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Written<V>> eldest) {
+
+            if(size() <= maximumSize)
+                return false;
+
+            counters.recordEviction();
+
+            return true;
+        }
+    }
+}
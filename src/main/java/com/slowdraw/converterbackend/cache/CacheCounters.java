@@ -0,0 +1,87 @@
+package com.slowdraw.converterbackend.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//hit/miss/eviction counts for one logical cache; may be shared by several BoundedCache instances.
+//published as cache.gets{result=hit|miss} and cache.evictions, the names Micrometer uses for its own cache binders,
+//plus cache.hit.ratio for dashboards that do not derive it
+public final class CacheCounters implements MeterBinder {
+
+    private final String cacheName;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CacheCounters(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    //share of lookups served from the cache since startup; NaN before the first lookup
+    public double getHitRatio() {
+
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+
+        return lookups == 0 ? Double.NaN : (double) hitCount / lookups;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", cacheName)
+                .tag("result", "hit")
+                .description("Lookups that found a cached value")
+                .register(registry);
+
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", cacheName)
+                .tag("result", "miss")
+                .description("Lookups that had to compute or load the value")
+                .register(registry);
+
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", cacheName)
+                .description("Entries dropped to keep the cache within its size bound or past their expiry")
+                .register(registry);
+
+        Gauge.builder("cache.hit.ratio", this, CacheCounters::getHitRatio)
+                .tag("cache", cacheName)
+                .description("Share of lookups served from the cache since startup")
+                .register(registry);
+    }
+}
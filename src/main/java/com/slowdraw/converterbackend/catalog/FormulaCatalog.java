@@ -0,0 +1,221 @@
+package com.slowdraw.converterbackend.catalog;
+
+import com.slowdraw.converterbackend.domain.Formula;
+import com.slowdraw.converterbackend.evaluation.CompiledFormula;
+import com.slowdraw.converterbackend.exception.EvaluationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+//immutable snapshot of the formulas collection, swapped wholesale on reload
+public final class FormulaCatalog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FormulaCatalog.class);
+
+    private static final String NO_EXPRESSION = "Formula %s has no server-side expression.";
+
+    private static final String UNCATEGORIZED = "";
+
+    private final Map<String, Formula> formulasByName;
+
+    private final Map<String, List<Formula>> formulasByCategory;
+
+    private final Set<Formula> formulas;
+
+    //search results come back in display order; the trie and category index hold positions in this list
+    private final List<Formula> formulasInDisplayOrder;
+
+    private final Map<String, int[]> displayPositionsByCategory;
+
+    private final FormulaPrefixIndex prefixIndex;
+
+    //expressions are compiled once per snapshot; broken ones keep their error for the caller
+    private final Map<String, CompiledFormula> compiledFormulas;
+
+    private final Map<String, String> compileErrors;
+
+    private FormulaCatalog(Collection<Formula> source) {
+
+        Map<String, Formula> byName = new TreeMap<>();
+
+        for(Formula formula : source) {
+            //defensive copy so nobody can mutate the snapshot through a repository entity
+            byName.put(formula.getFormulaName(), formula.toBuilder().build());
+        }
+
+        Map<String, List<Formula>> byCategory = new TreeMap<>();
+
+        for(Formula formula : byName.values()) {
+            byCategory.computeIfAbsent(categoryKey(formula.getCategory()), key -> new ArrayList<>())
+                    .add(formula);
+        }
+
+        byCategory.replaceAll((category, list) -> Collections.unmodifiableList(list));
+
+        this.formulasByName = Collections.unmodifiableMap(byName);
+        this.formulasByCategory = Collections.unmodifiableMap(byCategory);
+        this.formulas = Collections.unmodifiableSet(new LinkedHashSet<>(byName.values()));
+
+        List<Formula> displayOrder = new ArrayList<>(byName.values());
+        displayOrder.sort(Comparator
+                .comparing((Formula formula) -> FormulaPrefixIndex.normalize(formula.getDisplayName()))
+                .thenComparing(Formula::getFormulaName));
+
+        Map<String, BitSet> categoryPositions = new HashMap<>();
+        FormulaPrefixIndex.Builder prefixIndexBuilder = FormulaPrefixIndex.builder();
+
+        for(int position = 0; position < displayOrder.size(); position++) {
+
+            Formula formula = displayOrder.get(position);
+
+            categoryPositions.computeIfAbsent(categoryKey(formula.getCategory()), key -> new BitSet())
+                    .set(position);
+
+            prefixIndexBuilder.add(position, formula.getDisplayName())
+                    .add(position, formula.getFormulaName());
+        }
+
+        Map<String, int[]> positionsByCategory = new HashMap<>();
+        categoryPositions.forEach((category, positions) ->
+                positionsByCategory.put(category, positions.stream().toArray()));
+
+        this.formulasInDisplayOrder = Collections.unmodifiableList(displayOrder);
+        this.displayPositionsByCategory = positionsByCategory;
+        this.prefixIndex = prefixIndexBuilder.build();
+
+        Map<String, CompiledFormula> compiled = new HashMap<>();
+        Map<String, String> errors = new HashMap<>();
+
+        for(Formula formula : byName.values()) {
+
+            if(formula.getExpression() == null || formula.getExpression().trim().isEmpty()) {
+                errors.put(formula.getFormulaName(),
+                        String.format(NO_EXPRESSION, formula.getFormulaName()));
+                continue;
+            }
+
+            try {
+                compiled.put(formula.getFormulaName(), CompiledFormula.compile(
+                        formula.getFormulaName(), formula.getExpression(), formula.getParameters()));
+            }
+            catch(EvaluationException exceptMe) {
+                LOGGER.warn("Formula {} has an invalid expression: {}",
+                        formula.getFormulaName(), exceptMe.getMessage());
+                errors.put(formula.getFormulaName(), exceptMe.getMessage());
+            }
+        }
+
+        this.compiledFormulas = Collections.unmodifiableMap(compiled);
+        this.compileErrors = Collections.unmodifiableMap(errors);
+    }
+
+    public static FormulaCatalog of(Collection<Formula> formulas) {
+        return new FormulaCatalog(formulas);
+    }
+
+    public static FormulaCatalog empty() {
+        return new FormulaCatalog(Collections.emptyList());
+    }
+
+    public Optional<Formula> find(String formulaName) {
+        return Optional.ofNullable(formulasByName.get(formulaName));
+    }
+
+    public Optional<CompiledFormula> findCompiledFormula(String formulaName) {
+        return Optional.ofNullable(compiledFormulas.get(formulaName));
+    }
+
+    public String getCompileError(String formulaName) {
+        return compileErrors.get(formulaName);
+    }
+
+    public boolean contains(String formulaName) {
+        return formulasByName.containsKey(formulaName);
+    }
+
+    public Set<Formula> getFormulas() {
+        return formulas;
+    }
+
+    public List<Formula> getFormulasInCategory(String category) {
+        return formulasByCategory.getOrDefault(categoryKey(category), Collections.emptyList());
+    }
+
+    public Set<String> getCategories() {
+        return formulasByCategory.keySet();
+    }
+
+    //formulas in display order, optionally narrowed to a category and/or a name prefix
+    public List<Formula> search(String category, String prefix) {
+
+        boolean byCategory = category != null && !category.trim().isEmpty();
+        boolean byPrefix = !FormulaPrefixIndex.normalize(prefix).isEmpty();
+
+        if(!byCategory && !byPrefix)
+            return formulasInDisplayOrder;
+
+        int[] positions;
+
+        if(byCategory && byPrefix)
+            positions = intersect(categoryPositions(category), prefixIndex.lookup(prefix));
+        else if(byCategory)
+            positions = categoryPositions(category);
+        else
+            positions = prefixIndex.lookup(prefix);
+
+        List<Formula> matches = new ArrayList<>(positions.length);
+
+        for(int position : positions)
+            matches.add(formulasInDisplayOrder.get(position));
+
+        return Collections.unmodifiableList(matches);
+    }
+
+    public int size() {
+        return formulasByName.size();
+    }
+
+    //true when the given documents describe exactly this snapshot, so a reload can be skipped
+    public boolean matches(Collection<Formula> source) {
+
+        if(source.size() != formulasByName.size())
+            return false;
+
+        Map<String, Formula> incoming = source.stream()
+                .collect(Collectors.toMap(Formula::getFormulaName, formula -> formula,
+                        (first, second) -> second));
+
+        return incoming.equals(formulasByName);
+    }
+
+    private int[] categoryPositions(String category) {
+        return displayPositionsByCategory.getOrDefault(category.trim(), new int[0]);
+    }
+
+    private static int[] intersect(int[] first, int[] second) {
+
+        int[] common = new int[Math.min(first.length, second.length)];
+        int count = 0;
+
+        for(int i = 0, j = 0; i < first.length && j < second.length; ) {
+
+            if(first[i] < second[j])
+                i++;
+            else if(first[i] > second[j])
+                j++;
+            else {
+                common[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(common, count);
+    }
+
+    private static String categoryKey(String category) {
+        return category == null ? UNCATEGORIZED : category;
+    }
+}
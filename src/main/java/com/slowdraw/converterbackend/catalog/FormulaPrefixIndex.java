@@ -0,0 +1,121 @@
+package com.slowdraw.converterbackend.catalog;
+
+import java.util.*;
+
+//immutable prefix trie over formula names; each node keeps the sorted positions of every
+//formula below it, so a lookup costs the length of the prefix and nothing else
+final class FormulaPrefixIndex {
+
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final Node root;
+
+    private FormulaPrefixIndex(Node root) {
+        this.root = root;
+    }
+
+    //positions (ascending) of the formulas having a term that starts with the given prefix
+    int[] lookup(String prefix) {
+
+        String key = normalize(prefix);
+
+        Node node = root;
+
+        for(int i = 0; i < key.length() && node != null; i++)
+            node = node.child(key.charAt(i));
+
+        return node == null ? NO_MATCHES : node.positions;
+    }
+
+    static String normalize(String text) {
+
+        if(text == null)
+            return "";
+
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    static final class Builder {
+
+        private final MutableNode root = new MutableNode();
+
+        //indexes the whole text plus every word in it, so "circ" finds "Area of a Circle"
+        Builder add(int position, String text) {
+
+            String normalized = normalize(text);
+
+            if(normalized.isEmpty())
+                return this;
+
+            insert(position, normalized);
+
+            for(String word : normalized.split("[^\\p{Alnum}]+")) {
+                if(!word.isEmpty())
+                    insert(position, word);
+            }
+
+            return this;
+        }
+
+        FormulaPrefixIndex build() {
+            return new FormulaPrefixIndex(root.freeze());
+        }
+
+        private void insert(int position, String term) {
+
+            MutableNode node = root;
+            node.positions.set(position);
+
+            for(int i = 0; i < term.length(); i++) {
+                node = node.children.computeIfAbsent(term.charAt(i), key -> new MutableNode());
+                node.positions.set(position);
+            }
+        }
+    }
+
+    private static final class MutableNode {
+
+        private final TreeMap<Character, MutableNode> children = new TreeMap<>();
+        private final BitSet positions = new BitSet();
+
+        private Node freeze() {
+
+            char[] keys = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+
+            int i = 0;
+
+            for(Map.Entry<Character, MutableNode> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i] = entry.getValue().freeze();
+                i++;
+            }
+
+            return new Node(keys, nodes, positions.stream().toArray());
+        }
+    }
+
+    private static final class Node {
+
+        private final char[] keys;
+        private final Node[] children;
+        private final int[] positions;
+
+        private Node(char[] keys, Node[] children, int[] positions) {
+            this.keys = keys;
+            this.children = children;
+            this.positions = positions;
+        }
+
+        private Node child(char key) {
+
+            int index = Arrays.binarySearch(keys, key);
+
+            return index < 0 ? null : children[index];
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.slowdraw.converterbackend.config;
+
+import com.slowdraw.converterbackend.security.JwtTokenProvider;
+import com.slowdraw.converterbackend.security.PrincipalCache;
+import com.slowdraw.converterbackend.service.ConversionService;
+import com.slowdraw.converterbackend.service.FormulaService;
+import com.slowdraw.converterbackend.service.SiteUserService;
+import com.slowdraw.converterbackend.service.UserAvailabilityFilters;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//application caches published through actuator, e.g. /actuator/metrics/cache.gets?tag=cache:formula.results
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder formulaResultCacheMetrics(FormulaService formulaService) {
+        return formulaService.getResultCacheCounters();
+    }
+
+    @Bean
+    public MeterBinder unitCacheMetrics(ConversionService conversionService) {
+        return conversionService.getUnitCacheCounters();
+    }
+
+    @Bean
+    public MeterBinder profileCacheMetrics(SiteUserService siteUserService) {
+        return siteUserService.getProfileCacheCounters();
+    }
+
+    @Bean
+    public MeterBinder availabilityFilterMetrics(UserAvailabilityFilters userAvailabilityFilters) {
+        return userAvailabilityFilters.getCounters();
+    }
+
+    @Bean
+    public MeterBinder principalCacheMetrics(PrincipalCache principalCache) {
+        return principalCache.getCounters();
+    }
+
+    @Bean
+    public MeterBinder verifiedTokenCacheMetrics(JwtTokenProvider jwtTokenProvider) {
+        return jwtTokenProvider.getVerifiedCacheCounters();
+    }
+}
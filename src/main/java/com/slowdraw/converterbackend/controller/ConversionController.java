@@ -0,0 +1,35 @@
+package com.slowdraw.converterbackend.controller;
+
+import com.slowdraw.converterbackend.payload.ConversionPathResult;
+import com.slowdraw.converterbackend.payload.ConversionResult;
+import com.slowdraw.converterbackend.service.ConversionService;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/convert")
+@CrossOrigin
+public class ConversionController {
+
+    private final ConversionService conversionService;
+
+    //constructor injection
+    public ConversionController(ConversionService conversionService) {
+        this.conversionService = conversionService;
+    }
+
+    @GetMapping
+    public ConversionResult convert(@RequestParam("from") String from,
+                                    @RequestParam("to") String to,
+                                    @RequestParam("value") double value) {
+
+        return conversionService.convert(from, to, value);
+    }
+
+    @GetMapping("/path")
+    public ConversionPathResult convertAlongPath(@RequestParam("from") String from,
+                                                 @RequestParam("to") String to,
+                                                 @RequestParam("value") double value) {
+
+        return conversionService.convertAlongPath(from, to, value);
+    }
+}
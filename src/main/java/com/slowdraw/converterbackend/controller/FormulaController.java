@@ -1,14 +1,40 @@
 package com.slowdraw.converterbackend.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slowdraw.converterbackend.assembler.FormulaCatalogResponseCache;
 import com.slowdraw.converterbackend.assembler.FormulaEntityModelAssembler;
 import com.slowdraw.converterbackend.domain.Formula;
+import com.slowdraw.converterbackend.evaluation.BatchEvaluator;
+import com.slowdraw.converterbackend.evaluation.CompiledFormula;
+import com.slowdraw.converterbackend.evaluation.EvaluationMode;
+import com.slowdraw.converterbackend.evaluation.Rational;
+import com.slowdraw.converterbackend.evaluation.TableFormat;
+import com.slowdraw.converterbackend.evaluation.TableGenerator;
+import com.slowdraw.converterbackend.payload.BatchEvaluationRequest;
+import com.slowdraw.converterbackend.payload.EvaluationRequest;
+import com.slowdraw.converterbackend.payload.EvaluationResult;
 import com.slowdraw.converterbackend.service.FormulaService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.hateoas.CollectionModel;
+import org.springframework.data.domain.Page;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.stream.Collectors;
 
 @RestController
@@ -18,21 +44,90 @@ public class FormulaController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FormulaController.class);
 
+    private static final String GZIP = "gzip";
+    private static final String DEFAULT_PAGE_SIZE = "20";
+
     private final FormulaService formulaService;
     private final FormulaEntityModelAssembler formulaEntityModelAssembler;
+    private final FormulaCatalogResponseCache formulaCatalogResponseCache;
+    private final BatchEvaluator batchEvaluator;
+    private final TableGenerator tableGenerator;
+    private final ObjectMapper objectMapper;
 
     //constructor injection
-    public FormulaController(FormulaService formulaService, FormulaEntityModelAssembler formulaEntityModelAssembler) {
+    public FormulaController(FormulaService formulaService,
+                             FormulaEntityModelAssembler formulaEntityModelAssembler,
+                             FormulaCatalogResponseCache formulaCatalogResponseCache,
+                             BatchEvaluator batchEvaluator,
+                             TableGenerator tableGenerator,
+                             ObjectMapper objectMapper) {
         this.formulaService = formulaService;
         this.formulaEntityModelAssembler = formulaEntityModelAssembler;
+        this.formulaCatalogResponseCache = formulaCatalogResponseCache;
+        this.batchEvaluator = batchEvaluator;
+        this.tableGenerator = tableGenerator;
+        this.objectMapper = objectMapper;
+    }
+
+    //the bare catalog request is served from cached bytes; any filter goes to searchFormulas
+    @GetMapping(params = {"!category", "!q", "!page", "!size"})
+    public ResponseEntity<byte[]> getAllFormulas(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        FormulaCatalogResponseCache.CachedBody body = formulaCatalogResponseCache.getAllFormulasBody();
+
+        //each content-coding is its own representation and carries its own strong ETag
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String eTag = gzip ? body.getGzippedETag() : body.getETag();
+
+        if(eTagMatches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaTypes.HAL_JSON)
+                .eTag(eTag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        //already compressed once per catalog, so Tomcat leaves it alone
+        if(gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                    .contentLength(body.getGzipped().length)
+                    .body(body.getGzipped());
+        }
+
+        return response.contentLength(body.getRaw().length)
+                .body(body.getRaw());
     }
 
     @GetMapping
-    public CollectionModel<EntityModel<Formula>> getAllFormulas() {
+    public PagedModel<EntityModel<Formula>> searchFormulas(
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "q", required = false) String q,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) int size) {
+
+        Page<Formula> results = formulaService.searchFormulas(category, q, page, size);
+
+        PagedModel<EntityModel<Formula>> pagedModel = new PagedModel<>(results.getContent()
+                .stream().map(formulaEntityModelAssembler::toModel)
+                .collect(Collectors.toList()),
+                new PagedModel.PageMetadata(results.getSize(), results.getNumber(),
+                        results.getTotalElements(), results.getTotalPages()));
+
+        pagedModel.add(new Link(pageUri(page)).withSelfRel());
 
-        return new CollectionModel<>(formulaService.getAllFormulas()
-                .stream().map(result -> formulaEntityModelAssembler.toModel(result))
-                .collect(Collectors.toSet()));
+        if(results.hasPrevious())
+            pagedModel.add(new Link(pageUri(page - 1)).withRel(IanaLinkRelations.PREV));
+
+        if(results.hasNext())
+            pagedModel.add(new Link(pageUri(page + 1)).withRel(IanaLinkRelations.NEXT));
+
+        return pagedModel;
     }
 
     @GetMapping("/{name}")
@@ -41,4 +136,144 @@ public class FormulaController {
         return new EntityModel<>(formulaEntityModelAssembler
                 .toModel(formulaService.getSingleFormulaInfo(name)));
     }
+
+    @PostMapping("/{name}/evaluate")
+    public EvaluationResult evaluateFormula(@PathVariable(value = "name") String name,
+                                            @RequestParam(value = "mode", required = false) String mode,
+                                            @Valid @RequestBody EvaluationRequest evaluationRequest) {
+
+        EvaluationMode evaluationMode = formulaService.resolveEvaluationMode(name, mode);
+
+        if(evaluationMode == EvaluationMode.RATIONAL) {
+
+            Rational exactResult = formulaService.evaluateFormulaExactly(name, evaluationRequest.getInputs());
+
+            return new EvaluationResult(name,
+                    evaluationRequest.getInputs(),
+                    exactResult.doubleValue(),
+                    evaluationMode.modeName(),
+                    exactResult.toDecimalString());
+        }
+
+        return new EvaluationResult(name,
+                evaluationRequest.getInputs(),
+                formulaService.evaluateFormula(name, evaluationRequest.getInputs(), evaluationMode),
+                evaluationMode.modeName(),
+                null);
+    }
+
+    @PostMapping("/{name}/evaluateBatch")
+    public ResponseEntity<StreamingResponseBody> evaluateFormulaBatch(
+            @PathVariable(value = "name") String name,
+            @RequestParam(value = "mode", required = false) String mode,
+            @Valid @RequestBody BatchEvaluationRequest batchEvaluationRequest) {
+
+        CompiledFormula compiledFormula = formulaService.getCompiledFormula(name)
+                .withMode(formulaService.resolveEvaluationMode(name, mode));
+
+        //evaluate up front so bad input still gets a proper 400 instead of a broken stream
+        double[] results = batchEvaluator.evaluate(compiledFormula, batchEvaluationRequest.getColumns());
+
+        StreamingResponseBody body = outputStream -> writeBatchResults(name, results, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    //e.g. /formulas/celsiusToFahrenheit/table?start=-100&end=1000&step=0.5&format=csv
+    @GetMapping("/{name}/table")
+    public ResponseEntity<StreamingResponseBody> getFormulaTable(
+            @PathVariable(value = "name") String name,
+            @RequestParam(value = "start") double start,
+            @RequestParam(value = "end") double end,
+            @RequestParam(value = "step") double step,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "mode", required = false) String mode) {
+
+        TableFormat tableFormat = TableFormat.forName(format);
+
+        CompiledFormula compiledFormula = formulaService.getCompiledFormula(name)
+                .withMode(formulaService.resolveEvaluationMode(name, mode));
+
+        TableGenerator.Table table = tableGenerator.prepare(compiledFormula, start, end, step);
+
+        //no content length, so the rows go out chunked as they are generated
+        StreamingResponseBody body = outputStream -> table.writeTo(outputStream, tableFormat);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(tableFormat.getContentType()))
+                .body(body);
+    }
+
+    //columnar response written straight from the primitive array; undefined rows become null
+    private void writeBatchResults(String name, double[] results, OutputStream outputStream)
+            throws IOException {
+
+        try(JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+
+            generator.writeStartObject();
+            generator.writeStringField("formulaName", name);
+            generator.writeNumberField("count", results.length);
+            generator.writeArrayFieldStart("results");
+
+            for(double result : results) {
+                if(Double.isNaN(result) || Double.isInfinite(result))
+                    generator.writeNull();
+                else
+                    generator.writeNumber(result);
+            }
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private static String pageUri(int page) {
+
+        return ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("page", page)
+                .toUriString();
+    }
+
+    private static boolean eTagMatches(String ifNoneMatch, String eTag) {
+
+        if(!StringUtils.hasText(ifNoneMatch))
+            return false;
+
+        for(String candidate : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+
+            String trimmed = candidate.trim();
+
+            if(trimmed.equals("*") || trimmed.equals(eTag))
+                return true;
+        }
+
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+
+        if(!StringUtils.hasText(acceptEncoding))
+            return false;
+
+        for(String coding : StringUtils.commaDelimitedListToStringArray(acceptEncoding)) {
+
+            String[] parts = coding.trim().split(";");
+
+            if(!parts[0].trim().equalsIgnoreCase(GZIP))
+                continue;
+
+            //honor an explicit refusal such as "gzip;q=0"
+            for(int i = 1; i < parts.length; i++) {
+                if(parts[i].trim().matches("q=0(\\.0*)?"))
+                    return false;
+            }
+
+            return true;
+        }
+
+        return false;
+    }
 }
@@ -6,21 +6,25 @@ import com.slowdraw.converterbackend.payload.*;
 import com.slowdraw.converterbackend.repository.RoleRepository;
 import com.slowdraw.converterbackend.repository.SiteUserRepository;
 import com.slowdraw.converterbackend.security.JwtTokenProvider;
+import com.slowdraw.converterbackend.security.LoginThrottle;
+import com.slowdraw.converterbackend.security.PasswordHashingExecutor;
 import com.slowdraw.converterbackend.service.SiteUserService;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/auth")
@@ -38,12 +42,18 @@ public class LoginController {
 
     private final JwtTokenProvider jwtTokenProvider;
 
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
+    private final LoginThrottle loginThrottle;
+
     public LoginController(AuthenticationManager authenticationManager,
                            SiteUserService siteUserService,
                            SiteUserRepository siteUserRepository,
                            RoleRepository roleRepository,
                            PasswordEncoder passwordEncoder,
-                           JwtTokenProvider jwtTokenProvider) {
+                           JwtTokenProvider jwtTokenProvider,
+                           PasswordHashingExecutor passwordHashingExecutor,
+                           LoginThrottle loginThrottle) {
 
         this.authenticationManager = authenticationManager;
         this.siteUserService = siteUserService;
@@ -51,57 +61,77 @@ public class LoginController {
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtTokenProvider = jwtTokenProvider;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.loginThrottle = loginThrottle;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+                                                                HttpServletRequest request) {
 
-        Authentication authentication = authenticationManager
-                .authenticate(
-                        new UsernamePasswordAuthenticationToken(
-                                loginRequest.getUsername(),
-                                loginRequest.getPassword()
-                        )
-                );
+        //over the limit means 429 here, before the user lookup or any hashing is queued
+        loginThrottle.checkLoginAttempt(loginRequest.getUsername(), request.getRemoteAddr());
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+        //the BCrypt check runs on the hashing pool and the request thread is released meanwhile.
+        //nothing goes into the SecurityContext: the API is stateless and the token is the whole result
+        return passwordHashingExecutor.submit(() -> {
 
-        String jwt = jwtTokenProvider.generateToken(authentication);
+            Authentication authentication = authenticationManager
+                    .authenticate(
+                            new UsernamePasswordAuthenticationToken(
+                                    loginRequest.getUsername(),
+                                    loginRequest.getPassword()
+                            )
+                    );
 
-        return ResponseEntity.ok(new JwtAuthenticationResponse(jwt));
+            String jwt = jwtTokenProvider.generateToken(authentication);
+
+            return ResponseEntity.ok(new JwtAuthenticationResponse(jwt));
+        });
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> registerSiteUser(
+    public CompletableFuture<ResponseEntity<?>> registerSiteUser(
             @Valid @RequestBody RegisterUsernameRequest registerUsernameRequest) {
 
-        if(siteUserRepository.existsById(registerUsernameRequest.getUsername())) {
-            return new ResponseEntity(
-                    new ApiResponse(false, "Username is already in use."),
-                    HttpStatus.BAD_REQUEST);
-        }
+        //taken names are turned away before any hashing work is queued
+        if(siteUserService.isUsernameTaken(registerUsernameRequest.getUsername()))
+            return CompletableFuture.completedFuture(usernameInUse());
+
+        //resolved here while the request is still bound to this thread
+        URI uri = ServletUriComponentsBuilder
+                .fromCurrentContextPath().path("/**")
+                .buildAndExpand(registerUsernameRequest.getUsername()).toUri();
 
         SiteUser user = SiteUser.builder()
                 .username(registerUsernameRequest.getUsername())
                 .password(registerUsernameRequest.getPassword())
                 .email(registerUsernameRequest.getEmail())
-                .favoritesList(new ArrayList<>())
+                .favorites(new ArrayList<>())
                 .build();
 
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-
         Role role = roleRepository.findByRoleName("ROLE_USER");
 
         user.setRoles(Collections.singleton(role));
 
-        SiteUser persistedUser = siteUserRepository.save(user);
+        return passwordHashingExecutor.submit(() -> {
 
-        URI uri = ServletUriComponentsBuilder
-                .fromCurrentContextPath().path("/**")
-                .buildAndExpand(persistedUser.getUsername()).toUri();
+            user.setPassword(passwordEncoder.encode(user.getPassword()));
+
+            siteUserService.reserveUser(user.getUsername(), user.getEmail());
 
-        return ResponseEntity.created(uri)
-                .body(new ApiResponse(true, "Site user successfully registered."));
+            //insert, not save: the name may have been taken while the password was hashed,
+            //and save would replace that account
+            try {
+                siteUserRepository.insert(user);
+            }
+            catch(DuplicateKeyException exceptMe) {
+                return usernameInUse();
+            }
+
+            return ResponseEntity.created(uri)
+                    .body(new ApiResponse(true, "Site user successfully registered."));
+        });
     }
 
     @GetMapping("/getUsernameAvailability")
@@ -113,4 +143,8 @@ public class LoginController {
     public EmailAvailability getEmailAvailability(@RequestParam(value = "email") String email) {
         return new EmailAvailability(siteUserService.checkEmailAvailability(email));
     }
+
+    private static ResponseEntity<?> usernameInUse() {
+        return new ResponseEntity<>(new ApiResponse(false, "Username is already in use."), HttpStatus.BAD_REQUEST);
+    }
 }
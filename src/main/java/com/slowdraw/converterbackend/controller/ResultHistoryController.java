@@ -4,33 +4,55 @@ import com.slowdraw.converterbackend.assembler.ResultHistoryAssembleLinksForDele
 import com.slowdraw.converterbackend.assembler.ResultHistoryEntityModelAssembler;
 import com.slowdraw.converterbackend.domain.ResultHistory;
 import com.slowdraw.converterbackend.exception.ResultHistoryException;
+import com.slowdraw.converterbackend.payload.BulkInsertResponse;
+import com.slowdraw.converterbackend.payload.ResultHistoryCursor;
 import com.slowdraw.converterbackend.security.CurrentSiteUser;
 import com.slowdraw.converterbackend.security.UserPrincipal;
+import com.slowdraw.converterbackend.service.ResultHistoryBulkImporter;
+import com.slowdraw.converterbackend.service.ResultHistoryExportFormat;
+import com.slowdraw.converterbackend.service.ResultHistoryExporter;
 import com.slowdraw.converterbackend.service.ResultHistoryService;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 @RestController
 @RequestMapping("/resultHistory")
 @CrossOrigin
 public class ResultHistoryController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final String NDJSON = "application/x-ndjson";
+
     private final ResultHistoryService resultHistoryService;
     private final ResultHistoryEntityModelAssembler resultHistoryEntityModelAssembler;
     private final ResultHistoryAssembleLinksForDeleteMethods linksForDeleteMethods;
+    private final ResultHistoryExporter resultHistoryExporter;
+    private final ResultHistoryBulkImporter resultHistoryBulkImporter;
 
     public ResultHistoryController(ResultHistoryService resultHistoryService,
                                    ResultHistoryEntityModelAssembler resultHistoryEntityModelAssembler,
-                                   ResultHistoryAssembleLinksForDeleteMethods linksForDeleteMethods) {
+                                   ResultHistoryAssembleLinksForDeleteMethods linksForDeleteMethods,
+                                   ResultHistoryExporter resultHistoryExporter,
+                                   ResultHistoryBulkImporter resultHistoryBulkImporter) {
         this.resultHistoryService = resultHistoryService;
         this.resultHistoryEntityModelAssembler = resultHistoryEntityModelAssembler;
         this.linksForDeleteMethods = linksForDeleteMethods;
+        this.resultHistoryExporter = resultHistoryExporter;
+        this.resultHistoryBulkImporter = resultHistoryBulkImporter;
     }
 
     @GetMapping("/{username}/{id}")
@@ -40,17 +62,54 @@ public class ResultHistoryController {
                 .toModel(resultHistoryService.findById(id)));
     }
 
+    //newest first, one page at a time: ?after= takes the cursor from the previous page's next link
     @GetMapping("/{username}")
-    public CollectionModel<EntityModel<ResultHistory>> getUsernameResultHistory(@PathVariable String username) {
+    public CollectionModel<EntityModel<ResultHistory>> getUsernameResultHistory(
+            @PathVariable String username,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        ResultHistoryCursor cursor = after == null ? null : ResultHistoryCursor.parse(after);
+
+        //one entry past the page tells whether a next page exists without counting the history
+        List<ResultHistory> entries = resultHistoryService.findPageByUsername(username, cursor, pageSize + 1);
 
-        if(resultHistoryService.findAllByUsername(username).isEmpty()) {
+        if(entries.isEmpty() && cursor == null) {
             throw new ResultHistoryException("No calculation/conversion result history for user.");
         }
 
-        return new CollectionModel<>(resultHistoryService.findAllByUsername(username)
-                .stream().map(result -> resultHistoryEntityModelAssembler.toModel(result))
-                .collect(Collectors.toList())
-                );
+        boolean hasNext = entries.size() > pageSize;
+        List<ResultHistory> page = hasNext ? entries.subList(0, pageSize) : entries;
+
+        CollectionModel<EntityModel<ResultHistory>> model =
+                new CollectionModel<>(resultHistoryEntityModelAssembler.toModels(page));
+
+        if(hasNext)
+            model.add(resultHistoryEntityModelAssembler.nextPageLink(username,
+                    ResultHistoryCursor.of(page.get(pageSize - 1)), pageSize));
+
+        return model;
+    }
+
+    //full history download, e.g. /resultHistory/someone/export?format=csv; streamed, never held in memory
+    @GetMapping("/{username}/export")
+    public ResponseEntity<StreamingResponseBody> exportUsernameResultHistory(
+            @PathVariable String username,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+
+        ResultHistoryExportFormat exportFormat = ResultHistoryExportFormat.forName(format);
+
+        StreamingResponseBody body = outputStream ->
+                resultHistoryExporter.export(username, exportFormat, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment")
+                        .filename(username + "-result-history." + exportFormat.getFileExtension())
+                        .build()
+                        .toString())
+                .body(body);
     }
 
     @PostMapping
@@ -65,6 +124,12 @@ public class ResultHistoryController {
                 .toModel(resultHistoryService.persistResultHistory(resultHistory)));
     }
 
+    //offline sync: a JSON array or NDJSON stream of entries, answered with one result per item
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public BulkInsertResponse saveResultHistoryBulk(InputStream requestBody) throws IOException {
+        return resultHistoryBulkImporter.importFrom(requestBody);
+    }
+
     @PutMapping("/{username}/{id}")
     public Object updateSingleResultHistory(@PathVariable String username,
                                             @PathVariable String id,
@@ -1,7 +1,7 @@
 package com.slowdraw.converterbackend.controller;
 
 import com.slowdraw.converterbackend.assembler.SiteUserEntityModelAssembler;
-import com.slowdraw.converterbackend.exception.UserException;
+import com.slowdraw.converterbackend.payload.FavoritesPatchRequest;
 import com.slowdraw.converterbackend.payload.SiteUserSummary;
 import com.slowdraw.converterbackend.security.CurrentSiteUser;
 import com.slowdraw.converterbackend.security.UserPrincipal;
@@ -41,10 +41,7 @@ public class SiteUserController {
     @GetMapping("/{username}")
     public EntityModel<?> getSiteUserProfile(@PathVariable(value = "username") String username) {
 
-        if(siteUserService.findUserById(username) == null) {
-            throw new UserException("Username not found.");
-        }
-
+        //findUserById throws for unknown usernames, so one lookup is enough
         return new EntityModel<>(siteUserEntityModelAssembler
                 .toModel(siteUserService.findUserById(username)));
     }
@@ -68,6 +65,16 @@ public class SiteUserController {
 
     }
 
+    @PatchMapping("/{username}/favorites")
+    public EntityModel<?> patchUsernameFavorites(
+            @PathVariable(value = "username") String username,
+            @Valid @RequestBody FavoritesPatchRequest favoritesPatchRequest) {
+
+        return new EntityModel<>(siteUserEntityModelAssembler
+                .toModel(siteUserService
+                        .patchFavorites(username, favoritesPatchRequest.getOperations())));
+    }
+
     @DeleteMapping("/{username}/favorites/delete/{formulaName}")
     public EntityModel<?> deleteFormulaFromUsernameFavorites(
             @PathVariable(value = "username") String username,
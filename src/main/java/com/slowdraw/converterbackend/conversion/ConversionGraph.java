@@ -0,0 +1,220 @@
+package com.slowdraw.converterbackend.conversion;
+
+import com.slowdraw.converterbackend.catalog.FormulaCatalog;
+import com.slowdraw.converterbackend.domain.Formula;
+import com.slowdraw.converterbackend.evaluation.CompiledFormula;
+import com.slowdraw.converterbackend.evaluation.Expression;
+import com.slowdraw.converterbackend.exception.ConversionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+//dimensions are nodes and single-input formulas with declared units are edges. Every reachable
+//pair gets its fewest-formula route fused into one compiled expression when the graph is built,
+//so a request only does two map lookups and one evaluation
+public final class ConversionGraph {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConversionGraph.class);
+
+    //chains work in SI base units of the dimension they start from
+    private static final String BASE_VALUE = "x";
+
+    private final FormulaCatalog catalog;
+    private final Map<Dimension, Map<Dimension, Route>> routes;
+
+    private ConversionGraph(FormulaCatalog catalog, Map<Dimension, Map<Dimension, Route>> routes) {
+        this.catalog = catalog;
+        this.routes = routes;
+    }
+
+    public static ConversionGraph build(UnitRegistry unitRegistry, FormulaCatalog catalog) {
+
+        Map<Dimension, List<Edge>> edges = new HashMap<>();
+
+        //name order makes tie-breaking between equally short routes stable across reloads
+        List<Formula> formulas = new ArrayList<>(catalog.getFormulas());
+        formulas.sort(Comparator.comparing(Formula::getFormulaName));
+
+        for(Formula formula : formulas) {
+
+            Edge edge = toEdge(unitRegistry, catalog, formula);
+
+            if(edge != null)
+                edges.computeIfAbsent(edge.input.getDimension(), key -> new ArrayList<>()).add(edge);
+        }
+
+        Map<Dimension, Map<Dimension, Route>> routes = new HashMap<>();
+
+        for(Dimension source : edges.keySet())
+            routes.put(source, routesFrom(source, edges));
+
+        return new ConversionGraph(catalog, routes);
+    }
+
+    public FormulaCatalog getCatalog() {
+        return catalog;
+    }
+
+    //same-dimension pairs have an empty route; unreachable pairs have none
+    public Optional<Route> findRoute(Dimension from, Dimension to) {
+
+        if(from.equals(to))
+            return Optional.of(Route.IDENTITY);
+
+        Map<Dimension, Route> fromSource = routes.get(from);
+
+        return Optional.ofNullable(fromSource == null ? null : fromSource.get(to));
+    }
+
+    private static Edge toEdge(UnitRegistry unitRegistry, FormulaCatalog catalog, Formula formula) {
+
+        if(formula.getInputUnit() == null || formula.getOutputUnit() == null)
+            return null;
+
+        CompiledFormula compiledFormula = catalog.findCompiledFormula(formula.getFormulaName()).orElse(null);
+
+        if(compiledFormula == null || compiledFormula.arity() != 1) {
+            LOGGER.warn("Formula {} declares units but is not a compiled single-input formula; "
+                    + "left out of the conversion graph.", formula.getFormulaName());
+            return null;
+        }
+
+        try {
+            return new Edge(formula.getFormulaName(),
+                    UnitParser.parse(formula.getInputUnit(), unitRegistry),
+                    UnitParser.parse(formula.getOutputUnit(), unitRegistry),
+                    compiledFormula);
+        }
+        catch(ConversionException exceptMe) {
+            LOGGER.warn("Formula {} has invalid units: {}", formula.getFormulaName(), exceptMe.getMessage());
+            return null;
+        }
+    }
+
+    //breadth first, so the first route found to a dimension uses the fewest formulas
+    private static Map<Dimension, Route> routesFrom(Dimension source, Map<Dimension, List<Edge>> edges) {
+
+        Map<Dimension, Edge> reachedBy = new HashMap<>();
+        Deque<Dimension> queue = new ArrayDeque<>();
+
+        reachedBy.put(source, null);
+        queue.add(source);
+
+        while(!queue.isEmpty()) {
+
+            Dimension current = queue.poll();
+
+            for(Edge edge : edges.getOrDefault(current, Collections.emptyList())) {
+
+                Dimension next = edge.output.getDimension();
+
+                if(!reachedBy.containsKey(next)) {
+                    reachedBy.put(next, edge);
+                    queue.add(next);
+                }
+            }
+        }
+
+        Map<Dimension, Route> routes = new HashMap<>();
+
+        for(Dimension target : reachedBy.keySet()) {
+
+            if(target.equals(source))
+                continue;
+
+            LinkedList<Edge> path = new LinkedList<>();
+
+            for(Edge edge = reachedBy.get(target); edge != null; edge = reachedBy.get(edge.input.getDimension()))
+                path.addFirst(edge);
+
+            routes.put(target, Route.fuse(source, target, path));
+        }
+
+        return routes;
+    }
+
+    public static final class Route {
+
+        private static final Route IDENTITY = new Route(Collections.emptyList(), null);
+
+        private final List<String> formulaNames;
+
+        //base value of the source dimension in, base value of the target dimension out
+        private final CompiledFormula evaluator;
+
+        private Route(List<String> formulaNames, CompiledFormula evaluator) {
+            this.formulaNames = formulaNames;
+            this.evaluator = evaluator;
+        }
+
+        private static Route fuse(Dimension source, Dimension target, List<Edge> path) {
+
+            Expression chain = new Expression.Variable(BASE_VALUE);
+            List<String> formulaNames = new ArrayList<>(path.size());
+
+            for(Edge edge : path) {
+                chain = edge.applyTo(chain);
+                formulaNames.add(edge.formulaName);
+            }
+
+            return new Route(Collections.unmodifiableList(formulaNames),
+                    CompiledFormula.of(source + " -> " + target, chain,
+                            Collections.singletonList(BASE_VALUE)));
+        }
+
+        public List<String> getFormulaNames() {
+            return formulaNames;
+        }
+
+        public double apply(double baseValue) {
+            return evaluator == null ? baseValue : evaluator.evaluate(new double[]{baseValue});
+        }
+    }
+
+    private static final class Edge {
+
+        private final String formulaName;
+        private final Unit input;
+        private final Unit output;
+        private final CompiledFormula formula;
+
+        private Edge(String formulaName, Unit input, Unit output, CompiledFormula formula) {
+            this.formulaName = formulaName;
+            this.input = input;
+            this.output = output;
+            this.formula = formula;
+        }
+
+        //base -> input unit, the formula itself, then output unit -> base
+        private Expression applyTo(Expression baseValue) {
+
+            Expression inputValue = divide(subtract(baseValue, input.getOffset()), input.getFactor());
+
+            Expression outputValue = formula.getExpression()
+                    .substitute(formula.getParameters().get(0), inputValue);
+
+            return add(multiply(outputValue, output.getFactor()), output.getOffset());
+        }
+
+        private static Expression subtract(Expression expression, double value) {
+            return value == 0.0 ? expression : binary(Expression.Operator.SUBTRACT, expression, value);
+        }
+
+        private static Expression add(Expression expression, double value) {
+            return value == 0.0 ? expression : binary(Expression.Operator.ADD, expression, value);
+        }
+
+        private static Expression multiply(Expression expression, double value) {
+            return value == 1.0 ? expression : binary(Expression.Operator.MULTIPLY, expression, value);
+        }
+
+        private static Expression divide(Expression expression, double value) {
+            return value == 1.0 ? expression : binary(Expression.Operator.DIVIDE, expression, value);
+        }
+
+        private static Expression binary(Expression.Operator operator, Expression left, double right) {
+            return new Expression.Binary(operator, left, new Expression.Constant(right));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.slowdraw.converterbackend.conversion;
+
+import java.util.Arrays;
+
+//exponents over the seven SI base quantities, e.g. force = M*L*T^-2
+public final class Dimension {
+
+    static final String[] BASE_SYMBOLS = {"L", "M", "T", "\u0398", "I", "N", "J"};
+
+    public static final Dimension DIMENSIONLESS = new Dimension(new int[BASE_SYMBOLS.length]);
+    public static final Dimension LENGTH = base(0);
+    public static final Dimension MASS = base(1);
+    public static final Dimension TIME = base(2);
+    public static final Dimension TEMPERATURE = base(3);
+    public static final Dimension CURRENT = base(4);
+    public static final Dimension AMOUNT = base(5);
+    public static final Dimension LUMINOSITY = base(6);
+
+    private final int[] exponents;
+
+    private Dimension(int[] exponents) {
+        this.exponents = exponents;
+    }
+
+    private static Dimension base(int index) {
+
+        int[] exponents = new int[BASE_SYMBOLS.length];
+        exponents[index] = 1;
+
+        return new Dimension(exponents);
+    }
+
+    public Dimension multiply(Dimension other) {
+
+        int[] result = new int[exponents.length];
+
+        for(int i = 0; i < result.length; i++)
+            result[i] = exponents[i] + other.exponents[i];
+
+        return new Dimension(result);
+    }
+
+    public Dimension divide(Dimension other) {
+        return multiply(other.pow(-1));
+    }
+
+    public Dimension pow(int power) {
+
+        int[] result = new int[exponents.length];
+
+        for(int i = 0; i < result.length; i++)
+            result[i] = exponents[i] * power;
+
+        return new Dimension(result);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Dimension && Arrays.equals(exponents, ((Dimension) other).exponents);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(exponents);
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder text = new StringBuilder();
+
+        for(int i = 0; i < exponents.length; i++) {
+
+            if(exponents[i] == 0)
+                continue;
+
+            if(text.length() > 0)
+                text.append('\u00b7');
+
+            text.append(BASE_SYMBOLS[i]);
+
+            if(exponents[i] != 1)
+                text.append('^').append(exponents[i]);
+        }
+
+        return text.length() == 0 ? "1" : text.toString();
+    }
+}
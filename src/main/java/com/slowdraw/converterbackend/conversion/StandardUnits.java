@@ -0,0 +1,124 @@
+package com.slowdraw.converterbackend.conversion;
+
+//built-in unit families; factors are exact definitions where one exists (international foot, pound, etc.)
+public final class StandardUnits {
+
+    private static final double FAHRENHEIT = 5.0 / 9.0;
+
+    private StandardUnits() {
+    }
+
+    public static UnitRegistry registry() {
+
+        return UnitRegistry.builder()
+                .family("length", Dimension.LENGTH)
+                .unit("m", 1.0, "meter", "metre", "meters", "metres")
+                .unit("km", 1e3, "kilometer", "kilometre", "kilometers", "kilometres")
+                .unit("cm", 1e-2, "centimeter", "centimetre", "centimeters", "centimetres")
+                .unit("mm", 1e-3, "millimeter", "millimetre", "millimeters", "millimetres")
+                .unit("\u00b5m", 1e-6, "um", "micrometer", "micron")
+                .unit("nm", 1e-9, "nanometer")
+                .unit("in", 0.0254, "inch", "inches")
+                .unit("ft", 0.3048, "foot", "feet")
+                .unit("yd", 0.9144, "yard", "yards")
+                .unit("mi", 1609.344, "mile", "miles")
+                .unit("nmi", 1852.0, "nautical_mile")
+
+                .family("mass", Dimension.MASS)
+                .unit("kg", 1.0, "kilogram", "kilograms")
+                .unit("g", 1e-3, "gram", "grams")
+                .unit("mg", 1e-6, "milligram", "milligrams")
+                .unit("t", 1e3, "tonne", "tonnes")
+                .unit("lb", 0.45359237, "lbs", "pound", "pounds")
+                .unit("oz", 0.028349523125, "ounce", "ounces")
+                .unit("st", 6.35029318, "stone")
+
+                .family("time", Dimension.TIME)
+                .unit("s", 1.0, "sec", "second", "seconds")
+                .unit("ms", 1e-3, "millisecond", "milliseconds")
+                .unit("min", 60.0, "minute", "minutes")
+                .unit("h", 3600.0, "hr", "hour", "hours")
+                .unit("d", 86400.0, "day", "days")
+                .unit("wk", 604800.0, "week", "weeks")
+
+                .family("temperature", Dimension.TEMPERATURE)
+                .unit("K", 1.0, "kelvin")
+                .unit("\u00b0C", 1.0, 273.15, "degC", "celsius")
+                .unit("\u00b0F", FAHRENHEIT, 273.15 - 32.0 * FAHRENHEIT, "degF", "fahrenheit")
+                .unit("\u00b0R", FAHRENHEIT, "degR", "rankine")
+
+                .family("current", Dimension.CURRENT)
+                .unit("A", 1.0, "ampere", "amp")
+                .unit("mA", 1e-3, "milliampere")
+
+                .family("amount", Dimension.AMOUNT)
+                .unit("mol", 1.0, "mole")
+                .unit("mmol", 1e-3, "millimole")
+
+                .family("luminosity", Dimension.LUMINOSITY)
+                .unit("cd", 1.0, "candela")
+
+                .family("angle", Dimension.DIMENSIONLESS)
+                .unit("rad", 1.0, "radian", "radians")
+                .unit("deg", Math.PI / 180.0, "\u00b0", "degree", "degrees")
+                .unit("rev", 2.0 * Math.PI, "revolution", "turn")
+
+                .family("area", Dimension.LENGTH.pow(2))
+                .unit("ha", 1e4, "hectare", "hectares")
+                .unit("ac", 4046.8564224, "acre", "acres")
+
+                .family("volume", Dimension.LENGTH.pow(3))
+                .unit("L", 1e-3, "l", "liter", "litre", "liters", "litres")
+                .unit("mL", 1e-6, "ml", "milliliter", "millilitre")
+                .unit("gal", 3.785411784e-3, "gallon", "gallons")
+                .unit("qt", 9.46352946e-4, "quart", "quarts")
+                .unit("pt", 4.73176473e-4, "pint", "pints")
+                .unit("cup", 2.365882365e-4, "cups")
+                .unit("floz", 2.95735295625e-5, "fluid_ounce")
+
+                .family("speed", Dimension.LENGTH.divide(Dimension.TIME))
+                .unit("kph", 1.0 / 3.6)
+                .unit("mph", 0.44704)
+                .unit("kn", 1852.0 / 3600.0, "knot", "knots")
+
+                .family("force", Dimension.MASS.multiply(Dimension.LENGTH).divide(Dimension.TIME.pow(2)))
+                .unit("N", 1.0, "newton", "newtons")
+                .unit("kN", 1e3, "kilonewton")
+                .unit("lbf", 4.4482216152605, "pound_force")
+                .unit("dyn", 1e-5, "dyne")
+
+                .family("pressure", Dimension.MASS.divide(Dimension.LENGTH).divide(Dimension.TIME.pow(2)))
+                .unit("Pa", 1.0, "pascal")
+                .unit("kPa", 1e3, "kilopascal")
+                .unit("MPa", 1e6, "megapascal")
+                .unit("bar", 1e5)
+                .unit("atm", 101325.0, "atmosphere")
+                .unit("psi", 6894.757293168)
+                .unit("mmHg", 133.322387415)
+                .unit("Torr", 101325.0 / 760.0, "torr")
+
+                .family("energy", Dimension.MASS.multiply(Dimension.LENGTH.pow(2)).divide(Dimension.TIME.pow(2)))
+                .unit("J", 1.0, "joule", "joules")
+                .unit("kJ", 1e3, "kilojoule", "kilojoules")
+                .unit("cal", 4.184, "calorie", "calories")
+                .unit("kcal", 4184.0, "kilocalorie", "kilocalories")
+                .unit("Wh", 3600.0, "watt_hour")
+                .unit("kWh", 3.6e6, "kilowatt_hour")
+                .unit("eV", 1.602176634e-19, "electronvolt")
+                .unit("BTU", 1055.05585262, "btu")
+
+                .family("power", Dimension.MASS.multiply(Dimension.LENGTH.pow(2)).divide(Dimension.TIME.pow(3)))
+                .unit("W", 1.0, "watt", "watts")
+                .unit("kW", 1e3, "kilowatt", "kilowatts")
+                .unit("MW", 1e6, "megawatt", "megawatts")
+                .unit("hp", 745.69987158227022, "horsepower")
+
+                .family("frequency", Dimension.TIME.pow(-1))
+                .unit("Hz", 1.0, "hertz")
+                .unit("kHz", 1e3, "kilohertz")
+                .unit("MHz", 1e6, "megahertz")
+                .unit("rpm", 1.0 / 60.0)
+
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.slowdraw.converterbackend.conversion;
+
+//a unit is value * factor + offset in SI base units; offset is only non-zero for Celsius-style scales
+public final class Unit {
+
+    static final int UNREGISTERED = -1;
+
+    private final String symbol;
+    private final Dimension dimension;
+    private final double factor;
+    private final double offset;
+
+    //position in the registry's per-dimension factor matrix; compound units parsed on the fly have none
+    private final int familyIndex;
+    private final int index;
+
+    Unit(String symbol, Dimension dimension, double factor, double offset, int familyIndex, int index) {
+        this.symbol = symbol;
+        this.dimension = dimension;
+        this.factor = factor;
+        this.offset = offset;
+        this.familyIndex = familyIndex;
+        this.index = index;
+    }
+
+    static Unit compound(String symbol, Dimension dimension, double factor) {
+        return new Unit(symbol, dimension, factor, 0.0, UNREGISTERED, UNREGISTERED);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    public double getFactor() {
+        return factor;
+    }
+
+    public double getOffset() {
+        return offset;
+    }
+
+    public boolean isAffine() {
+        return offset != 0.0;
+    }
+
+    public boolean isRegistered() {
+        return familyIndex != UNREGISTERED;
+    }
+
+    int getFamilyIndex() {
+        return familyIndex;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return symbol;
+    }
+}
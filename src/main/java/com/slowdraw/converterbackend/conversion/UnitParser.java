@@ -0,0 +1,172 @@
+package com.slowdraw.converterbackend.conversion;
+
+import com.slowdraw.converterbackend.exception.ConversionException;
+
+//parses compound units such as kg*m/s^2 (also written with a middle dot and superscripts) or 1/s;
+//everything after the first '/' is in the denominator, so W/m*K reads as W/(m*K)
+public final class UnitParser {
+
+    private static final String SUPERSCRIPT_DIGITS = "\u2070\u00b9\u00b2\u00b3\u2074\u2075\u2076\u2077\u2078\u2079";
+    private static final char SUPERSCRIPT_MINUS = '\u207b';
+
+    private final String source;
+    private final UnitRegistry unitRegistry;
+    private int position;
+
+    private UnitParser(String source, UnitRegistry unitRegistry) {
+        this.source = source;
+        this.unitRegistry = unitRegistry;
+    }
+
+    public static Unit parse(String text, UnitRegistry unitRegistry) {
+
+        if(text == null || text.trim().isEmpty())
+            throw new ConversionException("Unit must not be empty.");
+
+        String source = text.trim();
+
+        Unit registered = unitRegistry.findUnit(source);
+
+        if(registered != null)
+            return registered;
+
+        return new UnitParser(source, unitRegistry).parseCompound();
+    }
+
+    private Unit parseCompound() {
+
+        Dimension dimension = Dimension.DIMENSIONLESS;
+        double factor = 1.0;
+        boolean denominator = false;
+        boolean expectTerm = true;
+
+        while(true) {
+
+            skipWhitespace();
+
+            if(expectTerm) {
+
+                Unit term = parseTerm();
+                int power = parsePower();
+
+                if(term.isAffine())
+                    throw new ConversionException(String.format(
+                            "Unit %s has an offset and cannot be part of compound unit %s.", term, source));
+
+                if(denominator)
+                    power = -power;
+
+                dimension = dimension.multiply(term.getDimension().pow(power));
+                factor *= Math.pow(term.getFactor(), power);
+                expectTerm = false;
+
+                continue;
+            }
+
+            if(position == source.length())
+                break;
+
+            char operator = source.charAt(position++);
+
+            if(operator == '/') {
+
+                if(denominator)
+                    throw error("only one '/' is allowed");
+
+                denominator = true;
+            }
+            else if(operator != '*' && operator != '\u00b7' && operator != '\u22c5')
+                throw error("expected '*', '\u00b7' or '/'");
+
+            expectTerm = true;
+        }
+
+        return Unit.compound(source, dimension, factor);
+    }
+
+    private Unit parseTerm() {
+
+        int start = position;
+
+        while(position < source.length() && isSymbolChar(source.charAt(position)))
+            position++;
+
+        if(start == position)
+            throw error("expected a unit");
+
+        String symbol = source.substring(start, position);
+
+        //a leading 1 as in 1/s
+        if(symbol.equals("1"))
+            return Unit.compound(symbol, Dimension.DIMENSIONLESS, 1.0);
+
+        Unit unit = unitRegistry.findUnit(symbol);
+
+        if(unit == null)
+            throw new ConversionException(String.format("Unknown unit %s in %s.", symbol, source));
+
+        return unit;
+    }
+
+    private int parsePower() {
+
+        if(position == source.length())
+            return 1;
+
+        char next = source.charAt(position);
+
+        if(next == '^') {
+
+            position++;
+
+            int start = position;
+
+            if(position < source.length() && source.charAt(position) == '-')
+                position++;
+
+            while(position < source.length() && Character.isDigit(source.charAt(position)))
+                position++;
+
+            return toPower(source.substring(start, position));
+        }
+
+        if(next == SUPERSCRIPT_MINUS || SUPERSCRIPT_DIGITS.indexOf(next) >= 0) {
+
+            StringBuilder digits = new StringBuilder();
+
+            if(next == SUPERSCRIPT_MINUS) {
+                digits.append('-');
+                position++;
+            }
+
+            while(position < source.length() && SUPERSCRIPT_DIGITS.indexOf(source.charAt(position)) >= 0)
+                digits.append((char) ('0' + SUPERSCRIPT_DIGITS.indexOf(source.charAt(position++))));
+
+            return toPower(digits.toString());
+        }
+
+        return 1;
+    }
+
+    private int toPower(String digits) {
+
+        if(digits.isEmpty() || digits.equals("-") || digits.length() > 3)
+            throw error("expected a small integer exponent");
+
+        return Integer.parseInt(digits);
+    }
+
+    private static boolean isSymbolChar(char character) {
+        return Character.isLetter(character) || character == '\u00b0' || character == '_' || character == '1';
+    }
+
+    private void skipWhitespace() {
+        while(position < source.length() && Character.isWhitespace(source.charAt(position)))
+            position++;
+    }
+
+    private ConversionException error(String message) {
+        return new ConversionException(String.format("Invalid unit %s at position %d: %s.",
+                source, position, message));
+    }
+}
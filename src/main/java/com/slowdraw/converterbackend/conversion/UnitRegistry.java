@@ -0,0 +1,193 @@
+package com.slowdraw.converterbackend.conversion;
+
+import com.slowdraw.converterbackend.exception.ConversionException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+//registered units grouped by dimension; every pair within a family converts through one
+//precomputed factor/offset cell, so a lookup never walks back through the base unit
+public final class UnitRegistry {
+
+    private static final String INCOMPATIBLE_UNITS = "Cannot convert %s [%s] to %s [%s].";
+
+    private final Map<String, Unit> unitsBySymbol;
+    private final Map<String, Unit> unitsByLowerCaseName;
+    private final Map<Dimension, Family> familiesByDimension;
+    private final List<Family> families;
+
+    private UnitRegistry(Map<String, Unit> unitsBySymbol,
+                         Map<String, Unit> unitsByLowerCaseName,
+                         List<Family> families) {
+        this.unitsBySymbol = unitsBySymbol;
+        this.unitsByLowerCaseName = unitsByLowerCaseName;
+        this.families = families;
+        this.familiesByDimension = new HashMap<>();
+
+        for(Family family : families)
+            familiesByDimension.put(family.dimension, family);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    //symbols are case sensitive (mm vs Mm); spelled-out names are not
+    public Unit findUnit(String symbol) {
+
+        Unit unit = unitsBySymbol.get(symbol);
+
+        return unit != null ? unit : unitsByLowerCaseName.get(symbol.toLowerCase(Locale.ROOT));
+    }
+
+    //null for dimensions without a registered family, e.g. kg*m
+    public String getFamilyName(Dimension dimension) {
+
+        Family family = familiesByDimension.get(dimension);
+
+        return family == null ? null : family.name;
+    }
+
+    public List<String> getFamilyNames() {
+
+        List<String> names = new ArrayList<>(families.size());
+
+        for(Family family : families)
+            names.add(family.name);
+
+        return names;
+    }
+
+    public List<Unit> getUnits(String familyName) {
+
+        for(Family family : families) {
+            if(family.name.equalsIgnoreCase(familyName))
+                return Collections.unmodifiableList(family.units);
+        }
+
+        return Collections.emptyList();
+    }
+
+    public double convert(double value, Unit from, Unit to) {
+
+        if(!from.getDimension().equals(to.getDimension()))
+            throw new ConversionException(String.format(INCOMPATIBLE_UNITS,
+                    from, from.getDimension(), to, to.getDimension()));
+
+        if(from.isRegistered() && to.isRegistered()) {
+
+            Family family = families.get(from.getFamilyIndex());
+
+            return value * family.factors[from.getIndex()][to.getIndex()]
+                    + family.offsets[from.getIndex()][to.getIndex()];
+        }
+
+        return (value * from.getFactor() + from.getOffset() - to.getOffset()) / to.getFactor();
+    }
+
+    private static final class Family {
+
+        private final String name;
+        private final Dimension dimension;
+        private final List<Unit> units;
+
+        //to = from * factors[from][to] + offsets[from][to]
+        private final double[][] factors;
+        private final double[][] offsets;
+
+        private Family(String name, Dimension dimension, List<Unit> units) {
+            this.name = name;
+            this.dimension = dimension;
+            this.units = units;
+
+            int size = units.size();
+
+            this.factors = new double[size][size];
+            this.offsets = new double[size][size];
+
+            for(int i = 0; i < size; i++) {
+                for(int j = 0; j < size; j++) {
+
+                    Unit from = units.get(i);
+                    Unit to = units.get(j);
+
+                    factors[i][j] = i == j ? 1.0 : from.getFactor() / to.getFactor();
+                    offsets[i][j] = i == j ? 0.0 : (from.getOffset() - to.getOffset()) / to.getFactor();
+                }
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private final Map<String, Unit> unitsBySymbol = new LinkedHashMap<>();
+        private final Map<String, Unit> unitsByLowerCaseName = new HashMap<>();
+        private final Map<Dimension, String> familyNames = new LinkedHashMap<>();
+        private final List<List<Unit>> familyUnits = new ArrayList<>();
+        private final List<Dimension> familyDimensions = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        //following unit(...) calls belong to this family until the next family(...)
+        public Builder family(String name, Dimension dimension) {
+
+            if(familyNames.containsKey(dimension))
+                throw new IllegalArgumentException("Dimension " + dimension + " is already registered as "
+                        + familyNames.get(dimension));
+
+            familyNames.put(dimension, name);
+            familyDimensions.add(dimension);
+            familyUnits.add(new ArrayList<>());
+
+            return this;
+        }
+
+        public Builder unit(String symbol, double factor, String... names) {
+            return unit(symbol, factor, 0.0, names);
+        }
+
+        public Builder unit(String symbol, double factor, double offset, String... names) {
+
+            if(familyUnits.isEmpty())
+                throw new IllegalStateException("Declare a family before its units.");
+
+            int familyIndex = familyUnits.size() - 1;
+            List<Unit> units = familyUnits.get(familyIndex);
+
+            Unit unit = new Unit(symbol, familyDimensions.get(familyIndex),
+                    factor, offset, familyIndex, units.size());
+
+            if(unitsBySymbol.putIfAbsent(symbol, unit) != null)
+                throw new IllegalArgumentException("Unit " + symbol + " is already registered.");
+
+            for(String name : names) {
+                if(unitsByLowerCaseName.putIfAbsent(name.toLowerCase(Locale.ROOT), unit) != null)
+                    throw new IllegalArgumentException("Unit name " + name + " is already registered.");
+            }
+
+            units.add(unit);
+
+            return this;
+        }
+
+        public UnitRegistry build() {
+
+            List<Family> families = new ArrayList<>(familyUnits.size());
+
+            for(int i = 0; i < familyUnits.size(); i++) {
+
+                Dimension dimension = familyDimensions.get(i);
+
+                families.add(new Family(familyNames.get(dimension), dimension, familyUnits.get(i)));
+            }
+
+            return new UnitRegistry(new HashMap<>(unitsBySymbol), unitsByLowerCaseName, families);
+        }
+    }
+}
@@ -7,6 +7,8 @@ import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.List;
+
 @Data
 @Builder(builderClassName = "FormulaBuilder", toBuilder = true)
 @JsonDeserialize(builder = Formula.FormulaBuilder.class)
@@ -22,6 +24,20 @@ public class Formula {
 
     private String displayName;
 
+    //e.g. "pi * r^2"; formulas without one stay metadata-only and are evaluated client side
+    private String expression;
+
+    //input order for the expression; defaults to order of first appearance when empty
+    private List<String> parameters;
+
+    //single-input formulas that declare both units (e.g. "degC" -> "J") become edges of the conversion graph
+    private String inputUnit;
+
+    private String outputUnit;
+
+    //default for requests that do not pass ?mode=; "double" when absent, "rational" for money-style formulas
+    private String evaluationMode;
+
     @JsonPOJOBuilder(withPrefix = "")
     public static class FormulaBuilder {
 
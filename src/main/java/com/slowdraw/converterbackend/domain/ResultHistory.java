@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
@@ -14,6 +15,8 @@ import java.util.Map;
 @Builder(builderClassName = "ResultHistoryBuilder", toBuilder = true)
 @JsonDeserialize(builder = ResultHistory.ResultHistoryBuilder.class)
 @Document(collection = "result_history")
+//serves the newest-first history pages; _id is included so ties on entryDate need no in-memory sort
+@CompoundIndex(name = "username_entryDate", def = "{'username': 1, 'entryDate': -1, '_id': -1}")
 public class ResultHistory {
 
     @Id
@@ -2,9 +2,14 @@ package com.slowdraw.converterbackend.domain;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -13,6 +18,7 @@ import java.util.List;
 import java.util.Set;
 
 @Data
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
 @Builder(builderClassName = "UserBuilder", toBuilder = true)
 @JsonDeserialize(builder = SiteUser.UserBuilder.class)
 @Document(collection = "users")
@@ -23,15 +29,31 @@ public class SiteUser {
 
     private String password;
 
+    //backs the email availability check, which would otherwise scan the collection
+    @Indexed
     private String email;
 
-    @DBRef
+    //formula names in the user's order; the formulas themselves come from the catalog
+    @Builder.Default
+    private List<String> favorites = new ArrayList<>();
+
+    //resolved from favorites on every read, never persisted
+    @Transient
     @Builder.Default
     private List<Formula> favoritesList = new ArrayList<>();
 
     @DBRef
     private Set<Role> roles;
 
+    //favoritesList is not a stored property, so the mapper cannot bind it through the all-args constructor
+    @PersistenceConstructor
+    SiteUser(String username, String password, String email, List<String> favorites, Set<Role> roles) {
+        this(username, password, email,
+                favorites == null ? new ArrayList<>() : favorites,
+                new ArrayList<>(),
+                roles);
+    }
+
     @JsonPOJOBuilder(withPrefix = "")
     public static class UserBuilder {
 
@@ -0,0 +1,137 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import com.slowdraw.converterbackend.exception.EvaluationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//evaluates a compiled formula over columnar inputs; large batches are split across a dedicated pool
+@Component
+public class BatchEvaluator {
+
+    private static final String MISSING_COLUMN = "Missing input column %s for formula %s.";
+    private static final String UNKNOWN_COLUMN = "Formula %s has no input named %s; expected %s.";
+    private static final String RAGGED_COLUMNS = "Input column %s has %d rows, expected %d.";
+    private static final String TOO_MANY_ROWS = "Batch has %d rows; at most %d are allowed.";
+
+    private final ForkJoinPool pool;
+
+    private final int splitThreshold;
+
+    private final int maxBatchRows;
+
+    //constructor injection
+    public BatchEvaluator(@Value("${app.evaluation.batchParallelism:0}") int parallelism,
+                          @Value("${app.evaluation.batchSplitThreshold:16384}") int splitThreshold,
+                          @Value("${app.evaluation.maxBatchRows:1000000}") int maxBatchRows) {
+
+        this.pool = new ForkJoinPool(parallelism > 0
+                ? parallelism
+                : Runtime.getRuntime().availableProcessors());
+        this.splitThreshold = Math.max(1, splitThreshold);
+        this.maxBatchRows = maxBatchRows;
+    }
+
+    public double[] evaluate(CompiledFormula formula, Map<String, double[]> columnsByName) {
+
+        double[][] columns = orderColumns(formula, columnsByName);
+
+        int rows = columns.length == 0 ? 0 : columns[0].length;
+
+        double[] results = new double[rows];
+
+        if(rows <= splitThreshold)
+            evaluateRange(formula, columns, results, 0, rows);
+        else
+            pool.invoke(new EvaluateRangeTask(formula, columns, results, 0, rows));
+
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    //inputs in parameter order, all of the same length
+    private double[][] orderColumns(CompiledFormula formula, Map<String, double[]> columnsByName) {
+
+        for(String name : columnsByName.keySet()) {
+            if(!formula.getParameters().contains(name))
+                throw new EvaluationException(String.format(UNKNOWN_COLUMN,
+                        formula.getFormulaName(), name, formula.getParameters()));
+        }
+
+        double[][] columns = new double[formula.arity()][];
+
+        for(int i = 0; i < columns.length; i++) {
+
+            String name = formula.getParameters().get(i);
+
+            columns[i] = columnsByName.get(name);
+
+            if(columns[i] == null)
+                throw new EvaluationException(String.format(MISSING_COLUMN, name, formula.getFormulaName()));
+
+            if(columns[i].length != columns[0].length)
+                throw new EvaluationException(String.format(RAGGED_COLUMNS,
+                        name, columns[i].length, columns[0].length));
+        }
+
+        if(columns.length > 0 && columns[0].length > maxBatchRows)
+            throw new EvaluationException(String.format(TOO_MANY_ROWS, columns[0].length, maxBatchRows));
+
+        return columns;
+    }
+
+    //tight primitive loop; one scratch row per range, nothing allocated per row
+    private static void evaluateRange(CompiledFormula formula, double[][] columns,
+                                      double[] results, int from, int to) {
+
+        double[] row = new double[columns.length];
+
+        for(int i = from; i < to; i++) {
+
+            for(int column = 0; column < columns.length; column++)
+                row[column] = columns[column][i];
+
+            results[i] = formula.evaluate(row);
+        }
+    }
+
+    private final class EvaluateRangeTask extends RecursiveAction {
+
+        private final CompiledFormula formula;
+        private final double[][] columns;
+        private final double[] results;
+        private final int from;
+        private final int to;
+
+        private EvaluateRangeTask(CompiledFormula formula, double[][] columns,
+                                  double[] results, int from, int to) {
+            this.formula = formula;
+            this.columns = columns;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+
+            if(to - from <= splitThreshold) {
+                evaluateRange(formula, columns, results, from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+
+            invokeAll(new EvaluateRangeTask(formula, columns, results, from, middle),
+                    new EvaluateRangeTask(formula, columns, results, middle, to));
+        }
+    }
+}
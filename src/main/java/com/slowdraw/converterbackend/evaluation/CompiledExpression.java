@@ -0,0 +1,11 @@
+package com.slowdraw.converterbackend.evaluation;
+
+//reusable evaluator; implementations are immutable trees of primitive nodes and never allocate
+public abstract class CompiledExpression {
+
+    public abstract double evaluate(double[] variables);
+
+    public boolean isConstant() {
+        return false;
+    }
+}
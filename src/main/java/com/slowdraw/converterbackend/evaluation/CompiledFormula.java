@@ -0,0 +1,210 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import com.slowdraw.converterbackend.exception.EvaluationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+//a formula expression parsed and compiled once; safe to share between threads
+public final class CompiledFormula {
+
+    private static final String MISSING_INPUT = "Missing input %s for formula %s.";
+    private static final String UNKNOWN_INPUT = "Formula %s has no input named %s; expected %s.";
+    private static final String NO_RATIONAL_MODE = "Formula %s cannot be evaluated exactly: %s";
+    private static final String UNDEFINED_EXACTLY = "Formula %s is undefined for the given inputs: %s.";
+
+    private final String formulaName;
+    private final List<String> parameters;
+    private final Expression expression;
+    private final CompiledExpression compiledExpression;
+    private final EvaluationMode mode;
+
+    //the same formula compiled for each mode, linked once in of(); published with the catalog snapshot
+    private CompiledFormula doubleVariant;
+    private CompiledFormula fastVariant;
+
+    //null, with the reason kept, when the expression has no exact form (e.g. it calls sin)
+    private CompiledFormula rationalVariant;
+    private RationalExpression rationalExpression;
+    private String rationalError;
+
+    private CompiledFormula(String formulaName, List<String> parameters, Expression expression,
+                            CompiledExpression compiledExpression, EvaluationMode mode) {
+        this.formulaName = formulaName;
+        this.parameters = parameters;
+        this.expression = expression;
+        this.compiledExpression = compiledExpression;
+        this.mode = mode;
+    }
+
+    //parameters fix the input order; when absent they follow first appearance in the expression
+    public static CompiledFormula compile(String formulaName, String source, List<String> declaredParameters) {
+
+        return of(formulaName, ExpressionParser.parse(source), declaredParameters);
+    }
+
+    //for expressions assembled in code, e.g. several formulas fused into one chain
+    public static CompiledFormula of(String formulaName, Expression expression, List<String> declaredParameters) {
+
+        List<String> parameters = declaredParameters == null || declaredParameters.isEmpty()
+                ? expression.variables()
+                : new ArrayList<>(declaredParameters);
+
+        List<String> unmodifiableParameters = Collections.unmodifiableList(parameters);
+
+        CompiledFormula compiledFormula = new CompiledFormula(formulaName, unmodifiableParameters, expression,
+                ExpressionCompiler.compile(expression, parameters, EvaluationMode.DOUBLE), EvaluationMode.DOUBLE);
+
+        CompiledFormula fastVariant = new CompiledFormula(formulaName, unmodifiableParameters, expression,
+                ExpressionCompiler.compile(expression, parameters, EvaluationMode.FAST), EvaluationMode.FAST);
+
+        RationalExpression rationalExpression = null;
+        CompiledFormula rationalVariant = null;
+        String rationalError = null;
+
+        try {
+            rationalExpression = RationalCompiler.compile(expression, parameters);
+            rationalVariant = new CompiledFormula(formulaName, unmodifiableParameters, expression,
+                    new RationalAdapter(rationalExpression), EvaluationMode.RATIONAL);
+        }
+        catch(EvaluationException exceptMe) {
+            rationalError = String.format(NO_RATIONAL_MODE, formulaName, exceptMe.getMessage());
+        }
+
+        for(CompiledFormula variant : new CompiledFormula[]{compiledFormula, fastVariant, rationalVariant}) {
+
+            if(variant == null)
+                continue;
+
+            variant.doubleVariant = compiledFormula;
+            variant.fastVariant = fastVariant;
+            variant.rationalVariant = rationalVariant;
+            variant.rationalExpression = rationalExpression;
+            variant.rationalError = rationalError;
+        }
+
+        return compiledFormula;
+    }
+
+    public CompiledFormula withMode(EvaluationMode mode) {
+
+        switch(mode) {
+            case FAST:
+                return fastVariant;
+            case RATIONAL:
+                if(rationalVariant == null)
+                    throw new EvaluationException(rationalError);
+                return rationalVariant;
+            default:
+                return doubleVariant;
+        }
+    }
+
+    public boolean supportsMode(EvaluationMode mode) {
+        return mode != EvaluationMode.RATIONAL || rationalVariant != null;
+    }
+
+    //exact result for inputs in parameter order; doubles are read as the decimal they print as
+    public Rational evaluateExactly(double[] inputs) {
+
+        if(rationalExpression == null)
+            throw new EvaluationException(rationalError);
+
+        try {
+            return rationalExpression.evaluate(RationalAdapter.toRationals(inputs));
+        }
+        catch(ArithmeticException exceptMe) {
+            throw new EvaluationException(String.format(UNDEFINED_EXACTLY, formulaName, exceptMe.getMessage()));
+        }
+    }
+
+    public EvaluationMode getMode() {
+        return mode;
+    }
+
+    public String getFormulaName() {
+        return formulaName;
+    }
+
+    public List<String> getParameters() {
+        return parameters;
+    }
+
+    public Expression getExpression() {
+        return expression;
+    }
+
+    public int arity() {
+        return parameters.size();
+    }
+
+    //hot path: inputs already in parameter order
+    public double evaluate(double[] inputs) {
+        return compiledExpression.evaluate(inputs);
+    }
+
+    public double evaluate(Map<String, Double> inputs) {
+        return compiledExpression.evaluate(toInputArray(inputs));
+    }
+
+    public double[] toInputArray(Map<String, Double> inputs) {
+
+        for(String name : inputs.keySet()) {
+            if(!parameters.contains(name))
+                throw new EvaluationException(String.format(UNKNOWN_INPUT, formulaName, name, parameters));
+        }
+
+        double[] values = new double[parameters.size()];
+
+        for(int i = 0; i < values.length; i++) {
+
+            Double value = inputs.get(parameters.get(i));
+
+            if(value == null)
+                throw new EvaluationException(String.format(MISSING_INPUT, parameters.get(i), formulaName));
+
+            values[i] = value;
+        }
+
+        return values;
+    }
+
+    //lets RATIONAL plug into batch, table and cache paths that work on doubles; anything the exact
+    //path cannot represent comes back as NaN, the same way the double path reports it
+    private static final class RationalAdapter extends CompiledExpression {
+
+        private final RationalExpression rationalExpression;
+
+        RationalAdapter(RationalExpression rationalExpression) {
+            this.rationalExpression = rationalExpression;
+        }
+
+        static Rational[] toRationals(double[] inputs) {
+
+            Rational[] values = new Rational[inputs.length];
+
+            for(int i = 0; i < inputs.length; i++)
+                values[i] = Rational.valueOf(inputs[i]);
+
+            return values;
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+
+            try {
+                return rationalExpression.evaluate(toRationals(variables)).doubleValue();
+            }
+            catch(ArithmeticException exceptMe) {
+                return Double.NaN;
+            }
+        }
+
+        @Override
+        public boolean isConstant() {
+            return rationalExpression.isConstant();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import com.slowdraw.converterbackend.exception.EvaluationException;
+
+import java.util.Locale;
+
+//selected per request with ?mode=; DOUBLE is plain IEEE arithmetic with the exact Math functions
+public enum EvaluationMode {
+
+    DOUBLE,
+
+    //sin, cos, exp, log and pow from LookupTables, within the error bounds declared there
+    FAST,
+
+    //exact fractions for formulas built from + - * / %, integer powers and rounding
+    RATIONAL;
+
+    public static EvaluationMode forName(String name) {
+
+        if(name == null)
+            return DOUBLE;
+
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+        catch(IllegalArgumentException exceptMe) {
+            throw new EvaluationException(String.format("Unknown evaluation mode %s; expected double, fast or rational.",
+                    name));
+        }
+    }
+
+    public String modeName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,268 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import java.util.*;
+
+//parsed form of a formula expression; compiled once into an evaluator and otherwise left alone
+public abstract class Expression {
+
+    public enum Operator {
+
+        ADD('+'),
+        SUBTRACT('-'),
+        MULTIPLY('*'),
+        DIVIDE('/'),
+        MODULO('%'),
+        POWER('^');
+
+        private final char symbol;
+
+        Operator(char symbol) {
+            this.symbol = symbol;
+        }
+
+        public char symbol() {
+            return symbol;
+        }
+
+        public double apply(double left, double right) {
+
+            switch(this) {
+                case ADD: return left + right;
+                case SUBTRACT: return left - right;
+                case MULTIPLY: return left * right;
+                case DIVIDE: return left / right;
+                case MODULO: return left % right;
+                default: return Math.pow(left, right);
+            }
+        }
+    }
+
+    public interface Visitor<R> {
+
+        R visitConstant(Constant constant);
+
+        R visitVariable(Variable variable);
+
+        R visitNegate(Negate negate);
+
+        R visitBinary(Binary binary);
+
+        R visitCall(Call call);
+    }
+
+    public abstract <R> R accept(Visitor<R> visitor);
+
+    //variable names in order of first appearance
+    public List<String> variables() {
+
+        Set<String> names = new LinkedHashSet<>();
+
+        accept(new Visitor<Void>() {
+
+            @Override
+            public Void visitConstant(Constant constant) {
+                return null;
+            }
+
+            @Override
+            public Void visitVariable(Variable variable) {
+                names.add(variable.getName());
+                return null;
+            }
+
+            @Override
+            public Void visitNegate(Negate negate) {
+                return negate.getOperand().accept(this);
+            }
+
+            @Override
+            public Void visitBinary(Binary binary) {
+                binary.getLeft().accept(this);
+                return binary.getRight().accept(this);
+            }
+
+            @Override
+            public Void visitCall(Call call) {
+                call.getArguments().forEach(argument -> argument.accept(this));
+                return null;
+            }
+        });
+
+        return new ArrayList<>(names);
+    }
+
+    //replaces every occurrence of a variable, used to fuse formulas into a single expression
+    public Expression substitute(String name, Expression replacement) {
+
+        return accept(new Visitor<Expression>() {
+
+            @Override
+            public Expression visitConstant(Constant constant) {
+                return constant;
+            }
+
+            @Override
+            public Expression visitVariable(Variable variable) {
+                return variable.getName().equals(name) ? replacement : variable;
+            }
+
+            @Override
+            public Expression visitNegate(Negate negate) {
+                return new Negate(negate.getOperand().accept(this));
+            }
+
+            @Override
+            public Expression visitBinary(Binary binary) {
+                return new Binary(binary.getOperator(),
+                        binary.getLeft().accept(this),
+                        binary.getRight().accept(this));
+            }
+
+            @Override
+            public Expression visitCall(Call call) {
+
+                List<Expression> arguments = new ArrayList<>();
+                call.getArguments().forEach(argument -> arguments.add(argument.accept(this)));
+
+                return new Call(call.getFunction(), arguments);
+            }
+        });
+    }
+
+    public static final class Constant extends Expression {
+
+        private final double value;
+
+        public Constant(double value) {
+            this.value = value;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitConstant(this);
+        }
+
+        @Override
+        public String toString() {
+            return Double.toString(value);
+        }
+    }
+
+    public static final class Variable extends Expression {
+
+        private final String name;
+
+        public Variable(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitVariable(this);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static final class Negate extends Expression {
+
+        private final Expression operand;
+
+        public Negate(Expression operand) {
+            this.operand = operand;
+        }
+
+        public Expression getOperand() {
+            return operand;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitNegate(this);
+        }
+
+        @Override
+        public String toString() {
+            return "(-" + operand + ")";
+        }
+    }
+
+    public static final class Binary extends Expression {
+
+        private final Operator operator;
+        private final Expression left;
+        private final Expression right;
+
+        public Binary(Operator operator, Expression left, Expression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        public Operator getOperator() {
+            return operator;
+        }
+
+        public Expression getLeft() {
+            return left;
+        }
+
+        public Expression getRight() {
+            return right;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitBinary(this);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " " + operator.symbol() + " " + right + ")";
+        }
+    }
+
+    public static final class Call extends Expression {
+
+        private final MathFunction function;
+        private final List<Expression> arguments;
+
+        public Call(MathFunction function, List<Expression> arguments) {
+            this.function = function;
+            this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+        }
+
+        public MathFunction getFunction() {
+            return function;
+        }
+
+        public List<Expression> getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) {
+            return visitor.visitCall(this);
+        }
+
+        @Override
+        public String toString() {
+
+            StringJoiner joiner = new StringJoiner(", ", function.functionName() + "(", ")");
+            arguments.forEach(argument -> joiner.add(argument.toString()));
+
+            return joiner.toString();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import com.slowdraw.converterbackend.exception.EvaluationException;
+
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+//turns an Expression into a tree of primitive double nodes, folding constant subtrees on the way
+public final class ExpressionCompiler {
+
+    private static final String UNKNOWN_VARIABLE = "Unknown variable %s; expected one of %s.";
+
+    private ExpressionCompiler() {
+    }
+
+    public static CompiledExpression compile(Expression expression, List<String> parameters) {
+        return compile(expression, parameters, EvaluationMode.DOUBLE);
+    }
+
+    //FAST swaps table-backed approximations in for the functions LookupTables covers
+    public static CompiledExpression compile(Expression expression, List<String> parameters, EvaluationMode mode) {
+
+        boolean fast = mode == EvaluationMode.FAST;
+
+        return expression.accept(new Expression.Visitor<CompiledExpression>() {
+
+            @Override
+            public CompiledExpression visitConstant(Expression.Constant constant) {
+                return new ConstantNode(constant.getValue());
+            }
+
+            @Override
+            public CompiledExpression visitVariable(Expression.Variable variable) {
+
+                int index = parameters.indexOf(variable.getName());
+
+                if(index < 0)
+                    throw new EvaluationException(String.format(UNKNOWN_VARIABLE,
+                            variable.getName(), parameters));
+
+                return new VariableNode(index);
+            }
+
+            @Override
+            public CompiledExpression visitNegate(Expression.Negate negate) {
+                return fold(new NegateNode(negate.getOperand().accept(this)));
+            }
+
+            @Override
+            public CompiledExpression visitBinary(Expression.Binary binary) {
+
+                CompiledExpression left = binary.getLeft().accept(this);
+                CompiledExpression right = binary.getRight().accept(this);
+
+                switch(binary.getOperator()) {
+                    case ADD:
+                        return fold(new AddNode(left, right));
+                    case SUBTRACT:
+                        return fold(new SubtractNode(left, right));
+                    case MULTIPLY:
+                        return fold(new MultiplyNode(left, right));
+                    case DIVIDE:
+                        return fold(new DivideNode(left, right));
+                    case MODULO:
+                        return fold(new ModuloNode(left, right));
+                    default:
+                        //x^2 is common enough in formulas to skip Math.pow for it
+                        if(right.isConstant() && right.evaluate(null) == 2.0)
+                            return fold(new SquareNode(left));
+                        return fold(new BinaryFunctionNode(fast ? LookupTables::pow : Math::pow, left, right));
+                }
+            }
+
+            @Override
+            public CompiledExpression visitCall(Expression.Call call) {
+
+                MathFunction function = call.getFunction();
+
+                if(function.arity() == 1) {
+
+                    DoubleUnaryOperator approximation = fast ? LookupTables.unary(function) : null;
+
+                    return fold(new UnaryFunctionNode(approximation != null ? approximation : function.unary(),
+                            call.getArguments().get(0).accept(this)));
+                }
+
+                DoubleBinaryOperator approximation = fast ? LookupTables.binary(function) : null;
+
+                return fold(new BinaryFunctionNode(approximation != null ? approximation : function.binary(),
+                        call.getArguments().get(0).accept(this),
+                        call.getArguments().get(1).accept(this)));
+            }
+        });
+    }
+
+    //a node whose children are all constant is evaluated once, here
+    private static CompiledExpression fold(CompiledExpression node) {
+
+        if(node instanceof ParentNode && ((ParentNode) node).childrenConstant())
+            return new ConstantNode(node.evaluate(null));
+
+        return node;
+    }
+
+    private abstract static class ParentNode extends CompiledExpression {
+
+        abstract boolean childrenConstant();
+    }
+
+    private abstract static class UnaryNode extends ParentNode {
+
+        final CompiledExpression operand;
+
+        UnaryNode(CompiledExpression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean childrenConstant() {
+            return operand.isConstant();
+        }
+    }
+
+    private abstract static class BinaryNode extends ParentNode {
+
+        final CompiledExpression left;
+        final CompiledExpression right;
+
+        BinaryNode(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean childrenConstant() {
+            return left.isConstant() && right.isConstant();
+        }
+    }
+
+    private static final class ConstantNode extends CompiledExpression {
+
+        private final double value;
+
+        ConstantNode(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+            return value;
+        }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
+    }
+
+    private static final class VariableNode extends CompiledExpression {
+
+        private final int index;
+
+        VariableNode(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+            return variables[index];
+        }
+    }
+
+    private static final class NegateNode extends UnaryNode {
+
+        NegateNode(CompiledExpression operand) {
+            super(operand);
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+            return -operand.evaluate(variables);
+        }
+    }
+
+    private static final class SquareNode extends UnaryNode {
+
+        SquareNode(CompiledExpression operand) {
+            super(operand);
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+            double value = operand.evaluate(variables);
+            return value * value;
+        }
+    }
+
+    private static final class UnaryFunctionNode extends UnaryNode {
+
+        private final DoubleUnaryOperator function;
+
+        UnaryFunctionNode(DoubleUnaryOperator function, CompiledExpression operand) {
+            super(operand);
+            this.function = function;
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+            return function.applyAsDouble(operand.evaluate(variables));
+        }
+    }
+
+    private static final class AddNode extends BinaryNode {
+
+        AddNode(CompiledExpression left, CompiledExpression right) {
+            super(left, right);
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+            return left.evaluate(variables) + right.evaluate(variables);
+        }
+    }
+
+    private static final class SubtractNode extends BinaryNode {
+
+        SubtractNode(CompiledExpression left, CompiledExpression right) {
+            super(left, right);
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+            return left.evaluate(variables) - right.evaluate(variables);
+        }
+    }
+
+    private static final class MultiplyNode extends BinaryNode {
+
+        MultiplyNode(CompiledExpression left, CompiledExpression right) {
+            super(left, right);
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+            return left.evaluate(variables) * right.evaluate(variables);
+        }
+    }
+
+    private static final class DivideNode extends BinaryNode {
+
+        DivideNode(CompiledExpression left, CompiledExpression right) {
+            super(left, right);
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+            return left.evaluate(variables) / right.evaluate(variables);
+        }
+    }
+
+    private static final class ModuloNode extends BinaryNode {
+
+        ModuloNode(CompiledExpression left, CompiledExpression right) {
+            super(left, right);
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+            return left.evaluate(variables) % right.evaluate(variables);
+        }
+    }
+
+    private static final class BinaryFunctionNode extends BinaryNode {
+
+        private final DoubleBinaryOperator function;
+
+        BinaryFunctionNode(DoubleBinaryOperator function,
+                           CompiledExpression left, CompiledExpression right) {
+            super(left, right);
+            this.function = function;
+        }
+
+        @Override
+        public double evaluate(double[] variables) {
+            return function.applyAsDouble(left.evaluate(variables), right.evaluate(variables));
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import com.slowdraw.converterbackend.exception.EvaluationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//recursive descent parser for formula expressions such as "pi * r^2" or "sqrt(a^2 + b^2)"
+public final class ExpressionParser {
+
+    private static final String UNEXPECTED = "Unexpected '%s' at position %d in expression \"%s\".";
+    private static final String UNEXPECTED_END = "Unexpected end of expression \"%s\".";
+    private static final String UNKNOWN_FUNCTION = "Unknown function %s in expression \"%s\".";
+    private static final String WRONG_ARITY = "Function %s takes %d argument(s) in expression \"%s\".";
+
+    private final String source;
+
+    private int position;
+
+    private ExpressionParser(String source) {
+        this.source = source;
+    }
+
+    public static Expression parse(String source) {
+
+        //sanity check: something to parse
+        if(source == null || source.trim().isEmpty())
+            throw new EvaluationException("Expression is empty.");
+
+        ExpressionParser parser = new ExpressionParser(source);
+
+        Expression expression = parser.parseSum();
+
+        parser.skipWhitespace();
+
+        if(parser.position < source.length())
+            throw parser.unexpected();
+
+        return expression;
+    }
+
+    //sum := product (('+' | '-') product)*
+    private Expression parseSum() {
+
+        Expression expression = parseProduct();
+
+        while(true) {
+            if(accept('+'))
+                expression = new Expression.Binary(Expression.Operator.ADD, expression, parseProduct());
+            else if(accept('-'))
+                expression = new Expression.Binary(Expression.Operator.SUBTRACT, expression, parseProduct());
+            else
+                return expression;
+        }
+    }
+
+    //product := unary (('*' | '/' | '%') unary)*
+    private Expression parseProduct() {
+
+        Expression expression = parseUnary();
+
+        while(true) {
+            if(accept('*'))
+                expression = new Expression.Binary(Expression.Operator.MULTIPLY, expression, parseUnary());
+            else if(accept('/'))
+                expression = new Expression.Binary(Expression.Operator.DIVIDE, expression, parseUnary());
+            else if(accept('%'))
+                expression = new Expression.Binary(Expression.Operator.MODULO, expression, parseUnary());
+            else
+                return expression;
+        }
+    }
+
+    //unary := ('-' | '+') unary | power, so -x^2 reads as -(x^2)
+    private Expression parseUnary() {
+
+        if(accept('-'))
+            return new Expression.Negate(parseUnary());
+
+        if(accept('+'))
+            return parseUnary();
+
+        return parsePower();
+    }
+
+    //power := primary ('^' unary)?, right associative
+    private Expression parsePower() {
+
+        Expression base = parsePrimary();
+
+        if(accept('^'))
+            return new Expression.Binary(Expression.Operator.POWER, base, parseUnary());
+
+        return base;
+    }
+
+    private Expression parsePrimary() {
+
+        skipWhitespace();
+
+        if(position >= source.length())
+            throw new EvaluationException(String.format(UNEXPECTED_END, source));
+
+        char current = source.charAt(position);
+
+        if(accept('(')) {
+
+            Expression inner = parseSum();
+
+            expect(')');
+
+            return inner;
+        }
+
+        if(Character.isDigit(current) || current == '.')
+            return parseNumber();
+
+        if(Character.isLetter(current) || current == '_')
+            return parseIdentifier();
+
+        throw unexpected();
+    }
+
+    private Expression parseNumber() {
+
+        int start = position;
+
+        while(position < source.length()
+                && (Character.isDigit(source.charAt(position)) || source.charAt(position) == '.'))
+            position++;
+
+        //optional exponent, e.g. 6.022e23 or 1E-9
+        if(position < source.length() && Character.toLowerCase(source.charAt(position)) == 'e') {
+
+            int mark = position++;
+
+            if(position < source.length() && (source.charAt(position) == '+' || source.charAt(position) == '-'))
+                position++;
+
+            if(position < source.length() && Character.isDigit(source.charAt(position))) {
+                while(position < source.length() && Character.isDigit(source.charAt(position)))
+                    position++;
+            }
+            else {
+                position = mark;
+            }
+        }
+
+        try {
+            return new Expression.Constant(Double.parseDouble(source.substring(start, position)));
+        }
+        catch(NumberFormatException exceptMe) {
+            position = start;
+            throw unexpected();
+        }
+    }
+
+    private Expression parseIdentifier() {
+
+        int start = position;
+
+        while(position < source.length()
+                && (Character.isLetterOrDigit(source.charAt(position)) || source.charAt(position) == '_'))
+            position++;
+
+        String name = source.substring(start, position);
+
+        if(accept('('))
+            return parseCall(name);
+
+        if(name.equals("pi"))
+            return new Expression.Constant(Math.PI);
+
+        if(name.equals("e"))
+            return new Expression.Constant(Math.E);
+
+        return new Expression.Variable(name);
+    }
+
+    private Expression parseCall(String name) {
+
+        MathFunction function = MathFunction.forName(name);
+
+        if(function == null)
+            throw new EvaluationException(String.format(UNKNOWN_FUNCTION, name, source));
+
+        List<Expression> arguments = new ArrayList<>();
+
+        if(!accept(')')) {
+
+            do {
+                arguments.add(parseSum());
+            } while(accept(','));
+
+            expect(')');
+        }
+
+        if(arguments.size() != function.arity())
+            throw new EvaluationException(String.format(WRONG_ARITY, name, function.arity(), source));
+
+        return new Expression.Call(function, arguments);
+    }
+
+    private boolean accept(char expected) {
+
+        skipWhitespace();
+
+        if(position < source.length() && source.charAt(position) == expected) {
+            position++;
+            return true;
+        }
+
+        return false;
+    }
+
+    private void expect(char expected) {
+
+        if(!accept(expected)) {
+
+            if(position >= source.length())
+                throw new EvaluationException(String.format(UNEXPECTED_END, source));
+
+            throw unexpected();
+        }
+    }
+
+    private void skipWhitespace() {
+
+        while(position < source.length() && Character.isWhitespace(source.charAt(position)))
+            position++;
+    }
+
+    private EvaluationException unexpected() {
+
+        return new EvaluationException(String.format(UNEXPECTED,
+                source.charAt(position), position, source));
+    }
+}
@@ -0,0 +1,41 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import java.util.Arrays;
+
+//evaluation inputs packed as raw double bits, so 0.0 and -0.0 stay distinct and NaN equals itself
+public final class InputKey {
+
+    private final long[] bits;
+    private final int hash;
+
+    private InputKey(long[] bits) {
+        this.bits = bits;
+        this.hash = Arrays.hashCode(bits);
+    }
+
+    public static InputKey of(double[] inputs) {
+
+        long[] bits = new long[inputs.length];
+
+        for(int i = 0; i < inputs.length; i++)
+            bits[i] = Double.doubleToLongBits(inputs[i]);
+
+        return new InputKey(bits);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+
+        if(this == other)
+            return true;
+
+        return other instanceof InputKey
+                && hash == ((InputKey) other).hash
+                && Arrays.equals(bits, ((InputKey) other).bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
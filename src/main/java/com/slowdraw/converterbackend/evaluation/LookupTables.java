@@ -0,0 +1,136 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+//table-driven approximations of the transcendental functions for FAST evaluation. Each table is
+//sampled once at class load and read with linear interpolation; inputs outside a table's supported
+//domain fall back to the exact Math function, so the declared bounds hold for every input
+public final class LookupTables {
+
+    //|fast - exact| for sin and cos; interpolation error is h^2/8 = 3e-7 with 4096 samples per period
+    public static final double SIN_COS_MAX_ABSOLUTE_ERROR = 1e-6;
+
+    //|fast - exact| / |exact| for exp; about 1.5e-8 with 2048 samples over [0, ln 2)
+    public static final double EXP_MAX_RELATIVE_ERROR = 1e-7;
+
+    //|fast - exact| for log; about 7.5e-9 with 4096 samples over the mantissa [1, 2)
+    public static final double LOG_MAX_ABSOLUTE_ERROR = 1e-7;
+
+    //relative error of pow(a, b) per unit of |b| (at least 1), since the log error is scaled by b
+    public static final double POW_MAX_RELATIVE_ERROR_PER_EXPONENT = 1e-7;
+
+    private static final double TWO_PI = 2.0 * Math.PI;
+    private static final double LN2 = Math.log(2.0);
+
+    //beyond this the reduction x mod 2pi itself starts to lose digits
+    private static final double SIN_MAX_ARGUMENT = 1e5;
+
+    private static final int SIN_SAMPLES = 4096;
+    private static final double SIN_STEP = TWO_PI / SIN_SAMPLES;
+    private static final double[] SIN_TABLE = sample(SIN_SAMPLES, 0.0, SIN_STEP, Math::sin);
+
+    private static final int EXP_SAMPLES = 2048;
+    private static final double EXP_STEP = LN2 / EXP_SAMPLES;
+    private static final double[] EXP_TABLE = sample(EXP_SAMPLES, 0.0, EXP_STEP, Math::exp);
+
+    private static final int LOG_SAMPLES = 4096;
+    private static final double LOG_STEP = 1.0 / LOG_SAMPLES;
+    private static final double[] LOG_TABLE = sample(LOG_SAMPLES, 1.0, LOG_STEP, Math::log);
+
+    private LookupTables() {
+    }
+
+    //the approximation used for a function in FAST mode, or null when it is evaluated exactly
+    public static DoubleUnaryOperator unary(MathFunction function) {
+
+        switch(function) {
+            case SIN:
+                return LookupTables::sin;
+            case COS:
+                return LookupTables::cos;
+            case EXP:
+                return LookupTables::exp;
+            case LOG:
+                return LookupTables::log;
+            default:
+                return null;
+        }
+    }
+
+    public static DoubleBinaryOperator binary(MathFunction function) {
+        return function == MathFunction.POW ? LookupTables::pow : null;
+    }
+
+    public static double sin(double x) {
+
+        if(!(Math.abs(x) <= SIN_MAX_ARGUMENT))
+            return Math.sin(x);
+
+        double reduced = x - Math.floor(x / TWO_PI) * TWO_PI;
+
+        return interpolate(SIN_TABLE, reduced / SIN_STEP);
+    }
+
+    public static double cos(double x) {
+        return sin(x + Math.PI / 2.0);
+    }
+
+    public static double exp(double x) {
+
+        //outside this range the result is subnormal, zero or infinite anyway
+        if(!(x >= -708.0 && x <= 709.0))
+            return Math.exp(x);
+
+        double exponent = Math.floor(x / LN2);
+        double reduced = x - exponent * LN2;
+
+        return Math.scalb(interpolate(EXP_TABLE, reduced / EXP_STEP), (int) exponent);
+    }
+
+    public static double log(double x) {
+
+        if(!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE))
+            return Math.log(x);
+
+        int exponent = Math.getExponent(x);
+        double mantissa = Math.scalb(x, -exponent);
+
+        return exponent * LN2 + interpolate(LOG_TABLE, (mantissa - 1.0) / LOG_STEP);
+    }
+
+    public static double pow(double base, double exponent) {
+
+        //integer powers of negative numbers, zero and the special values keep their exact semantics
+        if(!(base > 0.0) || Double.isInfinite(base) || Double.isNaN(exponent) || Double.isInfinite(exponent))
+            return Math.pow(base, exponent);
+
+        return exp(exponent * log(base));
+    }
+
+    //table holds samples + 1 points so the last interval can interpolate without wrapping
+    private static double[] sample(int samples, double origin, double step, DoubleUnaryOperator function) {
+
+        double[] table = new double[samples + 1];
+
+        for(int i = 0; i <= samples; i++)
+            table[i] = function.applyAsDouble(origin + i * step);
+
+        return table;
+    }
+
+    private static double interpolate(double[] table, double position) {
+
+        int index = (int) position;
+
+        //rounding can land exactly on the last sample
+        if(index >= table.length - 1)
+            index = table.length - 2;
+        else if(index < 0)
+            index = 0;
+
+        double fraction = position - index;
+
+        return table[index] + (table[index + 1] - table[index]) * fraction;
+    }
+}
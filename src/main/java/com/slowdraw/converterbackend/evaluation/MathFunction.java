@@ -0,0 +1,75 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+//functions an expression may call; unary and binary ones are kept apart so compiled nodes stay primitive
+public enum MathFunction {
+
+    SIN(Math::sin),
+    COS(Math::cos),
+    TAN(Math::tan),
+    ASIN(Math::asin),
+    ACOS(Math::acos),
+    ATAN(Math::atan),
+    SINH(Math::sinh),
+    COSH(Math::cosh),
+    TANH(Math::tanh),
+    EXP(Math::exp),
+    LOG(Math::log),
+    LOG10(Math::log10),
+    SQRT(Math::sqrt),
+    CBRT(Math::cbrt),
+    ABS(value -> Math.abs(value)),
+    FLOOR(Math::floor),
+    CEIL(Math::ceil),
+    ROUND(value -> (double) Math.round(value)),
+    POW(Math::pow),
+    ATAN2(Math::atan2),
+    HYPOT(Math::hypot),
+    MIN(Math::min),
+    MAX(Math::max);
+
+    private static final Map<String, MathFunction> BY_NAME = new HashMap<>();
+
+    static {
+        for(MathFunction function : values())
+            BY_NAME.put(function.functionName(), function);
+    }
+
+    private final DoubleUnaryOperator unary;
+    private final DoubleBinaryOperator binary;
+
+    MathFunction(DoubleUnaryOperator unary) {
+        this.unary = unary;
+        this.binary = null;
+    }
+
+    MathFunction(DoubleBinaryOperator binary) {
+        this.unary = null;
+        this.binary = binary;
+    }
+
+    public static MathFunction forName(String name) {
+        return BY_NAME.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public String functionName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public int arity() {
+        return unary != null ? 1 : 2;
+    }
+
+    public DoubleUnaryOperator unary() {
+        return unary;
+    }
+
+    public DoubleBinaryOperator binary() {
+        return binary;
+    }
+}
@@ -0,0 +1,364 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+//exact fraction in lowest terms with a positive denominator. Values whose parts fit in a long stay
+//in two primitive fields; an operation that would overflow is redone in BigInteger, and results
+//that fit again drop back to longs, so the common case never allocates a BigInteger
+public final class Rational implements Comparable<Rational> {
+
+    public static final Rational ZERO = new Rational(0L, 1L);
+    public static final Rational ONE = new Rational(1L, 1L);
+
+    private static final Rational HALF = new Rational(1L, 2L);
+
+    //repeated squaring beyond this builds numbers nobody wants to wait for
+    private static final int MAX_EXPONENT = 4096;
+
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    //2^53: longs below this convert to double exactly
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    private final long numerator;
+    private final long denominator;
+
+    //non-null only when the value does not fit the long fields
+    private final BigInteger bigNumerator;
+    private final BigInteger bigDenominator;
+
+    private Rational(long numerator, long denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+        this.bigNumerator = null;
+        this.bigDenominator = null;
+    }
+
+    private Rational(BigInteger bigNumerator, BigInteger bigDenominator) {
+        this.numerator = 0L;
+        this.denominator = 0L;
+        this.bigNumerator = bigNumerator;
+        this.bigDenominator = bigDenominator;
+    }
+
+    public static Rational of(long value) {
+        return of(value, 1L);
+    }
+
+    public static Rational of(long numerator, long denominator) {
+
+        if(denominator == 0L)
+            throw new ArithmeticException("Division by zero");
+
+        //negating or taking abs of MIN_VALUE overflows, so leave those to BigInteger
+        if(numerator == Long.MIN_VALUE || denominator == Long.MIN_VALUE)
+            return of(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator));
+
+        if(denominator < 0L) {
+            numerator = -numerator;
+            denominator = -denominator;
+        }
+
+        long divisor = gcd(Math.abs(numerator), denominator);
+
+        return new Rational(numerator / divisor, denominator / divisor);
+    }
+
+    public static Rational of(BigInteger numerator, BigInteger denominator) {
+
+        if(denominator.signum() == 0)
+            throw new ArithmeticException("Division by zero");
+
+        if(denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+
+        BigInteger divisor = numerator.gcd(denominator);
+
+        if(!divisor.equals(BigInteger.ONE)) {
+            numerator = numerator.divide(divisor);
+            denominator = denominator.divide(divisor);
+        }
+
+        if(fitsLong(numerator) && fitsLong(denominator))
+            return new Rational(numerator.longValue(), denominator.longValue());
+
+        return new Rational(numerator, denominator);
+    }
+
+    //the decimal a double prints as (0.1 becomes 1/10), which is what a client meant when it sent it
+    public static Rational valueOf(double value) {
+
+        if(Double.isNaN(value) || Double.isInfinite(value))
+            throw new ArithmeticException("Cannot represent " + value + " exactly");
+
+        if(value == Math.rint(value) && Math.abs(value) < EXACT_DOUBLE_LIMIT)
+            return of((long) value);
+
+        return valueOf(BigDecimal.valueOf(value));
+    }
+
+    public static Rational valueOf(BigDecimal value) {
+
+        BigInteger unscaled = value.unscaledValue();
+        int scale = value.scale();
+
+        if(scale <= 0)
+            return of(unscaled.multiply(BigInteger.TEN.pow(-scale)), BigInteger.ONE);
+
+        return of(unscaled, BigInteger.TEN.pow(scale));
+    }
+
+    public boolean isBig() {
+        return bigNumerator != null;
+    }
+
+    public BigInteger getNumerator() {
+        return isBig() ? bigNumerator : BigInteger.valueOf(numerator);
+    }
+
+    public BigInteger getDenominator() {
+        return isBig() ? bigDenominator : BigInteger.valueOf(denominator);
+    }
+
+    public int signum() {
+        return isBig() ? bigNumerator.signum() : Long.signum(numerator);
+    }
+
+    public boolean isInteger() {
+        return isBig() ? bigDenominator.equals(BigInteger.ONE) : denominator == 1L;
+    }
+
+    public Rational add(Rational other) {
+
+        if(!isBig() && !other.isBig()) {
+            try {
+                if(denominator == other.denominator)
+                    return of(Math.addExact(numerator, other.numerator), denominator);
+
+                return of(Math.addExact(Math.multiplyExact(numerator, other.denominator),
+                                Math.multiplyExact(other.numerator, denominator)),
+                        Math.multiplyExact(denominator, other.denominator));
+            }
+            catch(ArithmeticException overflow) {
+                //fall through to BigInteger
+            }
+        }
+
+        return of(getNumerator().multiply(other.getDenominator())
+                        .add(other.getNumerator().multiply(getDenominator())),
+                getDenominator().multiply(other.getDenominator()));
+    }
+
+    public Rational subtract(Rational other) {
+        return add(other.negate());
+    }
+
+    public Rational multiply(Rational other) {
+
+        if(!isBig() && !other.isBig()) {
+
+            //cross-reducing first keeps the products small and the result already in lowest terms
+            long firstDivisor = gcd(Math.abs(numerator), other.denominator);
+            long secondDivisor = gcd(Math.abs(other.numerator), denominator);
+
+            try {
+                long productNumerator =
+                        Math.multiplyExact(numerator / firstDivisor, other.numerator / secondDivisor);
+                long productDenominator =
+                        Math.multiplyExact(denominator / secondDivisor, other.denominator / firstDivisor);
+
+                if(productNumerator != Long.MIN_VALUE)
+                    return new Rational(productNumerator, productDenominator);
+            }
+            catch(ArithmeticException overflow) {
+                //fall through to BigInteger
+            }
+        }
+
+        return of(getNumerator().multiply(other.getNumerator()),
+                getDenominator().multiply(other.getDenominator()));
+    }
+
+    public Rational divide(Rational other) {
+        return multiply(other.reciprocal());
+    }
+
+    public Rational negate() {
+
+        if(!isBig() && numerator != Long.MIN_VALUE)
+            return new Rational(-numerator, denominator);
+
+        return of(getNumerator().negate(), getDenominator());
+    }
+
+    public Rational reciprocal() {
+
+        if(signum() == 0)
+            throw new ArithmeticException("Division by zero");
+
+        if(!isBig())
+            return of(denominator, numerator);
+
+        return of(bigDenominator, bigNumerator);
+    }
+
+    public Rational abs() {
+        return signum() < 0 ? negate() : this;
+    }
+
+    public Rational pow(Rational exponent) {
+
+        if(!exponent.isInteger())
+            throw new ArithmeticException("Non-integer power " + exponent + " has no exact form");
+
+        if(exponent.isBig() || Math.abs(exponent.numerator) > MAX_EXPONENT)
+            throw new ArithmeticException("Exponent " + exponent + " is too large for exact evaluation");
+
+        return pow((int) exponent.numerator);
+    }
+
+    private Rational pow(int exponent) {
+
+        if(exponent < 0)
+            return pow(-exponent).reciprocal();
+
+        Rational result = ONE;
+        Rational square = this;
+
+        while(exponent > 0) {
+
+            if((exponent & 1) == 1)
+                result = result.multiply(square);
+
+            exponent >>= 1;
+
+            if(exponent > 0)
+                square = square.multiply(square);
+        }
+
+        return result;
+    }
+
+    public Rational floor() {
+
+        if(isInteger())
+            return this;
+
+        if(!isBig())
+            return of(Math.floorDiv(numerator, denominator));
+
+        BigInteger[] quotientAndRemainder = bigNumerator.divideAndRemainder(bigDenominator);
+        BigInteger quotient = quotientAndRemainder[0];
+
+        return of(signum() < 0 ? quotient.subtract(BigInteger.ONE) : quotient, BigInteger.ONE);
+    }
+
+    public Rational ceil() {
+        return negate().floor().negate();
+    }
+
+    //half up, like Math.round
+    public Rational round() {
+        return add(HALF).floor();
+    }
+
+    //toward zero, matching Java's % on doubles: a % b = a - b * trunc(a / b)
+    public Rational remainder(Rational divisor) {
+
+        Rational quotient = divide(divisor);
+        Rational truncated = quotient.signum() < 0 ? quotient.ceil() : quotient.floor();
+
+        return subtract(divisor.multiply(truncated));
+    }
+
+    public double doubleValue() {
+
+        if(!isBig() && Math.abs(numerator) < EXACT_DOUBLE_LIMIT && denominator < EXACT_DOUBLE_LIMIT)
+            return (double) numerator / (double) denominator;
+
+        return toBigDecimal(MathContext.DECIMAL128).doubleValue();
+    }
+
+    public BigDecimal toBigDecimal(MathContext mathContext) {
+        return new BigDecimal(getNumerator()).divide(new BigDecimal(getDenominator()), mathContext);
+    }
+
+    //exact when the decimal expansion terminates within 34 digits, otherwise rounded half even to 34
+    public String toDecimalString() {
+
+        BigDecimal value = toBigDecimal(new MathContext(MathContext.DECIMAL128.getPrecision(),
+                RoundingMode.HALF_EVEN));
+
+        return value.signum() == 0 ? "0" : value.stripTrailingZeros().toPlainString();
+    }
+
+    @Override
+    public int compareTo(Rational other) {
+
+        if(!isBig() && !other.isBig()) {
+            try {
+                return Long.compare(Math.multiplyExact(numerator, other.denominator),
+                        Math.multiplyExact(other.numerator, denominator));
+            }
+            catch(ArithmeticException overflow) {
+                //fall through to BigInteger
+            }
+        }
+
+        return getNumerator().multiply(other.getDenominator())
+                .compareTo(other.getNumerator().multiply(getDenominator()));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+
+        if(this == other)
+            return true;
+
+        if(!(other instanceof Rational))
+            return false;
+
+        Rational that = (Rational) other;
+
+        //both sides are normalized, and values that fit a long are never stored big
+        if(isBig() != that.isBig())
+            return false;
+
+        return isBig()
+                ? bigNumerator.equals(that.bigNumerator) && bigDenominator.equals(that.bigDenominator)
+                : numerator == that.numerator && denominator == that.denominator;
+    }
+
+    @Override
+    public int hashCode() {
+        return isBig()
+                ? 31 * bigNumerator.hashCode() + bigDenominator.hashCode()
+                : 31 * Long.hashCode(numerator) + Long.hashCode(denominator);
+    }
+
+    @Override
+    public String toString() {
+        return isInteger() ? getNumerator().toString() : getNumerator() + "/" + getDenominator();
+    }
+
+    private static boolean fitsLong(BigInteger value) {
+        return value.compareTo(LONG_MIN) > 0 && value.compareTo(LONG_MAX) <= 0;
+    }
+
+    private static long gcd(long first, long second) {
+
+        while(second != 0L) {
+            long remainder = first % second;
+            first = second;
+            second = remainder;
+        }
+
+        return first == 0L ? 1L : first;
+    }
+}
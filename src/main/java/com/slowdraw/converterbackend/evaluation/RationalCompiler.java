@@ -0,0 +1,200 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import com.slowdraw.converterbackend.exception.EvaluationException;
+
+import java.util.List;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+//compiles an Expression for exact evaluation. Only operations closed over the rationals are
+//allowed; pi and e are constants and enter at double precision like any other literal
+public final class RationalCompiler {
+
+    private static final String NO_EXACT_FORM = "%s has no exact rational form; use double or fast mode.";
+    private static final String UNKNOWN_VARIABLE = "Unknown variable %s; expected one of %s.";
+
+    private RationalCompiler() {
+    }
+
+    public static RationalExpression compile(Expression expression, List<String> parameters) {
+
+        return expression.accept(new Expression.Visitor<RationalExpression>() {
+
+            @Override
+            public RationalExpression visitConstant(Expression.Constant constant) {
+                return new ConstantNode(Rational.valueOf(constant.getValue()));
+            }
+
+            @Override
+            public RationalExpression visitVariable(Expression.Variable variable) {
+
+                int index = parameters.indexOf(variable.getName());
+
+                if(index < 0)
+                    throw new EvaluationException(String.format(UNKNOWN_VARIABLE,
+                            variable.getName(), parameters));
+
+                return new VariableNode(index);
+            }
+
+            @Override
+            public RationalExpression visitNegate(Expression.Negate negate) {
+                return unary(Rational::negate, negate.getOperand().accept(this));
+            }
+
+            @Override
+            public RationalExpression visitBinary(Expression.Binary binary) {
+
+                RationalExpression left = binary.getLeft().accept(this);
+                RationalExpression right = binary.getRight().accept(this);
+
+                switch(binary.getOperator()) {
+                    case ADD:
+                        return binary(Rational::add, left, right);
+                    case SUBTRACT:
+                        return binary(Rational::subtract, left, right);
+                    case MULTIPLY:
+                        return binary(Rational::multiply, left, right);
+                    case DIVIDE:
+                        return binary(Rational::divide, left, right);
+                    case MODULO:
+                        return binary(Rational::remainder, left, right);
+                    default:
+                        return power(left, right);
+                }
+            }
+
+            @Override
+            public RationalExpression visitCall(Expression.Call call) {
+
+                MathFunction function = call.getFunction();
+                List<Expression> arguments = call.getArguments();
+
+                switch(function) {
+                    case ABS:
+                        return unary(Rational::abs, arguments.get(0).accept(this));
+                    case FLOOR:
+                        return unary(Rational::floor, arguments.get(0).accept(this));
+                    case CEIL:
+                        return unary(Rational::ceil, arguments.get(0).accept(this));
+                    case ROUND:
+                        return unary(Rational::round, arguments.get(0).accept(this));
+                    case MIN:
+                        return binary((a, b) -> a.compareTo(b) <= 0 ? a : b,
+                                arguments.get(0).accept(this), arguments.get(1).accept(this));
+                    case MAX:
+                        return binary((a, b) -> a.compareTo(b) >= 0 ? a : b,
+                                arguments.get(0).accept(this), arguments.get(1).accept(this));
+                    case POW:
+                        return power(arguments.get(0).accept(this), arguments.get(1).accept(this));
+                    default:
+                        throw new EvaluationException(String.format(NO_EXACT_FORM,
+                                "Function " + function.functionName()));
+                }
+            }
+        });
+    }
+
+    //a constant exponent is checked here; a variable one can only fail at evaluation time
+    private static RationalExpression power(RationalExpression base, RationalExpression exponent) {
+
+        if(exponent.isConstant() && !exponent.evaluate(null).isInteger())
+            throw new EvaluationException(String.format(NO_EXACT_FORM,
+                    "Power " + exponent.evaluate(null)));
+
+        return binary(Rational::pow, base, exponent);
+    }
+
+    private static RationalExpression unary(UnaryOperator<Rational> operator, RationalExpression operand) {
+
+        RationalExpression node = new UnaryNode(operator, operand);
+
+        return operand.isConstant() ? fold(node) : node;
+    }
+
+    private static RationalExpression binary(BinaryOperator<Rational> operator,
+                                             RationalExpression left, RationalExpression right) {
+
+        RationalExpression node = new BinaryNode(operator, left, right);
+
+        return left.isConstant() && right.isConstant() ? fold(node) : node;
+    }
+
+    //constant subtrees are evaluated once; one that cannot be (e.g. 1/0) is left for evaluation to report
+    private static RationalExpression fold(RationalExpression node) {
+
+        try {
+            return new ConstantNode(node.evaluate(null));
+        }
+        catch(ArithmeticException exceptMe) {
+            return node;
+        }
+    }
+
+    private static final class ConstantNode extends RationalExpression {
+
+        private final Rational value;
+
+        ConstantNode(Rational value) {
+            this.value = value;
+        }
+
+        @Override
+        public Rational evaluate(Rational[] variables) {
+            return value;
+        }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
+    }
+
+    private static final class VariableNode extends RationalExpression {
+
+        private final int index;
+
+        VariableNode(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Rational evaluate(Rational[] variables) {
+            return variables[index];
+        }
+    }
+
+    private static final class UnaryNode extends RationalExpression {
+
+        private final UnaryOperator<Rational> operator;
+        private final RationalExpression operand;
+
+        UnaryNode(UnaryOperator<Rational> operator, RationalExpression operand) {
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        @Override
+        public Rational evaluate(Rational[] variables) {
+            return operator.apply(operand.evaluate(variables));
+        }
+    }
+
+    private static final class BinaryNode extends RationalExpression {
+
+        private final BinaryOperator<Rational> operator;
+        private final RationalExpression left;
+        private final RationalExpression right;
+
+        BinaryNode(BinaryOperator<Rational> operator, RationalExpression left, RationalExpression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Rational evaluate(Rational[] variables) {
+            return operator.apply(left.evaluate(variables), right.evaluate(variables));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.slowdraw.converterbackend.evaluation;
+
+//exact counterpart of CompiledExpression; throws ArithmeticException for division by zero
+//or a power that has no exact rational result
+public abstract class RationalExpression {
+
+    public abstract Rational evaluate(Rational[] variables);
+
+    public boolean isConstant() {
+        return false;
+    }
+}
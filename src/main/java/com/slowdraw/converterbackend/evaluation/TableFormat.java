@@ -0,0 +1,68 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import com.slowdraw.converterbackend.exception.EvaluationException;
+
+import java.util.Locale;
+
+//row encodings for generated tables; undefined results become null (NDJSON) or an empty cell (CSV)
+public enum TableFormat {
+
+    NDJSON("application/x-ndjson") {
+        @Override
+        void appendHeader(StringBuilder row, String parameter) {
+        }
+
+        @Override
+        void appendRow(StringBuilder row, String parameter, double input, double result) {
+            row.append("{\"").append(parameter).append("\":").append(input).append(",\"result\":");
+            appendNumber(row, result, "null");
+            row.append("}\n");
+        }
+    },
+
+    CSV("text/csv") {
+        @Override
+        void appendHeader(StringBuilder row, String parameter) {
+            row.append(parameter).append(",result\n");
+        }
+
+        @Override
+        void appendRow(StringBuilder row, String parameter, double input, double result) {
+            row.append(input).append(',');
+            appendNumber(row, result, "");
+            row.append('\n');
+        }
+    };
+
+    private final String contentType;
+
+    TableFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public static TableFormat forName(String name) {
+
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+        catch(IllegalArgumentException exceptMe) {
+            throw new EvaluationException(String.format("Unknown table format %s; expected ndjson or csv.", name));
+        }
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    abstract void appendHeader(StringBuilder row, String parameter);
+
+    abstract void appendRow(StringBuilder row, String parameter, double input, double result);
+
+    private static void appendNumber(StringBuilder row, double value, String undefined) {
+
+        if(Double.isNaN(value) || Double.isInfinite(value))
+            row.append(undefined);
+        else
+            row.append(value);
+    }
+}
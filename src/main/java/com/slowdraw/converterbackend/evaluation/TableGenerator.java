@@ -0,0 +1,92 @@
+package com.slowdraw.converterbackend.evaluation;
+
+import com.slowdraw.converterbackend.exception.EvaluationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+//tabulates a single-input formula over start..end; rows are generated while writing, never collected
+@Component
+public class TableGenerator {
+
+    private static final String NOT_SINGLE_INPUT = "Formula %s takes %d inputs; a table needs exactly one.";
+    private static final String INVALID_RANGE = "Table range needs finite start and end and a positive step.";
+    private static final String TOO_MANY_ROWS = "Table would have more than %d rows.";
+
+    //rows are appended to one builder and written out in blocks of roughly this many chars
+    private static final int FLUSH_CHARS = 32 * 1024;
+
+    private final long maxTableRows;
+
+    //constructor injection
+    public TableGenerator(@Value("${app.evaluation.maxTableRows:10000000}") long maxTableRows) {
+        this.maxTableRows = maxTableRows;
+    }
+
+    //validates everything up front so a bad request fails before the response is committed
+    public Table prepare(CompiledFormula formula, double start, double end, double step) {
+
+        if(formula.arity() != 1)
+            throw new EvaluationException(String.format(NOT_SINGLE_INPUT,
+                    formula.getFormulaName(), formula.arity()));
+
+        if(!Double.isFinite(start) || !Double.isFinite(end) || !Double.isFinite(step)
+                || step <= 0 || end < start)
+            throw new EvaluationException(INVALID_RANGE);
+
+        //small tolerance so 0..1 step 0.1 still ends on 1.0 despite binary rounding
+        double intervals = Math.floor((end - start) / step + 1e-9);
+
+        if(intervals + 1 > maxTableRows)
+            throw new EvaluationException(String.format(TOO_MANY_ROWS, maxTableRows));
+
+        return new Table(formula, start, step, (long) intervals + 1);
+    }
+
+    public static final class Table {
+
+        private final CompiledFormula formula;
+        private final double start;
+        private final double step;
+        private final long rows;
+
+        private Table(CompiledFormula formula, double start, double step, long rows) {
+            this.formula = formula;
+            this.start = start;
+            this.step = step;
+            this.rows = rows;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public void writeTo(OutputStream outputStream, TableFormat format) throws IOException {
+
+            String parameter = formula.getParameters().get(0);
+            double[] input = new double[1];
+            StringBuilder buffer = new StringBuilder(FLUSH_CHARS + 256);
+
+            format.appendHeader(buffer, parameter);
+
+            for(long i = 0; i < rows; i++) {
+
+                //start + i * step rather than a running sum, so error does not accumulate over long tables
+                input[0] = start + i * step;
+
+                format.appendRow(buffer, parameter, input[0], formula.evaluate(input));
+
+                if(buffer.length() >= FLUSH_CHARS) {
+                    outputStream.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
+                    buffer.setLength(0);
+                }
+            }
+
+            outputStream.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.slowdraw.converterbackend.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+@ControllerAdvice
+public class ConversionAdvice {
+
+    @ResponseBody
+    @ExceptionHandler(ConversionException.class)
+    public final ResponseEntity<ConversionErrorResponse>
+        conversionErrorResponseResponseEntity(ConversionException exception) {
+
+        ConversionErrorResponse response = new ConversionErrorResponse(exception.getMessage());
+
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+}
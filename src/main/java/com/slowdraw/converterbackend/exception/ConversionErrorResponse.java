@@ -0,0 +1,15 @@
+package com.slowdraw.converterbackend.exception;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ConversionErrorResponse {
+
+    public String conversionError;
+
+    public ConversionErrorResponse(String conversionError) {
+        this.conversionError = conversionError;
+    }
+}
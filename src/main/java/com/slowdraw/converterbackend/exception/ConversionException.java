@@ -0,0 +1,8 @@
+package com.slowdraw.converterbackend.exception;
+
+public class ConversionException extends RuntimeException {
+
+    public ConversionException(String message) {
+        super(message);
+    }
+}
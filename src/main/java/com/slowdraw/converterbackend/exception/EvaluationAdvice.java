@@ -0,0 +1,21 @@
+package com.slowdraw.converterbackend.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+@ControllerAdvice
+public class EvaluationAdvice {
+
+    @ResponseBody
+    @ExceptionHandler(EvaluationException.class)
+    public final ResponseEntity<EvaluationErrorResponse>
+        evaluationErrorResponseResponseEntity(EvaluationException exception) {
+
+        EvaluationErrorResponse response = new EvaluationErrorResponse(exception.getMessage());
+
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+}
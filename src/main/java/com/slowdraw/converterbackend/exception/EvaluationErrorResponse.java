@@ -0,0 +1,15 @@
+package com.slowdraw.converterbackend.exception;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class EvaluationErrorResponse {
+
+    public String evaluationError;
+
+    public EvaluationErrorResponse(String evaluationError) {
+        this.evaluationError = evaluationError;
+    }
+}
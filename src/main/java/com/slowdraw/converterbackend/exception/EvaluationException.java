@@ -0,0 +1,8 @@
+package com.slowdraw.converterbackend.exception;
+
+public class EvaluationException extends RuntimeException {
+
+    public EvaluationException(String message) {
+        super(message);
+    }
+}
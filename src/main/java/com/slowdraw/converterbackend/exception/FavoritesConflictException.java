@@ -0,0 +1,12 @@
+package com.slowdraw.converterbackend.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class FavoritesConflictException extends RuntimeException {
+
+    public FavoritesConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,93 @@
+package com.slowdraw.converterbackend.migration;
+
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//rewrites users saved with @DBRef favorites into plain formula names; a no-op once nothing is left to convert
+@Component
+public class FavoritesMigration implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FavoritesMigration.class);
+
+    private static final String USERS = "users";
+    private static final String LEGACY_FIELD = "favoritesList";
+    private static final String FIELD = "favorites";
+
+    private final MongoTemplate mongoTemplate;
+
+    //constructor injection
+    public FavoritesMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        migrate();
+    }
+
+    public int migrate() {
+
+        Query legacyUsers = new Query(Criteria.where(LEGACY_FIELD).exists(true));
+        legacyUsers.fields().include(LEGACY_FIELD);
+
+        List<Document> documents = mongoTemplate.find(legacyUsers, Document.class, USERS);
+
+        if(documents.isEmpty())
+            return 0;
+
+        BulkOperations bulkOperations =
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, USERS);
+
+        for(Document document : documents) {
+            bulkOperations.updateOne(
+                    new Query(Criteria.where("_id").is(document.get("_id"))),
+                    new Update()
+                            .set(FIELD, formulaNames(document.get(LEGACY_FIELD)))
+                            .unset(LEGACY_FIELD));
+        }
+
+        bulkOperations.execute();
+
+        LOGGER.info("Migrated favorites of {} users to formula names.", documents.size());
+
+        return documents.size();
+    }
+
+    //references may come back decoded as DBRef or as raw {$ref, $id} documents depending on the codec
+    private static List<String> formulaNames(Object legacyFavorites) {
+
+        if(!(legacyFavorites instanceof List))
+            return Collections.emptyList();
+
+        List<String> names = new ArrayList<>();
+
+        for(Object reference : (List<?>) legacyFavorites) {
+
+            Object id = null;
+
+            if(reference instanceof DBRef)
+                id = ((DBRef) reference).getId();
+            else if(reference instanceof Document)
+                id = ((Document) reference).get("$id");
+
+            if(id != null && !names.contains(id.toString()))
+                names.add(id.toString());
+        }
+
+        return names;
+    }
+}
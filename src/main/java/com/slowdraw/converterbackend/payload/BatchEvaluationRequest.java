@@ -0,0 +1,14 @@
+package com.slowdraw.converterbackend.payload;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotNull;
+import java.util.Map;
+
+@Data
+public class BatchEvaluationRequest {
+
+    //one array per formula input, row i of the batch is element i of every column
+    @NotNull
+    private Map<String, double[]> columns;
+}
@@ -0,0 +1,20 @@
+package com.slowdraw.converterbackend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkInsertResponse {
+
+    private int inserted;
+
+    private int failed;
+
+    //one result per item read, in request order
+    private List<BulkItemResult> results;
+}
@@ -0,0 +1,32 @@
+package com.slowdraw.converterbackend.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResult {
+
+    //position of the item in the request, starting at 0
+    private int index;
+
+    private boolean success;
+
+    //id of the stored entry; null when the item failed
+    private String id;
+
+    //why the item was not stored; null when it succeeded
+    private String error;
+
+    public static BulkItemResult stored(int index, String id) {
+        return new BulkItemResult(index, true, id, null);
+    }
+
+    public static BulkItemResult failed(int index, String error) {
+        return new BulkItemResult(index, false, null, error);
+    }
+}
@@ -0,0 +1,24 @@
+package com.slowdraw.converterbackend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConversionPathResult {
+
+    private String from;
+
+    private String to;
+
+    private Double value;
+
+    private Double result;
+
+    //formula names in the order they were applied; empty for a plain unit conversion
+    private List<String> path;
+}
@@ -0,0 +1,22 @@
+package com.slowdraw.converterbackend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConversionResult {
+
+    private String from;
+
+    private String to;
+
+    //family name such as "energy", or the base dimension (M*L^2*T^-2) when none is registered
+    private String dimension;
+
+    private Double value;
+
+    private Double result;
+}
@@ -0,0 +1,13 @@
+package com.slowdraw.converterbackend.payload;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotNull;
+import java.util.Map;
+
+@Data
+public class EvaluationRequest {
+
+    @NotNull
+    private Map<String, Double> inputs;
+}
@@ -0,0 +1,27 @@
+package com.slowdraw.converterbackend.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EvaluationResult {
+
+    private String formulaName;
+
+    private Map<String, Double> inputs;
+
+    private Double result;
+
+    //"double", "fast" when table-backed approximations were used, or "rational"
+    private String mode;
+
+    //rational mode only: the exact value as a decimal, rounded to 34 digits if it does not terminate
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String exactResult;
+}
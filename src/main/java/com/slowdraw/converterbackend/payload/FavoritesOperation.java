@@ -0,0 +1,23 @@
+package com.slowdraw.converterbackend.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FavoritesOperation {
+
+    //"add", "remove" or "move"
+    @NotBlank
+    private String op;
+
+    @NotBlank
+    private String formulaName;
+
+    //target index for add and move, clamped to the list; add appends when absent
+    private Integer position;
+}
@@ -0,0 +1,17 @@
+package com.slowdraw.converterbackend.payload;
+
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+public class FavoritesPatchRequest {
+
+    //applied in order to the current favorites and stored as a single update
+    @NotEmpty
+    @Size(max = 500)
+    private List<@Valid FavoritesOperation> operations;
+}
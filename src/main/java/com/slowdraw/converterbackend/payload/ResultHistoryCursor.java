@@ -0,0 +1,55 @@
+package com.slowdraw.converterbackend.payload;
+
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.exception.BadRequestException;
+
+import java.util.Date;
+
+//position in a user's history, newest first: the entryDate and id of the last entry already returned.
+//written as "<epoch millis>,<id>", with the millis left empty for entries that have no date
+public final class ResultHistoryCursor {
+
+    private static final String MALFORMED = "Malformed result history cursor %s.";
+
+    private final Date entryDate;
+    private final String id;
+
+    public ResultHistoryCursor(Date entryDate, String id) {
+        this.entryDate = entryDate;
+        this.id = id;
+    }
+
+    public static ResultHistoryCursor of(ResultHistory last) {
+        return new ResultHistoryCursor(last.getEntryDate(), last.getId());
+    }
+
+    public static ResultHistoryCursor parse(String value) {
+
+        int comma = value.indexOf(',');
+
+        if(comma < 0 || comma == value.length() - 1)
+            throw new BadRequestException(String.format(MALFORMED, value));
+
+        try {
+            Date entryDate = comma == 0 ? null : new Date(Long.parseLong(value.substring(0, comma)));
+
+            return new ResultHistoryCursor(entryDate, value.substring(comma + 1));
+        }
+        catch(NumberFormatException exceptMe) {
+            throw new BadRequestException(String.format(MALFORMED, value), exceptMe);
+        }
+    }
+
+    public Date getEntryDate() {
+        return entryDate;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return (entryDate == null ? "" : Long.toString(entryDate.getTime())) + "," + id;
+    }
+}
@@ -7,7 +7,7 @@ import javax.swing.text.html.Option;
 import java.util.List;
 import java.util.Optional;
 
-public interface ResultHistoryRepository extends MongoRepository<ResultHistory, String> {
+public interface ResultHistoryRepository extends MongoRepository<ResultHistory, String>, ResultHistoryRepositoryCustom {
 
     Optional<List<ResultHistory>> findByUsername(String username);
     Optional<List<ResultHistory>> removeByUsername(String username);
@@ -0,0 +1,24 @@
+package com.slowdraw.converterbackend.repository;
+
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.payload.ResultHistoryCursor;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ResultHistoryRepositoryCustom {
+
+    //newest first, starting right after the cursor (from the newest when it is null); at most limit entries
+    List<ResultHistory> findByUsernameAfter(String username, ResultHistoryCursor after, int limit);
+
+    //the whole history, newest first, read from a cursor batchSize documents at a time; callers must close it
+    CloseableIterator<ResultHistory> streamByUsername(String username, int batchSize);
+
+    //one unordered bulk insert; returns the error for each entry that was not stored, by position in entries,
+    //including entries that could not be mapped to a document
+    Map<Integer, String> insertUnordered(List<ResultHistory> entries);
+
+    //one unordered bulk upsert by id, so writing the same entries twice stores them once; entries must have ids
+    Map<Integer, String> upsertUnordered(List<ResultHistory> entries);
+}
@@ -0,0 +1,162 @@
+package com.slowdraw.converterbackend.repository;
+
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.payload.ResultHistoryCursor;
+import com.mongodb.BulkWriteError;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.MappingException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.data.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//picked up by Spring Data through the Impl suffix and mixed into ResultHistoryRepository
+public class ResultHistoryRepositoryCustomImpl implements ResultHistoryRepositoryCustom {
+
+    private static final String USERNAME = "username";
+    private static final String ENTRY_DATE = "entryDate";
+    private static final String ID = "_id";
+
+    private final MongoOperations mongoOperations;
+
+    //constructor injection
+    public ResultHistoryRepositoryCustomImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    //keyset pagination over the (username, entryDate desc, _id desc) index: every page is an index seek
+    //plus limit entries, however deep into the history it starts. _id breaks ties between equal dates
+    @Override
+    public List<ResultHistory> findByUsernameAfter(String username, ResultHistoryCursor after, int limit) {
+
+        Criteria criteria = Criteria.where(USERNAME).is(username);
+
+        if(after != null && after.getEntryDate() == null) {
+            //entries without a date sort last, so only older undated ones remain
+            criteria.and(ENTRY_DATE).is(null).and(ID).lt(after.getId());
+        }
+        else if(after != null) {
+            criteria.orOperator(
+                    Criteria.where(ENTRY_DATE).lt(after.getEntryDate()),
+                    Criteria.where(ENTRY_DATE).is(after.getEntryDate()).and(ID).lt(after.getId()),
+                    Criteria.where(ENTRY_DATE).is(null));
+        }
+
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, ENTRY_DATE, ID))
+                .limit(limit);
+
+        return mongoOperations.find(query, ResultHistory.class);
+    }
+
+    @Override
+    public CloseableIterator<ResultHistory> streamByUsername(String username, int batchSize) {
+
+        //same index and order as the pages, so an export matches what the user pages through
+        Query query = new Query(Criteria.where(USERNAME).is(username))
+                .with(Sort.by(Sort.Direction.DESC, ENTRY_DATE, ID))
+                .cursorBatchSize(batchSize);
+
+        return mongoOperations.stream(query, ResultHistory.class);
+    }
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<ResultHistory> entries) {
+
+        if(entries.isEmpty())
+            return Collections.emptyMap();
+
+        Map<Integer, String> failures = new HashMap<>();
+        List<Integer> positions = new ArrayList<>(entries.size());
+        List<Document> documents = map(entries, failures, positions);
+
+        if(documents.isEmpty())
+            return failures;
+
+        //unordered: the server keeps going past a failed document and reports every failure at the end
+        try {
+            mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, ResultHistory.class)
+                    .insert(documents)
+                    .execute();
+        }
+        catch(BulkOperationException exceptMe) {
+            failures(exceptMe).forEach((index, error) -> failures.put(positions.get(index), error));
+        }
+
+        return failures;
+    }
+
+    @Override
+    public Map<Integer, String> upsertUnordered(List<ResultHistory> entries) {
+
+        if(entries.isEmpty())
+            return Collections.emptyMap();
+
+        Map<Integer, String> failures = new HashMap<>();
+        List<Integer> positions = new ArrayList<>(entries.size());
+        List<Document> documents = map(entries, failures, positions);
+        List<Pair<Query, Update>> upserts = new ArrayList<>(documents.size());
+
+        //the mapped document sets every stored field; _id comes from the query on insert
+        for(int i = 0; i < documents.size(); i++)
+            upserts.add(Pair.of(new Query(Criteria.where(ID).is(entries.get(positions.get(i)).getId())),
+                    Update.fromDocument(documents.get(i), ID)));
+
+        if(upserts.isEmpty())
+            return failures;
+
+        try {
+            mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, ResultHistory.class)
+                    .upsert(upserts)
+                    .execute();
+        }
+        catch(BulkOperationException exceptMe) {
+            failures(exceptMe).forEach((index, error) -> failures.put(positions.get(index), error));
+        }
+
+        return failures;
+    }
+
+    //maps the entries one by one, so an entry the mapper rejects, e.g. one with a map key containing '.',
+    //fails alone instead of throwing the whole batch away. positions gets the index in entries of each document
+    private List<Document> map(List<ResultHistory> entries, Map<Integer, String> failures, List<Integer> positions) {
+
+        List<Document> documents = new ArrayList<>(entries.size());
+
+        for(int i = 0; i < entries.size(); i++) {
+
+            try {
+                Document document = new Document();
+                mongoOperations.getConverter().write(entries.get(i), document);
+                documents.add(document);
+                positions.add(i);
+            }
+            catch(MappingException exceptMe) {
+                failures.put(i, exceptMe.getMessage());
+            }
+        }
+
+        return documents;
+    }
+
+    private static Map<Integer, String> failures(BulkOperationException exceptMe) {
+
+        Map<Integer, String> failures = new HashMap<>();
+
+        for(BulkWriteError error : exceptMe.getErrors())
+            failures.put(error.getIndex(), error.getMessage());
+
+        return failures;
+    }
+}
@@ -3,7 +3,7 @@ package com.slowdraw.converterbackend.repository;
 import com.slowdraw.converterbackend.domain.SiteUser;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface SiteUserRepository extends MongoRepository<SiteUser, String> {
+public interface SiteUserRepository extends MongoRepository<SiteUser, String>, SiteUserRepositoryCustom {
 
     Boolean existsByEmail(String email);
 }
@@ -0,0 +1,27 @@
+package com.slowdraw.converterbackend.repository;
+
+import com.slowdraw.converterbackend.domain.SiteUser;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+//single round-trip updates of one field; each returns the username and favorites as they are after the update
+//(password, email and roles are not read back), empty for unknown usernames
+public interface SiteUserRepositoryCustom {
+
+    Optional<SiteUser> addFavorite(String username, String formulaName);
+
+    Optional<SiteUser> removeFavorite(String username, String formulaName);
+
+    Optional<SiteUser> replaceFavorites(String username, List<String> favorites);
+
+    //only writes while the stored favorites still equal expected; empty when they changed in between
+    Optional<SiteUser> compareAndSetFavorites(String username, List<String> expected, List<String> favorites);
+
+    //writes only the password, so it cannot overwrite a favorites update made meanwhile
+    Optional<SiteUser> updatePassword(String username, String password);
+
+    //streams every username with its email without loading whole documents; for building lookup structures
+    void forEachUsernameAndEmail(BiConsumer<String, String> consumer);
+}
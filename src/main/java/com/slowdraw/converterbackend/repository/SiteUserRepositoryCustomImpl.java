@@ -0,0 +1,97 @@
+package com.slowdraw.converterbackend.repository;
+
+import com.slowdraw.converterbackend.domain.SiteUser;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+//picked up by Spring Data through the Impl suffix and mixed into SiteUserRepository
+public class SiteUserRepositoryCustomImpl implements SiteUserRepositoryCustom {
+
+    private static final String FAVORITES = "favorites";
+    private static final String PASSWORD = "password";
+
+    private final MongoOperations mongoOperations;
+
+    //constructor injection
+    public SiteUserRepositoryCustomImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public Optional<SiteUser> addFavorite(String username, String formulaName) {
+
+        //$addToSet keeps the list free of duplicates without reading it first
+        return modify(username, new Update().addToSet(FAVORITES, formulaName));
+    }
+
+    @Override
+    public Optional<SiteUser> removeFavorite(String username, String formulaName) {
+
+        return modify(username, new Update().pull(FAVORITES, formulaName));
+    }
+
+    @Override
+    public Optional<SiteUser> replaceFavorites(String username, List<String> favorites) {
+
+        return modify(username, new Update().set(FAVORITES, favorites));
+    }
+
+    @Override
+    public Optional<SiteUser> compareAndSetFavorites(String username, List<String> expected,
+                                                     List<String> favorites) {
+
+        Criteria unchanged = Criteria.where(FAVORITES).is(expected);
+
+        //documents written before favorites existed read back as an empty list
+        if(expected.isEmpty())
+            unchanged = new Criteria().orOperator(unchanged, Criteria.where(FAVORITES).exists(false));
+
+        return modify(new Query(Criteria.where("_id").is(username)).addCriteria(unchanged),
+                new Update().set(FAVORITES, favorites));
+    }
+
+    @Override
+    public Optional<SiteUser> updatePassword(String username, String password) {
+
+        return modify(username, new Update().set(PASSWORD, password));
+    }
+
+    @Override
+    public void forEachUsernameAndEmail(BiConsumer<String, String> consumer) {
+
+        Query query = new Query();
+        query.fields().include("_id").include("email");
+
+        //a cursor rather than findAll, so the whole collection is never held in memory at once
+        try(CloseableIterator<SiteUser> users = mongoOperations.stream(query, SiteUser.class)) {
+            while(users.hasNext()) {
+                SiteUser user = users.next();
+                consumer.accept(user.getUsername(), user.getEmail());
+            }
+        }
+    }
+
+    private Optional<SiteUser> modify(String username, Update update) {
+        return modify(new Query(Criteria.where("_id").is(username)), update);
+    }
+
+    private Optional<SiteUser> modify(Query query, Update update) {
+
+        //only favorites come back: no password hash on the wire and no extra query per @DBRef role
+        query.fields().include(FAVORITES);
+
+        return Optional.ofNullable(mongoOperations.findAndModify(
+                query,
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                SiteUser.class));
+    }
+}
@@ -1,5 +1,6 @@
 package com.slowdraw.converterbackend.security;
 
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +23,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private JwtTokenProvider tokenProvider;
 
-    private SiteUserDetailsService siteUserDetailsService;
+    private PrincipalCache principalCache;
 
     //setter injection
     @Autowired
@@ -32,8 +33,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     //setter injection
     @Autowired
-    public void setSiteUserDetailsService(SiteUserDetailsService siteUserDetailsService) {
-        this.siteUserDetailsService = siteUserDetailsService;
+    public void setPrincipalCache(PrincipalCache principalCache) {
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -45,11 +46,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if(StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
+            //a single verification yields the claims; repeats of the same token skip the signature check
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.verifyToken(jwt) : null;
 
-                String username = tokenProvider.getUserIdFromJWT(jwt);
+            if(claims != null) {
 
-                UserDetails userDetails = siteUserDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = principalCache.getPrincipal(claims);
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(userDetails,
                                 null, userDetails.getAuthorities());
@@ -1,25 +1,74 @@
 package com.slowdraw.converterbackend.security;
 
+import com.slowdraw.converterbackend.cache.BoundedCache;
+import com.slowdraw.converterbackend.cache.CacheCounters;
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenProvider {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JwtTokenProvider.class);
 
+    //lets PrincipalCache build the principal from the token alone when app.jwtTrustRoleClaims is on
+    static final String ROLES_CLAIM = "roles";
+    static final String EMAIL_CLAIM = "email";
+
+    private static final int VERIFIED_TOKEN_STRIPES = 8;
+
     @Value("${app.jwtSecret}")
     private String jwtSecret;
 
     @Value("${app.jwtExpirationInMs}")
     private int jwtExpirationInMs;
 
+    //recently verified tokens by SHA-256 digest; 0 verifies every request from scratch
+    @Value("${app.jwtVerifiedCacheSize:4096}")
+    private int verifiedCacheSize;
+
+    @Value("${app.jwtVerifiedCacheTtlMs:300000}")
+    private long verifiedCacheTtlMs;
+
+    private final CacheCounters verifiedCacheCounters = new CacheCounters("security.tokens");
+
+    //derived once from the secret; the string overloads of jjwt decode it again for every token
+    private Key signingKey;
+
+    private BoundedCache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+
+        //same bytes jjwt derives from a string secret, so tokens issued before keep verifying
+        signingKey = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret),
+                SignatureAlgorithm.HS512.getJcaName());
+
+        if(verifiedCacheSize > 0)
+            verifiedTokens = new BoundedCache<>(verifiedCacheSize, VERIFIED_TOKEN_STRIPES,
+                    verifiedCacheCounters, Duration.ofMillis(verifiedCacheTtlMs), System::nanoTime);
+    }
+
+    public CacheCounters getVerifiedCacheCounters() {
+        return verifiedCacheCounters;
+    }
+
     public String generateToken(Authentication authentication) {
 
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
@@ -29,26 +78,66 @@ public class JwtTokenProvider {
 
         return Jwts.builder()
                 .setSubject(userPrincipal.getUsername())
-                .setIssuedAt(new Date())
+                .claim(ROLES_CLAIM, userPrincipal.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .collect(Collectors.toList()))
+                .claim(EMAIL_CLAIM, userPrincipal.getEmail())
+                .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .signWith(SignatureAlgorithm.HS512, signingKey)
                 .compact();
     }
 
     public String getUserIdFromJWT(String token) {
 
-        Claims claims = Jwts.parser()
-                .setSigningKey(jwtSecret)
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = verifyToken(token);
 
-        return claims.getSubject();
+        return claims == null ? null : claims.getSubject();
     }
 
     public boolean validateToken(String authToken) {
+        return verifyToken(authToken) != null;
+    }
+
+    //one signature check per distinct token: the claims of a verified token are reused until it expires.
+    //returns null for anything that does not verify
+    public Claims verifyToken(String authToken) {
+
+        if(authToken == null || authToken.isEmpty()) {
+            LOGGER.error("JWT claims string is empty.");
+            return null;
+        }
+
+        if(verifiedTokens == null)
+            return parseAndVerify(authToken);
+
+        String digest = digest(authToken);
+        Claims cached = verifiedTokens.get(digest);
+
+        if(cached != null) {
+
+            if(!isExpired(cached))
+                return cached;
+
+            verifiedTokens.invalidate(digest);
+            LOGGER.error("Expired JWT token");
+            return null;
+        }
+
+        Claims claims = parseAndVerify(authToken);
+
+        if(claims != null)
+            verifiedTokens.put(digest, claims);
+
+        return claims;
+    }
+
+    private Claims parseAndVerify(String authToken) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-            return true;
+            return Jwts.parser()
+                    .setSigningKey(signingKey)
+                    .parseClaimsJws(authToken)
+                    .getBody();
         } catch (SignatureException ex) {
             LOGGER.error("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
@@ -60,6 +149,24 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException ex) {
             LOGGER.error("JWT claims string is empty.");
         }
-        return false;
+        return null;
+    }
+
+    private static boolean isExpired(Claims claims) {
+
+        Date expiration = claims.getExpiration();
+
+        return expiration != null && expiration.getTime() <= System.currentTimeMillis();
+    }
+
+    //the cache holds digests rather than the bearer tokens themselves
+    private static String digest(String token) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException ex) {
+            //every Java platform is required to provide SHA-256
+            throw new IllegalStateException(ex);
+        }
     }
 }
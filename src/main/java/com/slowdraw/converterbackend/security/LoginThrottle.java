@@ -0,0 +1,84 @@
+package com.slowdraw.converterbackend.security;
+
+import com.slowdraw.converterbackend.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+//caps login attempts per username and per remote address before any user lookup or BCrypt check runs,
+//so credential stuffing is turned away for the price of a map lookup and a CAS
+@Component
+public class LoginThrottle implements MeterBinder {
+
+    private static final String THROTTLED = "Too many login attempts; try again later.";
+
+    //null when the matching limit is 0, which turns that check off
+    private final SlidingWindowCounters usernameAttempts;
+    private final SlidingWindowCounters addressAttempts;
+
+    private final LongAdder rejected = new LongAdder();
+
+    //constructor injection
+    public LoginThrottle(@Value("${app.loginThrottle.windowMs:60000}") long windowMs,
+                         @Value("${app.loginThrottle.maxPerUsername:10}") int maxPerUsername,
+                         @Value("${app.loginThrottle.maxPerAddress:50}") int maxPerAddress,
+                         @Value("${app.loginThrottle.maxKeys:100000}") int maxKeys) {
+
+        Duration window = Duration.ofMillis(windowMs);
+
+        this.usernameAttempts = maxPerUsername > 0
+                ? new SlidingWindowCounters(maxPerUsername, window, maxKeys) : null;
+        this.addressAttempts = maxPerAddress > 0
+                ? new SlidingWindowCounters(maxPerAddress, window, maxKeys) : null;
+    }
+
+    //the address is checked first so one source spraying many usernames does not use up their budgets
+    public void checkLoginAttempt(String username, String remoteAddress) {
+
+        if((addressAttempts != null && remoteAddress != null && !addressAttempts.tryAcquire(remoteAddress))
+                || (usernameAttempts != null && username != null && !usernameAttempts.tryAcquire(username))) {
+            rejected.increment();
+            throw new TooManyRequestsException(THROTTLED);
+        }
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    //a subset of getRejected; anything above zero means maxKeys is too small or someone is spraying keys
+    public long getOverflowRejections() {
+        return (usernameAttempts == null ? 0L : usernameAttempts.getOverflowRejections())
+                + (addressAttempts == null ? 0L : addressAttempts.getOverflowRejections());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        FunctionCounter.builder("login.throttle.rejected", rejected, LongAdder::sum)
+                .description("Login attempts turned away by the per-username or per-address limit")
+                .register(registry);
+
+        FunctionCounter.builder("login.throttle.overflow", this, LoginThrottle::getOverflowRejections)
+                .description("Login attempts turned away because no more usernames or addresses could be tracked")
+                .register(registry);
+
+        if(usernameAttempts != null)
+            Gauge.builder("login.throttle.keys", usernameAttempts, SlidingWindowCounters::size)
+                    .tag("key", "username")
+                    .description("Usernames with recent login attempts being tracked")
+                    .register(registry);
+
+        if(addressAttempts != null)
+            Gauge.builder("login.throttle.keys", addressAttempts, SlidingWindowCounters::size)
+                    .tag("key", "address")
+                    .description("Remote addresses with recent login attempts being tracked")
+                    .register(registry);
+    }
+}
@@ -0,0 +1,107 @@
+package com.slowdraw.converterbackend.security;
+
+import com.slowdraw.converterbackend.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+//BCrypt work (login checks, registration hashes) runs here instead of on request threads, so a login
+//burst can use at most this pool's threads and queue; past that requests are turned away at once
+@Component
+public class PasswordHashingExecutor implements MeterBinder {
+
+    private static final String SATURATED =
+            "Too many logins and registrations in progress; try again shortly.";
+
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    //constructor injection
+    public PasswordHashingExecutor(@Value("${app.passwordHashing.threads:0}") int threads,
+                                   @Value("${app.passwordHashing.queueCapacity:64}") int queueCapacity) {
+
+        //0 leaves half the cores for everything else
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+
+                long start = System.nanoTime();
+
+                try {
+                    return work.get();
+                }
+                finally {
+                    totalNanos.add(System.nanoTime() - start);
+                    completed.increment();
+                }
+            }, executor);
+        }
+        catch(RejectedExecutionException exceptMe) {
+            rejected.increment();
+            throw new ServiceUnavailableException(SATURATED);
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    //picked up by actuator like any MeterBinder bean
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        Gauge.builder("password.hashing.queue", executor, pool -> pool.getQueue().size())
+                .description("Password hashing requests waiting for a thread")
+                .register(registry);
+
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing requests being worked on")
+                .register(registry);
+
+        FunctionTimer.builder("password.hashing", this,
+                timer -> completed.sum(), timer -> totalNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time spent hashing or checking a password, lookup included")
+                .register(registry);
+
+        FunctionCounter.builder("password.hashing.rejected", rejected, LongAdder::sum)
+                .description("Logins and registrations turned away because the queue was full")
+                .register(registry);
+    }
+}
@@ -0,0 +1,92 @@
+package com.slowdraw.converterbackend.security;
+
+import com.slowdraw.converterbackend.cache.BoundedCache;
+import com.slowdraw.converterbackend.cache.CacheCounters;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Objects;
+
+//principals for authenticated requests, so a valid token does not cost a users lookup on every call.
+//keyed by username and token issue time; entries live briefly and are evicted when credentials change
+@Component
+public class PrincipalCache {
+
+    private static final int STRIPES = 16;
+
+    private final SiteUserDetailsService siteUserDetailsService;
+
+    //skip the lookup entirely for tokens that carry their roles; role changes then apply at next login
+    private final boolean trustRoleClaims;
+
+    private final CacheCounters counters = new CacheCounters("security.principals");
+
+    private final BoundedCache<PrincipalKey, UserPrincipal> principals;
+
+    //constructor injection
+    public PrincipalCache(@Lazy SiteUserDetailsService siteUserDetailsService,
+                          @Value("${app.principalCacheSize:10000}") int maximumSize,
+                          @Value("${app.principalCacheTtlMs:30000}") long ttlMs,
+                          @Value("${app.jwtTrustRoleClaims:false}") boolean trustRoleClaims) {
+        this.siteUserDetailsService = siteUserDetailsService;
+        this.trustRoleClaims = trustRoleClaims;
+        this.principals = new BoundedCache<>(Math.max(1, maximumSize), STRIPES, counters,
+                Duration.ofMillis(ttlMs), System::nanoTime);
+    }
+
+    public CacheCounters getCounters() {
+        return counters;
+    }
+
+    public UserPrincipal getPrincipal(Claims claims) {
+
+        if(trustRoleClaims) {
+
+            UserPrincipal fromClaims = UserPrincipal.createUserPrincipal(claims);
+
+            //tokens issued before role claims existed still go through the lookup
+            if(fromClaims != null)
+                return fromClaims;
+        }
+
+        String username = claims.getSubject();
+        Date issuedAt = claims.getIssuedAt();
+
+        return principals.computeIfAbsent(
+                new PrincipalKey(username, issuedAt == null ? 0L : issuedAt.getTime()),
+                key -> (UserPrincipal) siteUserDetailsService.loadUserByUsername(username));
+    }
+
+    //every token of the user, whatever its issue time
+    public void evict(String username) {
+        principals.invalidateAll(key -> key.username.equals(username));
+    }
+
+    private static final class PrincipalKey {
+
+        private final String username;
+        private final long issuedAt;
+
+        private PrincipalKey(String username, long issuedAt) {
+            this.username = username;
+            this.issuedAt = issuedAt;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PrincipalKey that = (PrincipalKey) o;
+            return issuedAt == that.issuedAt && username.equals(that.username);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, issuedAt);
+        }
+    }
+}
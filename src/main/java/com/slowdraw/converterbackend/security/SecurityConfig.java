@@ -1,5 +1,6 @@
 package com.slowdraw.converterbackend.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -26,11 +27,16 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
 
+    //BCrypt log rounds; each step doubles the cost of every login and registration
+    private int bcryptStrength;
+
     //constructor injection
     public SecurityConfig(@Lazy SiteUserDetailsService siteUserDetailsService,
-                          JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint) {
+                          JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint,
+                          @Value("${app.bcryptStrength:10}") int bcryptStrength) {
         this.siteUserDetailsService = siteUserDetailsService;
         this.jwtAuthenticationEntryPoint = jwtAuthenticationEntryPoint;
+        this.bcryptStrength = bcryptStrength;
     }
 
     @Bean
@@ -40,7 +46,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean(BeanIds.AUTHENTICATION_MANAGER)
@@ -82,6 +88,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .permitAll()
                 .antMatchers("/formulas/**")
                 .permitAll()
+                .antMatchers("/convert/**")
+                .permitAll()
                 .anyRequest().authenticated();
 
         httpSecurity.addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
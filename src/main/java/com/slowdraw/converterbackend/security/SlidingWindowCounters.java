@@ -0,0 +1,182 @@
+package com.slowdraw.converterbackend.security;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+//approximate sliding-window rate limit per key: the previous window's count, weighted by how much of it
+//still overlaps the sliding window, plus the current window's count. each key is one AtomicLong updated
+//by CAS, so checks never block. keys are spread over shards that are swept of idle keys at most once per
+//window, which bounds memory without scanning on every request. a shard that is still full after its sweep
+//turns new keys away until the next window: letting them through untracked would let anyone who sprays enough
+//distinct keys switch the limit off
+public final class SlidingWindowCounters {
+
+    //counts saturate here so both fit in the low 32 bits of the packed state
+    private static final int MAX_COUNT = 0xFFFF;
+
+    private static final int DEFAULT_SHARDS = 16;
+
+    private final Shard[] shards;
+    private final int limit;
+    private final long windowMillis;
+    private final LongSupplier clockMillis;
+    private final long origin;
+
+    private final LongAdder overflowRejections = new LongAdder();
+
+    public SlidingWindowCounters(int limit, Duration window, int maximumKeys) {
+        this(limit, window, maximumKeys, DEFAULT_SHARDS, System::currentTimeMillis);
+    }
+
+    public SlidingWindowCounters(int limit, Duration window, int maximumKeys, int shardCount,
+                                 LongSupplier clockMillis) {
+
+        if(limit < 1 || limit > MAX_COUNT)
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_COUNT + ".");
+
+        if(window.toMillis() < 1 || maximumKeys < 1 || shardCount < 1)
+            throw new IllegalArgumentException("Window, key count and shard count must be positive.");
+
+        int count = Math.min(shardCount, maximumKeys);
+        int shardSize = (maximumKeys + count - 1) / count;
+
+        this.limit = limit;
+        this.windowMillis = window.toMillis();
+        this.clockMillis = clockMillis;
+        this.origin = clockMillis.getAsLong();
+        this.shards = new Shard[count];
+
+        for(int i = 0; i < count; i++)
+            shards[i] = new Shard(shardSize);
+    }
+
+    //counts the attempt and returns true while the key is under its limit; attempts over the limit
+    //are not counted, so a key recovers as soon as its earlier attempts slide out of the window.
+    //true is only ever returned for a counted attempt
+    public boolean tryAcquire(String key) {
+
+        long elapsed = Math.max(0L, clockMillis.getAsLong() - origin);
+        long window = elapsed / windowMillis;
+        double previousWeight = 1.0 - (double) (elapsed % windowMillis) / windowMillis;
+
+        AtomicLong state = shardFor(key).stateFor(key, window);
+
+        //too many distinct keys in this shard even after sweeping: fail closed rather than grow without bound
+        if(state == null) {
+            overflowRejections.increment();
+            return false;
+        }
+
+        while(true) {
+
+            long current = state.get();
+            long currentWindow = current >>> 32;
+            int previousCount;
+            int currentCount;
+
+            if(currentWindow >= window) {
+                //another thread already moved this key to the window (or read a slightly later clock)
+                window = currentWindow;
+                previousCount = previousCount(current);
+                currentCount = currentCount(current);
+            }
+            else if(currentWindow == window - 1) {
+                previousCount = currentCount(current);
+                currentCount = 0;
+            }
+            else {
+                previousCount = 0;
+                currentCount = 0;
+            }
+
+            if(previousCount * previousWeight + currentCount + 1 > limit)
+                return false;
+
+            long next = pack(window, previousCount, Math.min(currentCount + 1, MAX_COUNT));
+
+            if(state.compareAndSet(current, next))
+                return true;
+        }
+    }
+
+    //attempts turned away only because their key could not be tracked
+    public long getOverflowRejections() {
+        return overflowRejections.sum();
+    }
+
+    public int size() {
+
+        int size = 0;
+
+        for(Shard shard : shards)
+            size += shard.states.size();
+
+        return size;
+    }
+
+    private Shard shardFor(String key) {
+
+        int hash = key.hashCode();
+
+        hash ^= hash >>> 16;
+
+        return shards[(hash & 0x7fffffff) % shards.length];
+    }
+
+    private static long pack(long window, int previousCount, int currentCount) {
+        return window << 32 | (long) previousCount << 16 | currentCount;
+    }
+
+    private static int previousCount(long state) {
+        return (int) (state >>> 16) & MAX_COUNT;
+    }
+
+    private static int currentCount(long state) {
+        return (int) state & MAX_COUNT;
+    }
+
+    private static final class Shard {
+
+        private final ConcurrentHashMap<String, AtomicLong> states = new ConcurrentHashMap<>();
+        private final int maximumSize;
+
+        //window in which this shard was last swept
+        private final AtomicLong sweptWindow = new AtomicLong(-1L);
+
+        private Shard(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        private AtomicLong stateFor(String key, long window) {
+
+            AtomicLong state = states.get(key);
+
+            if(state != null)
+                return state;
+
+            if(states.size() >= maximumSize) {
+                sweep(window);
+
+                if(states.size() >= maximumSize)
+                    return null;
+            }
+
+            return states.computeIfAbsent(key, k -> new AtomicLong(pack(window, 0, 0)));
+        }
+
+        //keys untouched for more than a full window count as zero either way, so dropping them loses nothing.
+        //only one thread per window gets to sweep
+        private void sweep(long window) {
+
+            long swept = sweptWindow.get();
+
+            if(swept >= window || !sweptWindow.compareAndSet(swept, window))
+                return;
+
+            states.values().removeIf(state -> (state.get() >>> 32) < window - 1);
+        }
+    }
+}
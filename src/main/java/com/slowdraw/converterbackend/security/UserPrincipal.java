@@ -2,6 +2,7 @@ package com.slowdraw.converterbackend.security;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.slowdraw.converterbackend.domain.SiteUser;
+import io.jsonwebtoken.Claims;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -45,6 +46,26 @@ public class UserPrincipal implements UserDetails {
         );
     }
 
+    //built from a token's own claims; null when the token predates role claims
+    public static UserPrincipal createUserPrincipal(Claims claims) {
+
+        Object roles = claims.get(JwtTokenProvider.ROLES_CLAIM);
+
+        if(!(roles instanceof List))
+            return null;
+
+        List<GrantedAuthority> authorities = ((List<?>) roles).stream()
+                .map(role -> new SimpleGrantedAuthority(String.valueOf(role)))
+                .collect(Collectors.toList());
+
+        return new UserPrincipal(
+                claims.getSubject(),
+                claims.get(JwtTokenProvider.EMAIL_CLAIM, String.class),
+                null,
+                authorities
+        );
+    }
+
     public String getEmail() {
         return email;
     }
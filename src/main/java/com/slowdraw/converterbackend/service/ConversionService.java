@@ -0,0 +1,116 @@
+package com.slowdraw.converterbackend.service;
+
+import com.slowdraw.converterbackend.cache.BoundedCache;
+import com.slowdraw.converterbackend.cache.CacheCounters;
+import com.slowdraw.converterbackend.catalog.FormulaCatalog;
+import com.slowdraw.converterbackend.conversion.ConversionGraph;
+import com.slowdraw.converterbackend.conversion.StandardUnits;
+import com.slowdraw.converterbackend.conversion.Unit;
+import com.slowdraw.converterbackend.conversion.UnitParser;
+import com.slowdraw.converterbackend.conversion.UnitRegistry;
+import com.slowdraw.converterbackend.exception.ConversionException;
+import com.slowdraw.converterbackend.payload.ConversionPathResult;
+import com.slowdraw.converterbackend.payload.ConversionResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ConversionService {
+
+    private static final String NOT_FINITE = "Value to convert must be a finite number.";
+    private static final String NO_PATH = "No conversion path from %s [%s] to %s [%s].";
+    private static final String PATH_NOT_FINITE = "Conversion from %s to %s is undefined for %s.";
+
+    private final FormulaService formulaService;
+
+    private final UnitRegistry unitRegistry;
+
+    //unit strings as sent by clients, so repeat requests skip parsing; bounded since the keys are user input
+    private final BoundedCache<String, Unit> unitCache;
+
+    //routes for the catalog snapshot it was built from; rebuilt once per catalog swap
+    private volatile ConversionGraph conversionGraph;
+
+    //constructor injection
+    public ConversionService(FormulaService formulaService,
+                             @Value("${app.conversion.unitCacheSize:4096}") int unitCacheSize) {
+        this.formulaService = formulaService;
+        this.unitRegistry = StandardUnits.registry();
+        this.unitCache = new BoundedCache<>("conversion.units", unitCacheSize);
+    }
+
+    public CacheCounters getUnitCacheCounters() {
+        return unitCache.getCounters();
+    }
+
+    public UnitRegistry getUnitRegistry() {
+        return unitRegistry;
+    }
+
+    public Unit resolveUnit(String text) {
+
+        if(text == null)
+            throw new ConversionException("Unit must not be empty.");
+
+        return unitCache.computeIfAbsent(text, key -> UnitParser.parse(key, unitRegistry));
+    }
+
+    public ConversionResult convert(String from, String to, double value) {
+
+        if(!Double.isFinite(value))
+            throw new ConversionException(NOT_FINITE);
+
+        Unit fromUnit = resolveUnit(from);
+        Unit toUnit = resolveUnit(to);
+
+        double result = unitRegistry.convert(value, fromUnit, toUnit);
+
+        String family = unitRegistry.getFamilyName(fromUnit.getDimension());
+
+        return new ConversionResult(fromUnit.getSymbol(), toUnit.getSymbol(),
+                family != null ? family : fromUnit.getDimension().toString(),
+                value, result);
+    }
+
+    public ConversionPathResult convertAlongPath(String from, String to, double value) {
+
+        if(!Double.isFinite(value))
+            throw new ConversionException(NOT_FINITE);
+
+        Unit fromUnit = resolveUnit(from);
+        Unit toUnit = resolveUnit(to);
+
+        ConversionGraph.Route route = getConversionGraph()
+                .findRoute(fromUnit.getDimension(), toUnit.getDimension())
+                .orElseThrow(() -> new ConversionException(String.format(NO_PATH,
+                        fromUnit, fromUnit.getDimension(), toUnit, toUnit.getDimension())));
+
+        double result = route.getFormulaNames().isEmpty()
+                ? unitRegistry.convert(value, fromUnit, toUnit)
+                : (route.apply(value * fromUnit.getFactor() + fromUnit.getOffset()) - toUnit.getOffset())
+                        / toUnit.getFactor();
+
+        if(!Double.isFinite(result))
+            throw new ConversionException(String.format(PATH_NOT_FINITE, fromUnit, toUnit, value));
+
+        return new ConversionPathResult(fromUnit.getSymbol(), toUnit.getSymbol(),
+                value, result, route.getFormulaNames());
+    }
+
+    public ConversionGraph getConversionGraph() {
+
+        FormulaCatalog current = formulaService.getCatalog();
+        ConversionGraph graph = conversionGraph;
+
+        if(graph != null && graph.getCatalog() == current)
+            return graph;
+
+        synchronized(this) {
+
+            if(conversionGraph == null || conversionGraph.getCatalog() != current)
+                conversionGraph = ConversionGraph.build(unitRegistry, current);
+
+            return conversionGraph;
+        }
+    }
+}
@@ -1,15 +1,33 @@
 package com.slowdraw.converterbackend.service;
 
+import com.slowdraw.converterbackend.cache.BoundedCache;
+import com.slowdraw.converterbackend.cache.CacheCounters;
+import com.slowdraw.converterbackend.catalog.FormulaCatalog;
 import com.slowdraw.converterbackend.domain.Formula;
+import com.slowdraw.converterbackend.evaluation.CompiledFormula;
+import com.slowdraw.converterbackend.evaluation.EvaluationMode;
+import com.slowdraw.converterbackend.evaluation.InputKey;
+import com.slowdraw.converterbackend.evaluation.Rational;
+import com.slowdraw.converterbackend.exception.BadRequestException;
+import com.slowdraw.converterbackend.exception.EvaluationException;
 import com.slowdraw.converterbackend.exception.FormulaException;
 import com.slowdraw.converterbackend.repository.FormulasRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Service
 public class FormulaService {
@@ -17,9 +35,30 @@ public class FormulaService {
     private static final Logger LOGGER = LoggerFactory.getLogger(FormulaService.class);
 
     private static final String FORMULA_NOT_FOUND = "Formula for %s not found.";
+    private static final String INVALID_PAGE =
+            "Page must be zero or greater and size between 1 and %d.";
+
+    private static final String NOT_FINITE = "Formula %s is undefined for the given inputs.";
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int RESULT_CACHE_STRIPES = 4;
 
     private final FormulasRepository formulasRepository;
 
+    //resident snapshot of the formulas collection, replaced atomically on reload
+    private volatile FormulaCatalog catalog;
+
+    //per-formula bound on memoized results; 0 turns memoization off
+    @Value("${app.evaluation.resultCacheSize:1024}")
+    private int resultCacheSize;
+
+    //one counter set across all formulas so the metric stays a single series
+    private final CacheCounters resultCacheCounters = new CacheCounters("formula.results");
+
+    //memoized results keyed by the compiled formula they came from; dropped with the catalog snapshot
+    private volatile ConcurrentMap<CompiledFormula, BoundedCache<InputKey, Double>> resultCaches =
+            new ConcurrentHashMap<>();
+
     //constructor injection
     public FormulaService(@Lazy FormulasRepository formulasRepository) {
         this.formulasRepository = formulasRepository;
@@ -27,22 +66,139 @@ public class FormulaService {
 
     public Set<Formula> getAllFormulas() {
 
-        return formulasRepository.findAll().stream().collect(Collectors.toSet());
+        return getCatalog().getFormulas();
     }
 
     public Formula getSingleFormulaInfo(String name) {
 
-        //sanity check: formula exists
-        if(!formulasRepository.findById(name).isPresent())
+        return getCatalog().find(name)
+                .orElseThrow(() ->
+                        new FormulaException(String.format(
+                                FORMULA_NOT_FOUND,
+                                name)));
+    }
+
+    public Page<Formula> searchFormulas(String category, String query, int page, int size) {
+
+        //sanity check: sensible page request
+        if(page < 0 || size < 1 || size > MAX_PAGE_SIZE)
+            throw new BadRequestException(String.format(INVALID_PAGE, MAX_PAGE_SIZE));
+
+        List<Formula> matches = getCatalog().search(category, query);
 
+        int fromIndex = (int) Math.min((long) page * size, matches.size());
+        int toIndex = Math.min(fromIndex + size, matches.size());
+
+        return new PageImpl<>(matches.subList(fromIndex, toIndex),
+                PageRequest.of(page, size),
+                matches.size());
+    }
+
+    public CompiledFormula getCompiledFormula(String name) {
+
+        FormulaCatalog current = getCatalog();
+
+        //sanity check: formula exists
+        if(!current.contains(name))
             throw new FormulaException(String.format(
                     FORMULA_NOT_FOUND,
                     name));
 
-        return formulasRepository.findById(name)
+        return current.findCompiledFormula(name)
                 .orElseThrow(() ->
-                        new FormulaException(String.format(
-                                FORMULA_NOT_FOUND,
-                                name)));
+                        new EvaluationException(current.getCompileError(name)));
+    }
+
+    public double evaluateFormula(String name, Map<String, Double> inputs) {
+        return evaluateFormula(name, inputs, EvaluationMode.DOUBLE);
+    }
+
+    public double evaluateFormula(String name, Map<String, Double> inputs, EvaluationMode mode) {
+
+        //each mode is its own compiled formula, so FAST results never mix with exact ones in the cache
+        CompiledFormula compiledFormula = getCompiledFormula(name).withMode(mode);
+        double[] arguments = compiledFormula.toInputArray(inputs);
+
+        if(resultCacheSize <= 0)
+            return checkFinite(name, compiledFormula.evaluate(arguments));
+
+        BoundedCache<InputKey, Double> resultCache = resultCaches.computeIfAbsent(compiledFormula, key ->
+                new BoundedCache<>(resultCacheSize, RESULT_CACHE_STRIPES, resultCacheCounters));
+
+        //non-finite results are cached too; the check below rejects them either way
+        Double result = resultCache.computeIfAbsent(InputKey.of(arguments), key ->
+                compiledFormula.evaluate(arguments));
+
+        return checkFinite(name, result);
+    }
+
+    public Rational evaluateFormulaExactly(String name, Map<String, Double> inputs) {
+
+        CompiledFormula compiledFormula = getCompiledFormula(name);
+
+        return compiledFormula.evaluateExactly(compiledFormula.toInputArray(inputs));
+    }
+
+    //an explicit ?mode= wins; otherwise the mode the formula declares in the catalog
+    public EvaluationMode resolveEvaluationMode(String name, String requestedMode) {
+
+        if(requestedMode != null)
+            return EvaluationMode.forName(requestedMode);
+
+        return EvaluationMode.forName(getSingleFormulaInfo(name).getEvaluationMode());
+    }
+
+    public CacheCounters getResultCacheCounters() {
+        return resultCacheCounters;
+    }
+
+    public FormulaCatalog getCatalog() {
+
+        FormulaCatalog current = catalog;
+
+        //first request beat the scheduled load: load synchronously once
+        if(current == null) {
+            synchronized (this) {
+                if(catalog == null)
+                    catalog = FormulaCatalog.of(formulasRepository.findAll());
+                current = catalog;
+            }
+        }
+
+        return current;
+    }
+
+    private static double checkFinite(String name, double result) {
+
+        //JSON has no NaN or Infinity, and they are never a meaningful conversion result
+        if(Double.isNaN(result) || Double.isInfinite(result))
+            throw new EvaluationException(String.format(NOT_FINITE, name));
+
+        return result;
+    }
+
+    //poll the collection and swap in a new snapshot only when its contents changed
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.formulaCatalogRefreshMs:30000}")
+    public void refreshCatalog() {
+
+        List<Formula> formulas;
+
+        try {
+            formulas = formulasRepository.findAll();
+        }
+        catch(DataAccessException exceptMe) {
+            LOGGER.warn("Could not reload formula catalog, keeping current snapshot.", exceptMe);
+            return;
+        }
+
+        FormulaCatalog current = catalog;
+
+        if(current != null && current.matches(formulas))
+            return;
+
+        catalog = FormulaCatalog.of(formulas);
+        resultCaches = new ConcurrentHashMap<>();
+
+        LOGGER.info("Formula catalog loaded with {} formulas.", formulas.size());
     }
 }
@@ -0,0 +1,136 @@
+package com.slowdraw.converterbackend.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.exception.BadRequestException;
+import com.slowdraw.converterbackend.payload.BulkInsertResponse;
+import com.slowdraw.converterbackend.payload.BulkItemResult;
+import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+//reads a JSON array or an NDJSON stream of entries item by item and stores them chunk by chunk with unordered
+//bulk inserts, so a sync of thousands of offline results is a handful of round trips and never held whole
+@Component
+public class ResultHistoryBulkImporter {
+
+    private static final String TOO_MANY_ITEMS = "Bulk requests are limited to %d items; the rest was not read.";
+    private static final String MALFORMED_BODY = "Malformed JSON: %s";
+    private static final String MALFORMED_ITEM = "Malformed JSON; this and any later items were not read: %s";
+
+    private final ResultHistoryRepository resultHistoryRepository;
+    private final ObjectReader entryReader;
+
+    //entries per bulk insert
+    @Value("${app.resultHistory.bulkChunkSize:500}")
+    private int chunkSize;
+
+    @Value("${app.resultHistory.bulkMaxItems:10000}")
+    private int maxItems;
+
+    //constructor injection
+    public ResultHistoryBulkImporter(ResultHistoryRepository resultHistoryRepository, ObjectMapper objectMapper) {
+        this.resultHistoryRepository = resultHistoryRepository;
+        this.entryReader = objectMapper.readerFor(ResultHistory.class);
+    }
+
+    public BulkInsertResponse importFrom(InputStream inputStream) throws IOException {
+
+        int batch = Math.max(1, chunkSize);
+        List<BulkItemResult> results = new ArrayList<>();
+        List<ResultHistory> chunk = new ArrayList<>(batch);
+        List<Integer> chunkPositions = new ArrayList<>(batch);
+        int index = 0;
+
+        //readValues unwraps a top-level array and otherwise reads whitespace-separated values, i.e. NDJSON
+        try(MappingIterator<ResultHistory> items = entryReader.readValues(inputStream)) {
+
+            while(true) {
+
+                ResultHistory entry;
+
+                try {
+                    if(!items.hasNextValue())
+                        break;
+
+                    if(index >= maxItems) {
+                        results.add(BulkItemResult.failed(index, String.format(TOO_MANY_ITEMS, maxItems)));
+                        break;
+                    }
+
+                    entry = items.nextValue();
+                }
+                catch(JsonParseException exceptMe) {
+                    //broken syntax leaves no reliable place to resume from
+                    results.add(BulkItemResult.failed(index,
+                            String.format(MALFORMED_ITEM, exceptMe.getOriginalMessage())));
+                    break;
+                }
+                catch(JsonMappingException exceptMe) {
+                    //well-formed but not an entry; the iterator skips past it
+                    results.add(BulkItemResult.failed(index++, exceptMe.getOriginalMessage()));
+                    continue;
+                }
+
+                chunk.add(entry);
+                chunkPositions.add(index++);
+
+                if(chunk.size() == batch) {
+                    insert(chunk, chunkPositions, results);
+                    chunk.clear();
+                    chunkPositions.clear();
+                }
+            }
+        }
+        catch(JsonParseException exceptMe) {
+            //the body did not even start like JSON, so nothing was read or stored
+            throw new BadRequestException(String.format(MALFORMED_BODY, exceptMe.getOriginalMessage()), exceptMe);
+        }
+
+        insert(chunk, chunkPositions, results);
+
+        //items that failed to parse were recorded ahead of the rest of their chunk
+        results.sort(Comparator.comparingInt(BulkItemResult::getIndex));
+
+        int inserted = (int) results.stream().filter(BulkItemResult::isSuccess).count();
+
+        return new BulkInsertResponse(inserted, results.size() - inserted, results);
+    }
+
+    private void insert(List<ResultHistory> chunk, List<Integer> positions, List<BulkItemResult> results) {
+
+        if(chunk.isEmpty())
+            return;
+
+        //ids are assigned up front so each stored item can be reported with its id;
+        //a client-supplied id makes a retried sync fail per item as a duplicate instead of storing twice
+        for(ResultHistory entry : chunk)
+            if(entry.getId() == null)
+                entry.setId(new ObjectId().toHexString());
+
+        //an item the mapper rejects, e.g. for a '.' in a calculationAttributes key, comes back as a failure
+        //like a duplicate does, so it cannot abort the request after earlier chunks were stored
+        Map<Integer, String> failures = resultHistoryRepository.insertUnordered(chunk);
+
+        for(int i = 0; i < chunk.size(); i++) {
+
+            String error = failures.get(i);
+
+            results.add(error == null
+                    ? BulkItemResult.stored(positions.get(i), chunk.get(i).getId())
+                    : BulkItemResult.failed(positions.get(i), error));
+        }
+    }
+}
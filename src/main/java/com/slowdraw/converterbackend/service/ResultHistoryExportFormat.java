@@ -0,0 +1,38 @@
+package com.slowdraw.converterbackend.service;
+
+import com.slowdraw.converterbackend.exception.BadRequestException;
+
+import java.util.Locale;
+
+public enum ResultHistoryExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    ResultHistoryExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public static ResultHistoryExportFormat forName(String name) {
+
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+        catch(IllegalArgumentException exceptMe) {
+            throw new BadRequestException(String.format("Unknown export format %s; expected ndjson or csv.", name));
+        }
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+}
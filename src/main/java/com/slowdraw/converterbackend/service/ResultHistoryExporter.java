@@ -0,0 +1,118 @@
+package com.slowdraw.converterbackend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+//writes a user's whole history from a Mongo cursor straight to the response, one entry at a time,
+//so memory stays at one cursor batch plus the output buffer however long the history is
+@Component
+public class ResultHistoryExporter {
+
+    private static final String CSV_HEADER = "id,username,title,message,entryDate,calculationAttributes\n";
+
+    private final ResultHistoryRepository resultHistoryRepository;
+
+    //flushing after every entry would turn each one into its own chunk on the wire
+    private final ObjectWriter entryWriter;
+    private final ObjectWriter attributesWriter;
+
+    //documents per cursor round trip
+    @Value("${app.resultHistory.exportBatchSize:500}")
+    private int batchSize;
+
+    //constructor injection
+    public ResultHistoryExporter(ResultHistoryRepository resultHistoryRepository, ObjectMapper objectMapper) {
+        this.resultHistoryRepository = resultHistoryRepository;
+        this.entryWriter = objectMapper.writerFor(ResultHistory.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.attributesWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void export(String username, ResultHistoryExportFormat format, OutputStream outputStream)
+            throws IOException {
+
+        try(CloseableIterator<ResultHistory> entries =
+                    resultHistoryRepository.streamByUsername(username, Math.max(1, batchSize))) {
+
+            if(format == ResultHistoryExportFormat.CSV)
+                writeCsv(entries, outputStream);
+            else
+                writeNdjson(entries, outputStream);
+        }
+    }
+
+    private void writeNdjson(CloseableIterator<ResultHistory> entries, OutputStream outputStream)
+            throws IOException {
+
+        try(JsonGenerator generator = entryWriter.getFactory().createGenerator(outputStream)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+
+            //lines are separated below; the default would put a space before every entry after the first
+            generator.setRootValueSeparator(null);
+
+            while(entries.hasNext()) {
+                entryWriter.writeValue(generator, entries.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private void writeCsv(CloseableIterator<ResultHistory> entries, OutputStream outputStream)
+            throws IOException {
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        writer.write(CSV_HEADER);
+
+        while(entries.hasNext()) {
+
+            ResultHistory entry = entries.next();
+
+            appendField(writer, entry.getId()).write(',');
+            appendField(writer, entry.getUsername()).write(',');
+            appendField(writer, entry.getTitle()).write(',');
+            appendField(writer, entry.getMessage()).write(',');
+            appendField(writer, entry.getEntryDate() == null ? null
+                    : entry.getEntryDate().toInstant().toString()).write(',');
+            appendField(writer, entry.getCalculationAttributes() == null ? null
+                    : attributesWriter.writeValueAsString(entry.getCalculationAttributes())).write('\n');
+        }
+
+        //flushed but not closed: the servlet container owns the response stream
+        writer.flush();
+    }
+
+    //RFC 4180: fields holding a separator, quote or line break are quoted, with quotes doubled
+    private static Writer appendField(Writer writer, String value) throws IOException {
+
+        if(value == null)
+            return writer;
+
+        if(value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return writer;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+
+        return writer;
+    }
+}
@@ -2,10 +2,12 @@ package com.slowdraw.converterbackend.service;
 
 import com.slowdraw.converterbackend.domain.ResultHistory;
 import com.slowdraw.converterbackend.exception.ResultHistoryException;
+import com.slowdraw.converterbackend.payload.ResultHistoryCursor;
 import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
 import lombok.var;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -25,9 +27,15 @@ public class ResultHistoryService {
             "No result history exists for Username %s.";
 
     private final ResultHistoryRepository resultHistoryRepository;
+    private final ResultHistoryWriteBehind writeBehind;
+    private final ResultHistorySpillover spillover;
 
-    public ResultHistoryService(ResultHistoryRepository resultHistoryRepository) {
+    public ResultHistoryService(ResultHistoryRepository resultHistoryRepository,
+                                ResultHistoryWriteBehind writeBehind,
+                                ResultHistorySpillover spillover) {
         this.resultHistoryRepository = resultHistoryRepository;
+        this.writeBehind = writeBehind;
+        this.spillover = spillover;
     }
 
     public ResultHistory findById(String id) {
@@ -45,8 +53,37 @@ public class ResultHistoryService {
                                         username)));
     }
 
+    public List<ResultHistory> findPageByUsername(String username, ResultHistoryCursor after, int limit) {
+        return resultHistoryRepository.findByUsernameAfter(username, after, limit);
+    }
+
+    //with write-behind on, a new entry is queued and returned with its id before it is stored.
+    //entries that already carry an id keep the synchronous save, which may overwrite a stored entry.
+    //with the spill log on, an entry that cannot reach Mongo is kept on local disk and stored once Mongo is back;
+    //after the first such failure entries go straight to the log until the replayer finds Mongo answering
     public ResultHistory persistResultHistory(ResultHistory resultHistory) {
-        return resultHistoryRepository.save(resultHistory);
+
+        if(spillover.isDiverting())
+            return spillover.spill(resultHistory);
+
+        if(writeBehind.isEnabled() && resultHistory.getId() == null) {
+            writeBehind.submit(resultHistory);
+            return resultHistory;
+        }
+
+        try {
+            return resultHistoryRepository.save(resultHistory);
+        }
+        catch(DataAccessResourceFailureException exceptMe) {
+
+            if(!spillover.isEnabled())
+                throw exceptMe;
+
+            LOGGER.warn("Mongo unavailable, spilling result history entry: {}", exceptMe.getMessage());
+            spillover.markUnavailable();
+
+            return spillover.spill(resultHistory);
+        }
     }
 
     public ResultHistory updateResultHistory(ResultHistory resultHistory, String id) {
@@ -0,0 +1,290 @@
+package com.slowdraw.converterbackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.exception.ServiceUnavailableException;
+import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
+import com.slowdraw.converterbackend.spill.SegmentLog;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+//optional local safety net for result history writes: an entry that cannot reach Mongo is appended to a
+//segment log on local disk instead of failing the request, and a scheduled replayer upserts the log back into
+//Mongo once it answers again. replay is by id, so a segment cut short by an outage is simply replayed again.
+//once a write has found Mongo unreachable, writers divert straight to the log until the replayer reaches Mongo,
+//rather than each waiting out the server selection timeout first
+@Component
+public class ResultHistorySpillover implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultHistorySpillover.class);
+
+    private static final String NOT_SAVED = "Result history could not be saved; try again shortly.";
+
+    private final ResultHistoryRepository resultHistoryRepository;
+    private final ObjectReader entryReader;
+    private final ObjectWriter entryWriter;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean syncEachRecord;
+    private final int replayBatchSize;
+
+    //null unless enabled
+    private volatile SegmentLog log;
+
+    private volatile boolean diverting;
+
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    //constructor injection
+    public ResultHistorySpillover(ResultHistoryRepository resultHistoryRepository,
+                                  ObjectMapper objectMapper,
+                                  @Value("${app.resultHistory.spill.enabled:false}") boolean enabled,
+                                  @Value("${app.resultHistory.spill.directory:spill/result-history}") String directory,
+                                  @Value("${app.resultHistory.spill.segmentBytes:16777216}") int segmentBytes,
+                                  @Value("${app.resultHistory.spill.syncEachRecord:false}") boolean syncEachRecord,
+                                  @Value("${app.resultHistory.spill.replayBatchSize:500}") int replayBatchSize) {
+
+        this.resultHistoryRepository = resultHistoryRepository;
+        this.entryReader = objectMapper.readerFor(ResultHistory.class);
+        this.entryWriter = objectMapper.writerFor(ResultHistory.class);
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.syncEachRecord = syncEachRecord;
+        this.replayBatchSize = Math.max(1, replayBatchSize);
+    }
+
+    @PostConstruct
+    public void open() {
+
+        if(!enabled)
+            return;
+
+        try {
+            log = new SegmentLog(directory, segmentBytes, syncEachRecord);
+        }
+        catch(IOException exceptMe) {
+            throw new UncheckedIOException("Could not open the result history spill log in " + directory, exceptMe);
+        }
+
+        if(log.pendingSegments() > 0)
+            LOGGER.info("{} result history spill segments are waiting to be replayed.", log.pendingSegments());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //true while writes should skip Mongo and spill right away; never true when the spill log is off
+    public boolean isDiverting() {
+        return diverting;
+    }
+
+    //called by a writer that got no answer from Mongo
+    public void markUnavailable() {
+
+        if(!enabled || diverting)
+            return;
+
+        diverting = true;
+        LOGGER.warn("Mongo unavailable, result history writes go to the spill log until it answers again.");
+    }
+
+    //the entry gets its id here so that replaying it can never store it twice
+    public ResultHistory spill(ResultHistory entry) {
+
+        if(entry.getId() == null)
+            entry.setId(new ObjectId().toHexString());
+
+        try {
+            log.append(entryWriter.writeValueAsBytes(entry));
+        }
+        catch(IOException | IllegalArgumentException exceptMe) {
+            LOGGER.error("Could not spill result history entry {}.", entry.getId(), exceptMe);
+            throw new ServiceUnavailableException(NOT_SAVED);
+        }
+
+        spilled.increment();
+
+        return entry;
+    }
+
+    //segments are replayed oldest first. while Mongo is still down the first upsert fails and the rest of the
+    //log waits for the next run; the active segment is only sealed and replayed once the older ones are gone
+    @Scheduled(fixedDelayString = "${app.resultHistory.spill.replayMs:5000}")
+    public synchronized void replay() {
+
+        SegmentLog current = log;
+
+        if(current == null)
+            return;
+
+        //the log may well be empty, so diverted writers are let back in on a cheap _id lookup rather than
+        //waiting for a replay that has nothing to send
+        if(diverting && !probe())
+            return;
+
+        try {
+            if(!replaySealed(current))
+                return;
+
+            current.sealActive();
+            replaySealed(current);
+        }
+        catch(IOException exceptMe) {
+            LOGGER.error("Could not read the result history spill log.", exceptMe);
+        }
+    }
+
+    public int getPendingSegments() {
+
+        SegmentLog current = log;
+
+        return current == null ? 0 : current.pendingSegments();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+
+        SegmentLog current = log;
+
+        if(current != null)
+            current.close();
+    }
+
+    //picked up by actuator like any MeterBinder bean
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        Gauge.builder("result.history.spill.segments", this, ResultHistorySpillover::getPendingSegments)
+                .description("Spill log segments holding result history entries not yet replayed into Mongo")
+                .register(registry);
+
+        FunctionCounter.builder("result.history.spill.spilled", spilled, LongAdder::sum)
+                .description("Result history entries written to the spill log because Mongo was unavailable")
+                .register(registry);
+
+        FunctionCounter.builder("result.history.spill.replayed", replayed, LongAdder::sum)
+                .description("Spilled result history entries stored in Mongo by the replayer")
+                .register(registry);
+
+        FunctionCounter.builder("result.history.spill.dropped", dropped, LongAdder::sum)
+                .description("Spilled result history entries lost to damage or rejected by Mongo")
+                .register(registry);
+    }
+
+    //true once every sealed segment has been replayed and deleted
+    private boolean replaySealed(SegmentLog current) throws IOException {
+
+        for(Path segment : current.sealedSegments()) {
+
+            List<ResultHistory> batch = new ArrayList<>(replayBatchSize);
+            boolean intact;
+
+            try {
+                intact = SegmentLog.forEachRecord(segment, record -> {
+
+                    ResultHistory entry = read(record);
+
+                    if(entry != null)
+                        batch.add(entry);
+
+                    if(batch.size() == replayBatchSize)
+                        upsert(batch);
+                });
+
+                upsert(batch);
+            }
+            catch(DataAccessException exceptMe) {
+                LOGGER.debug("Mongo is still unavailable, result history replay will retry.", exceptMe);
+                markUnavailable();
+                return false;
+            }
+
+            //the records after the damage cannot be counted, so a damaged segment counts as one lost entry
+            if(!intact) {
+                dropped.increment();
+                LOGGER.error("Spill segment {} is damaged; the entries after the damaged record were lost.",
+                        segment);
+            }
+
+            current.delete(segment);
+            LOGGER.info("Replayed result history spill segment {}.", segment);
+        }
+
+        return true;
+    }
+
+    private boolean probe() {
+
+        try {
+            resultHistoryRepository.existsById(new ObjectId().toHexString());
+        }
+        catch(DataAccessException exceptMe) {
+            LOGGER.debug("Mongo is still unavailable, result history writes stay diverted.", exceptMe);
+            return false;
+        }
+
+        diverting = false;
+        LOGGER.info("Mongo is answering again, result history writes go back to Mongo.");
+
+        return true;
+    }
+
+    //null when the entry cannot be read back, e.g. after an incompatible change to ResultHistory;
+    //the checksum matched, so retrying would not help
+    private ResultHistory read(byte[] record) {
+
+        try {
+            return entryReader.readValue(record);
+        }
+        catch(IOException exceptMe) {
+            dropped.increment();
+            LOGGER.error("Could not read a spilled result history entry.", exceptMe);
+            return null;
+        }
+    }
+
+    private void upsert(List<ResultHistory> batch) {
+
+        if(batch.isEmpty())
+            return;
+
+        Map<Integer, String> failures = resultHistoryRepository.upsertUnordered(batch);
+
+        for(Map.Entry<Integer, String> failure : failures.entrySet())
+            LOGGER.error("Spilled result history entry {} was rejected: {}",
+                    batch.get(failure.getKey()).getId(), failure.getValue());
+
+        replayed.add(batch.size() - failures.size());
+        dropped.add(failures.size());
+
+        batch.clear();
+    }
+}
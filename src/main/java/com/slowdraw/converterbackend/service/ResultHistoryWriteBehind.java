@@ -0,0 +1,353 @@
+package com.slowdraw.converterbackend.service;
+
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.exception.ServiceUnavailableException;
+import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+//optional group commit for new history entries: saves are queued and a single writer thread stores them as
+//unordered bulk inserts once a batch fills up or the oldest entry has waited maxDelayMs, so Mongo write latency
+//stays off the request path. the queue is bounded; when it is full callers get a 503 instead of piling up.
+//an entry is readable only once its batch is flushed
+@Component
+public class ResultHistoryWriteBehind implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultHistoryWriteBehind.class);
+
+    private static final String SATURATED = "Too many result history writes in progress; try again shortly.";
+    private static final String STOPPED = "Result history writes are shutting down; try again shortly.";
+
+    //a batch that fails on a transient database error is retried this many times before its entries fail
+    private static final int FLUSH_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 200L;
+
+    private final ResultHistoryRepository resultHistoryRepository;
+    private final ResultHistorySpillover spillover;
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final long drainTimeoutMs;
+
+    //lock-free: producers only CAS the size and append, the writer is the only consumer
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private volatile boolean accepting;
+    private volatile Thread writer;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    //constructor injection
+    public ResultHistoryWriteBehind(ResultHistoryRepository resultHistoryRepository,
+                                    ResultHistorySpillover spillover,
+                                    @Value("${app.resultHistory.writeBehind.enabled:false}") boolean enabled,
+                                    @Value("${app.resultHistory.writeBehind.capacity:10000}") int capacity,
+                                    @Value("${app.resultHistory.writeBehind.batchSize:500}") int batchSize,
+                                    @Value("${app.resultHistory.writeBehind.maxDelayMs:50}") long maxDelayMs,
+                                    @Value("${app.resultHistory.writeBehind.drainTimeoutMs:10000}") long drainTimeoutMs) {
+
+        this.resultHistoryRepository = resultHistoryRepository;
+        this.spillover = spillover;
+        this.enabled = enabled;
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, maxDelayMs));
+        this.drainTimeoutMs = drainTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+
+        if(!enabled)
+            return;
+
+        accepting = true;
+        writer = new Thread(this::run, "result-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //the entry gets its id here, so callers can answer with it right away; the future completes once it is stored
+    public CompletableFuture<ResultHistory> submit(ResultHistory entry) {
+
+        if(!accepting)
+            throw new ServiceUnavailableException(STOPPED);
+
+        while(true) {
+
+            int size = queued.get();
+
+            if(size >= capacity) {
+                rejected.increment();
+                throw new ServiceUnavailableException(SATURATED);
+            }
+
+            if(queued.compareAndSet(size, size + 1)) {
+
+                if(entry.getId() == null)
+                    entry.setId(new ObjectId().toHexString());
+
+                Pending pending = new Pending(entry);
+                queue.offer(pending);
+
+                //a full batch is written at once rather than at the next tick
+                if(size + 1 == batchSize)
+                    LockSupport.unpark(writer);
+
+                return pending.done;
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    //stops taking entries and waits up to drainTimeoutMs for everything queued to be written
+    @PreDestroy
+    public void shutdown() {
+
+        Thread current = writer;
+
+        accepting = false;
+
+        if(current == null)
+            return;
+
+        LockSupport.unpark(current);
+
+        try {
+            current.join(drainTimeoutMs);
+        }
+        catch(InterruptedException exceptMe) {
+            Thread.currentThread().interrupt();
+        }
+
+        if(current.isAlive()) {
+            LOGGER.warn("Result history writer did not drain within {} ms; {} entries were not written.",
+                    drainTimeoutMs, queued.get());
+            return;
+        }
+
+        //a save that got past the accepting check just as the writer finished is written from here
+        List<Pending> stragglers = new ArrayList<>();
+        Pending next;
+
+        while((next = queue.poll()) != null) {
+            queued.decrementAndGet();
+            stragglers.add(next);
+        }
+
+        if(!stragglers.isEmpty())
+            flush(stragglers);
+    }
+
+    //picked up by actuator like any MeterBinder bean
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        Gauge.builder("result.history.write.behind.queue", queued, AtomicInteger::get)
+                .description("Result history entries waiting to be written")
+                .register(registry);
+
+        FunctionCounter.builder("result.history.write.behind.written", written, LongAdder::sum)
+                .description("Result history entries stored by the background writer")
+                .register(registry);
+
+        FunctionCounter.builder("result.history.write.behind.failed", failed, LongAdder::sum)
+                .description("Queued result history entries that could not be stored")
+                .register(registry);
+
+        FunctionCounter.builder("result.history.write.behind.rejected", rejected, LongAdder::sum)
+                .description("Result history saves turned away because the queue was full")
+                .register(registry);
+    }
+
+    private void run() {
+
+        List<Pending> batch = new ArrayList<>(batchSize);
+
+        //after shutdown starts the loop keeps going until the queue is empty
+        while(accepting || queued.get() > 0) {
+
+            if(accepting && queued.get() < batchSize)
+                LockSupport.parkNanos(this, maxDelayNanos);
+
+            //a producer counts its entry just before offering it, so an entry counted but not yet in the queue is
+            //waited for here; left behind, it would sit out a whole maxDelayMs after the wake-up meant for it
+            while(batch.size() < batchSize && queued.get() > 0) {
+
+                Pending next = queue.poll();
+
+                if(next == null) {
+                    Thread.yield();
+                    continue;
+                }
+
+                queued.decrementAndGet();
+                batch.add(next);
+            }
+
+            if(!batch.isEmpty()) {
+
+                //the writer has to outlive any one batch, or every later save would queue up behind a dead thread
+                try {
+                    flush(batch);
+                }
+                catch(RuntimeException exceptMe) {
+                    LOGGER.error("Writing {} result history entries failed unexpectedly.", batch.size(), exceptMe);
+
+                    for(Pending pending : batch)
+                        fail(pending, exceptMe);
+                }
+
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+
+        List<ResultHistory> entries = new ArrayList<>(batch.size());
+
+        for(Pending pending : batch)
+            entries.add(pending.entry);
+
+        //Mongo is known to be down, so there is no point waiting out the retries
+        if(spillover.isDiverting()) {
+            for(Pending pending : batch)
+                spillOrFail(pending, new DataAccessResourceFailureException("Mongo is unavailable."));
+
+            return;
+        }
+
+        for(int attempt = 1; ; attempt++) {
+
+            try {
+                //ids are assigned before the first attempt and a failed attempt may still have stored part of the
+                //batch, so retries upsert by id like the spill replayer rather than report those as duplicates
+                Map<Integer, String> failures = attempt == 1
+                        ? resultHistoryRepository.insertUnordered(entries)
+                        : resultHistoryRepository.upsertUnordered(entries);
+
+                for(int i = 0; i < batch.size(); i++)
+                    complete(batch.get(i), failures.get(i));
+
+                return;
+            }
+            catch(DataAccessException exceptMe) {
+
+                if(attempt == FLUSH_ATTEMPTS) {
+                    LOGGER.error("Could not write {} result history entries.", batch.size(), exceptMe);
+
+                    if(exceptMe instanceof DataAccessResourceFailureException)
+                        spillover.markUnavailable();
+
+                    for(Pending pending : batch)
+                        spillOrFail(pending, exceptMe);
+
+                    return;
+                }
+
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MS * attempt));
+            }
+            catch(RuntimeException exceptMe) {
+
+                //not an outage but something wrong with an entry; written one at a time only that one fails
+                if(batch.size() > 1) {
+                    LOGGER.warn("Writing {} result history entries failed, retrying them one at a time.",
+                            batch.size(), exceptMe);
+
+                    for(Pending pending : batch)
+                        flush(Collections.singletonList(pending));
+
+                    return;
+                }
+
+                LOGGER.warn("Result history entry {} was not written.", batch.get(0).entry.getId(), exceptMe);
+                fail(batch.get(0), exceptMe);
+
+                return;
+            }
+        }
+    }
+
+    //with the spill log on, the entry is kept on local disk and replayed once Mongo is back
+    private void spillOrFail(Pending pending, DataAccessException cause) {
+
+        if(spillover.isEnabled()) {
+            try {
+                pending.done.complete(spillover.spill(pending.entry));
+                return;
+            }
+            catch(ServiceUnavailableException exceptMe) {
+                //logged by the spillover; fall through and fail the entry
+            }
+        }
+
+        fail(pending, cause);
+    }
+
+    private void fail(Pending pending, RuntimeException cause) {
+
+        if(pending.done.isDone())
+            return;
+
+        failed.increment();
+        pending.done.completeExceptionally(cause);
+    }
+
+    private void complete(Pending pending, String error) {
+
+        if(error == null) {
+            written.increment();
+            pending.done.complete(pending.entry);
+            return;
+        }
+
+        failed.increment();
+        LOGGER.warn("Result history entry {} was not written: {}", pending.entry.getId(), error);
+        pending.done.completeExceptionally(new IllegalStateException(error));
+    }
+
+    private static final class Pending {
+
+        private final ResultHistory entry;
+        private final CompletableFuture<ResultHistory> done = new CompletableFuture<>();
+
+        private Pending(ResultHistory entry) {
+            this.entry = entry;
+        }
+    }
+}
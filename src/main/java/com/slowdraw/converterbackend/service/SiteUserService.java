@@ -1,20 +1,33 @@
 package com.slowdraw.converterbackend.service;
 
+import com.slowdraw.converterbackend.cache.BoundedCache;
+import com.slowdraw.converterbackend.cache.CacheCounters;
+import com.slowdraw.converterbackend.catalog.FormulaCatalog;
 import com.slowdraw.converterbackend.domain.SiteUser;
+import com.slowdraw.converterbackend.exception.BadRequestException;
+import com.slowdraw.converterbackend.exception.FavoritesConflictException;
 import com.slowdraw.converterbackend.exception.UserException;
+import com.slowdraw.converterbackend.payload.FavoritesOperation;
 import com.slowdraw.converterbackend.repository.SiteUserRepository;
+import com.slowdraw.converterbackend.security.PrincipalCache;
 import lombok.var;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 
-import java.util.Collections;
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,153 +36,185 @@ public class SiteUserService {
     private static final Logger LOGGER = LoggerFactory.getLogger(SiteUserService.class);
 
     private static final String USERNAME_NOT_FOUND = "Username %s not found.";
+    private static final String UNKNOWN_OPERATION =
+            "Unknown favorites operation %s; expected add, remove or move.";
+    private static final String NOT_A_FAVORITE = "Formula %s is not in the favorites of %s.";
+    private static final String FAVORITES_CONFLICT =
+            "Favorites of %s kept changing while the update was applied; try again.";
+
+    //a patch only loses the race to another write of the same user's favorites, so a few tries suffice
+    private static final int FAVORITES_PATCH_ATTEMPTS = 8;
+
+    private static final int PROFILE_CACHE_STRIPES = 16;
 
     private final SiteUserRepository siteUserRepository;
     private final FormulaService formulaService;
+    private final PrincipalCache principalCache;
+    private final UserAvailabilityFilters availabilityFilters;
+
+    //stored users by username; 0 turns the profile cache off
+    @Value("${app.user.profileCacheSize:10000}")
+    private int profileCacheSize;
+
+    //upper bound on how long a write made outside this service can go unseen
+    @Value("${app.user.profileCacheTtlMs:60000}")
+    private long profileCacheTtlMs;
+
+    private final CacheCounters profileCacheCounters = new CacheCounters("user.profiles");
 
-    public SiteUserService(SiteUserRepository siteUserRepository, FormulaService formulaService) {
+    private BoundedCache<String, SiteUser> profileCache;
+
+    public SiteUserService(SiteUserRepository siteUserRepository, FormulaService formulaService,
+                           PrincipalCache principalCache, UserAvailabilityFilters availabilityFilters) {
         this.siteUserRepository = siteUserRepository;
         this.formulaService = formulaService;
+        this.principalCache = principalCache;
+        this.availabilityFilters = availabilityFilters;
     }
 
-    public SiteUser findUserById(String username) {
+    @PostConstruct
+    private void initProfileCache() {
 
-        //sanity check: username exists
-        if(!siteUserRepository.findById(username).isPresent())
-            throw new UserException(
-                    String.format(USERNAME_NOT_FOUND, username));
+        if(profileCacheSize > 0)
+            profileCache = new BoundedCache<>(profileCacheSize, PROFILE_CACHE_STRIPES, profileCacheCounters,
+                    Duration.ofMillis(profileCacheTtlMs), System::nanoTime);
+    }
 
-        return siteUserRepository.findById(username)
-                .orElseThrow(() ->
-                        new UserException(String.format(
-                                USERNAME_NOT_FOUND,
-                                username)));
+    public CacheCounters getProfileCacheCounters() {
+        return profileCacheCounters;
     }
 
-    public SiteUser updateUserPassword(String username, String newPassword) {
+    //read-through: every write below invalidates the user's entry, the ttl covers writes made elsewhere
+    public SiteUser findUserById(String username) {
 
-        //sanity check: username exists
-        if(!siteUserRepository.findById(username).isPresent())
-            throw new UserException(
-                    String.format(USERNAME_NOT_FOUND, username));
+        if(profileCache == null)
+            return resolveFavorites(findStoredUser(username));
 
-        return siteUserRepository.findById(username).map(
-                user -> {
-                    user.setPassword(newPassword);
-                    return siteUserRepository.save(user);
-                }).orElseThrow(() ->
-                new UserException(String.format(
-                        USERNAME_NOT_FOUND,
-                        username))
-        );
+        SiteUser cached = profileCache.computeIfAbsent(username, key ->
+                siteUserRepository.findById(key).orElse(null));
+
+        if(cached == null)
+            throw userNotFound(username);
+
+        //favorites are resolved on a copy so the cached user never changes after it was loaded
+        return resolveFavorites(cached.toBuilder()
+                .favorites(new ArrayList<>(cached.getFavorites()))
+                .build());
+    }
+
+    //returns nothing: the update reads back only the favorites, so there is no whole user to hand out
+    public void updateUserPassword(String username, String newPassword) {
+
+        //a single-field update rather than read, modify and save of the whole user,
+        //which could undo a favorites change made in between
+        try {
+            written(username, () -> siteUserRepository.updatePassword(username, newPassword));
+        }
+        finally {
+            principalCache.evict(username);
+        }
     }
 
     public void deleteUser(String username) {
-        siteUserRepository.deleteById(username);
+
+        try {
+            siteUserRepository.deleteById(username);
+            availabilityFilters.recordDeletion();
+        }
+        finally {
+            invalidateProfile(username);
+            principalCache.evict(username);
+        }
     }
 
 
+    //favorites changes are single findAndModify commands, so concurrent requests never overwrite each other
     public SiteUser modifyUsernameFavoritesList(String username, List<String> newPositions) {
 
-        //sanity check: username exists
-        if(!siteUserRepository.findById(username).isPresent())
-            throw new UserException(
-                    String.format(USERNAME_NOT_FOUND, username));
+        //sanity check: every formula in the new order exists
+        newPositions.forEach(formulaService::getSingleFormulaInfo);
 
-        return siteUserRepository.findById(username).map(
-                user -> {
-                    user.setFavoritesList(newPositions.stream()
-                            .map(formula -> formulaService.getSingleFormulaInfo(formula)
-                    ).collect(Collectors.toList()));
-                    return siteUserRepository.save(user);
-                }
-        ).orElseThrow(() ->
-                new UserException(String.format(
-                        USERNAME_NOT_FOUND,
-                        username)));
+        return written(username, () ->
+                siteUserRepository.replaceFavorites(username, new ArrayList<>(newPositions)));
     }
 
     public SiteUser saveFormulaToFavoritesList(String username, String formulaName) {
 
-        //sanity check: username exists
-        if(!siteUserRepository.findById(username).isPresent())
-            throw new UserException(
-                    String.format(USERNAME_NOT_FOUND, username));
-
-        //make sure there are no duplicates in favorites list
-        if(!siteUserRepository.findById(username).get()
-                .getFavoritesList().stream().filter(
-                        formula ->
-                                formula.getFormulaName().equals(formulaName))
-                .collect(Collectors.toList()).isEmpty()) {
-
-            return siteUserRepository.save(siteUserRepository.findById(username)
-                    .orElseThrow(() ->
-                            new UserException(String.format(
-                                    USERNAME_NOT_FOUND,
-                                    username))));
-        }
-
-        //add to favorites list
-        return siteUserRepository.findById(username).map(
-                user -> {
-                    user.getFavoritesList()
-                            .add(formulaService.getSingleFormulaInfo(formulaName));
+        //sanity check: formula exists
+        formulaService.getSingleFormulaInfo(formulaName);
 
-                    return siteUserRepository.save(user);
-                }
-        ).orElseThrow(() ->
-                new UserException(String.format(
-                        USERNAME_NOT_FOUND,
-                        username)));
+        return written(username, () -> siteUserRepository.addFavorite(username, formulaName));
     }
 
     public SiteUser deleteAllFavorites(String username) {
 
-        //sanity check: username exists
-        if(!siteUserRepository.findById(username).isPresent())
-            throw new UserException(
-                    String.format(USERNAME_NOT_FOUND, username));
-
-        return siteUserRepository.findById(username).map(
-                user -> {
-                    user.setFavoritesList(Collections.emptyList());
-                    return siteUserRepository.save(user);
-                }
-        ).orElseThrow(() ->
-                new UserException(String.format(
-                        USERNAME_NOT_FOUND,
-                        username)));
+        return written(username, () -> siteUserRepository.replaceFavorites(username, new ArrayList<>()));
     }
 
     public SiteUser deleteSingleFormulaFromFavorite(String username, String formulaName) {
 
-        //sanity check: username exists
-        if(!siteUserRepository.findById(username).isPresent())
-            throw new UserException(
-                    String.format(USERNAME_NOT_FOUND, username));
+        return written(username, () -> siteUserRepository.removeFavorite(username, formulaName));
+    }
+
+    //many adds, removes and moves in one request, stored as a single compare-and-set of the list
+    public SiteUser patchFavorites(String username, List<FavoritesOperation> operations) {
+
+        //sanity check: every operation is well formed and names a known formula before any write
+        for(FavoritesOperation operation : operations) {
+
+            String op = operation.getOp().toLowerCase(Locale.ROOT);
 
-        return siteUserRepository.findById(username).map(
-                user -> {
-                    user.setFavoritesList(user.getFavoritesList().stream().filter(
-                            formula ->
-                                    !formula.getFormulaName().equals(formulaName)
-                    ).collect(Collectors.toList()));
+            if(!op.equals("add") && !op.equals("remove") && !op.equals("move"))
+                throw new BadRequestException(String.format(UNKNOWN_OPERATION, operation.getOp()));
+
+            //removing a formula that has since left the catalog is still allowed
+            if(!op.equals("remove"))
+                formulaService.getSingleFormulaInfo(operation.getFormulaName());
+        }
 
-                    return siteUserRepository.save(user);
-                }
-        ).orElseThrow(() ->
-                new UserException(String.format(
-                        USERNAME_NOT_FOUND,
-                        username)));
+        for(int attempt = 0; attempt < FAVORITES_PATCH_ATTEMPTS; attempt++) {
+
+            SiteUser user = findStoredUser(username);
+            List<String> current = user.getFavorites();
+            List<String> patched = applyOperations(username, current, operations);
+
+            //nothing to store; answered in the same favorites-only shape as a stored patch, without the hash
+            if(patched.equals(current))
+                return resolveFavorites(SiteUser.builder()
+                        .username(username)
+                        .favorites(new ArrayList<>(current))
+                        .build());
+
+            Optional<SiteUser> updated =
+                    siteUserRepository.compareAndSetFavorites(username, current, patched);
+
+            if(updated.isPresent()) {
+                invalidateProfile(username);
+                return resolveFavorites(updated.get());
+            }
+        }
+
+        throw new FavoritesConflictException(String.format(FAVORITES_CONFLICT, username));
     }
 
+    //for the availability endpoints only: a filter miss is trusted, so a user stored by another instance or
+    //straight into Mongo can read as free until the next rebuild. registration goes by isUsernameTaken
     public Boolean checkUsernameAvailability(String username) {
-        return !siteUserRepository.existsById(username);
+        return !availabilityFilters.mightHaveUsername(username) || !siteUserRepository.existsById(username);
     }
 
     public Boolean checkEmailAvailability(String email) {
-        return !siteUserRepository.existsByEmail(email);
+        return !availabilityFilters.mightHaveEmail(email) || !siteUserRepository.existsByEmail(email);
+    }
+
+    //always asks Mongo; the filters are never proof that a name is free
+    public boolean isUsernameTaken(String username) {
+        return siteUserRepository.existsById(username);
+    }
+
+    //registration records the new user before saving, so this instance reads it as taken once it is stored
+    public void reserveUser(String username, String email) {
+        availabilityFilters.recordUser(username, email);
     }
 
     public ResponseEntity<?> errorMap(BindingResult result){
@@ -182,4 +227,93 @@ public class SiteUserService {
 
         return new ResponseEntity<>(errorMap, HttpStatus.BAD_REQUEST);
     }
+
+    //a single read; favorites are names, so no further queries follow
+    private SiteUser findStoredUser(String username) {
+
+        return siteUserRepository.findById(username)
+                .orElseThrow(() -> userNotFound(username));
+    }
+
+    //runs a write and drops the cached profile even when the write fails part way
+    private SiteUser written(String username, Supplier<Optional<SiteUser>> write) {
+
+        try {
+            return resolveFavorites(write.get().orElseThrow(() -> userNotFound(username)));
+        }
+        finally {
+            invalidateProfile(username);
+        }
+    }
+
+    private void invalidateProfile(String username) {
+
+        if(profileCache != null)
+            profileCache.invalidate(username);
+    }
+
+    private static UserException userNotFound(String username) {
+        return new UserException(String.format(USERNAME_NOT_FOUND, username));
+    }
+
+    //favorites resolve against the resident catalog; names whose formula was removed are skipped
+    private SiteUser resolveFavorites(SiteUser user) {
+
+        FormulaCatalog catalog = formulaService.getCatalog();
+
+        List<String> favorites = user.getFavorites() == null
+                ? new ArrayList<>()
+                : user.getFavorites();
+
+        user.setFavorites(favorites);
+        user.setFavoritesList(favorites.stream()
+                .map(catalog::find)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList()));
+
+        return user;
+    }
+
+    private static List<String> applyOperations(String username, List<String> current,
+                                                List<FavoritesOperation> operations) {
+
+        List<String> favorites = new ArrayList<>(current);
+
+        for(FavoritesOperation operation : operations) {
+
+            String formulaName = operation.getFormulaName();
+            int index = favorites.indexOf(formulaName);
+
+            switch(operation.getOp().toLowerCase(Locale.ROOT)) {
+
+                case "add":
+                    if(index < 0)
+                        favorites.add(position(operation, favorites.size()), formulaName);
+                    break;
+
+                case "remove":
+                    if(index >= 0)
+                        favorites.remove(index);
+                    break;
+
+                default:
+                    if(index < 0)
+                        throw new BadRequestException(String.format(NOT_A_FAVORITE, formulaName, username));
+
+                    favorites.remove(index);
+                    favorites.add(position(operation, favorites.size()), formulaName);
+            }
+        }
+
+        return favorites;
+    }
+
+    private static int position(FavoritesOperation operation, int size) {
+
+        if(operation.getPosition() == null)
+            return size;
+
+        return Math.max(0, Math.min(operation.getPosition(), size));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package com.slowdraw.converterbackend.service;
+
+import com.slowdraw.converterbackend.cache.BloomFilter;
+import com.slowdraw.converterbackend.cache.CacheCounters;
+import com.slowdraw.converterbackend.repository.SiteUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//Bloom filters of every taken username and email, so the signup form's per-keystroke availability checks only
+//reach Mongo for names that might be taken. the filters only know the users this instance registered or found
+//at its last rebuild; users stored elsewhere are missed until the next one, so a miss is a hint for the form
+//and never proof for registration. deleted users stay in the filters (a harmless false positive) until a rebuild
+@Component
+public class UserAvailabilityFilters {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserAvailabilityFilters.class);
+
+    //room to grow before a rebuild, and a floor for near-empty collections
+    private static final int CAPACITY_FACTOR = 2;
+    private static final int MINIMUM_CAPACITY = 1024;
+
+    private final SiteUserRepository siteUserRepository;
+
+    @Value("${app.user.availabilityFilterFpp:0.01}")
+    private double falsePositiveRate;
+
+    //bounds how long users registered by other instances or written straight to Mongo stay unseen
+    @Value("${app.user.availabilityFilterMaxAgeMs:600000}")
+    private long maxAgeMs;
+
+    //hits are checks answered from the filters alone, misses are checks that had to query Mongo
+    private final CacheCounters counters = new CacheCounters("user.availability");
+
+    //null until the first build finishes; until then every check goes to Mongo
+    private volatile Filters current;
+
+    //set while a rebuild streams the collection, so users registered meanwhile are not missed
+    private volatile Filters building;
+
+    private final LongAdder deletionsSinceBuild = new LongAdder();
+    private final AtomicLong usersAtBuild = new AtomicLong();
+    private volatile long builtAtNanos;
+
+    //constructor injection
+    public UserAvailabilityFilters(SiteUserRepository siteUserRepository) {
+        this.siteUserRepository = siteUserRepository;
+    }
+
+    public CacheCounters getCounters() {
+        return counters;
+    }
+
+    public boolean mightHaveUsername(String username) {
+
+        Filters filters = current;
+
+        return record(filters == null || filters.usernames.mightContain(username));
+    }
+
+    public boolean mightHaveEmail(String email) {
+
+        Filters filters = current;
+
+        return record(filters == null || filters.emails.mightContain(email));
+    }
+
+    //call before the user is saved. a rebuild can swap the filters between the two reads, so the user is put
+    //again until a pass sees neither change. a user put only into the old filters just before a rebuild starts
+    //is still lost if the rebuild's scan runs ahead of the save; the max age rebuild picks it up later
+    public void recordUser(String username, String email) {
+
+        Filters pending;
+        Filters filters;
+
+        do {
+            pending = building;
+            filters = current;
+
+            if(pending != null)
+                pending.put(username, email);
+
+            if(filters != null)
+                filters.put(username, email);
+        }
+        while(pending != building || filters != current);
+    }
+
+    public void recordDeletion() {
+        deletionsSinceBuild.increment();
+    }
+
+    //builds the filters at startup, then rebuilds them when they fill up, a tenth of their users
+    //have since been deleted, or they are older than maxAgeMs
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.user.availabilityFilterCheckMs:60000}")
+    public synchronized void rebuildIfNeeded() {
+
+        Filters filters = current;
+
+        if(filters != null && !filters.usernames.isSaturated()
+                && deletionsSinceBuild.sum() * 10 < Math.max(1L, usersAtBuild.get())
+                && System.nanoTime() - builtAtNanos < TimeUnit.MILLISECONDS.toNanos(maxAgeMs))
+            return;
+
+        rebuild();
+    }
+
+    private void rebuild() {
+
+        long deletions = deletionsSinceBuild.sum();
+        AtomicLong users = new AtomicLong();
+        Filters next;
+
+        try {
+            next = new Filters(Math.max(MINIMUM_CAPACITY, CAPACITY_FACTOR * siteUserRepository.count()),
+                    falsePositiveRate);
+
+            building = next;
+
+            siteUserRepository.forEachUsernameAndEmail((username, email) -> {
+                next.put(username, email);
+                users.incrementAndGet();
+            });
+        }
+        catch(DataAccessException exceptMe) {
+            building = null;
+            LOGGER.warn("Could not rebuild availability filters, keeping current ones.", exceptMe);
+            return;
+        }
+
+        current = next;
+        building = null;
+        builtAtNanos = System.nanoTime();
+
+        usersAtBuild.set(users.get());
+        deletionsSinceBuild.add(-deletions);
+
+        LOGGER.info("Availability filters built for {} users.", users.get());
+    }
+
+    private boolean record(boolean mightHave) {
+
+        if(mightHave)
+            counters.recordMiss();
+        else
+            counters.recordHit();
+
+        return mightHave;
+    }
+
+    private static final class Filters {
+
+        private final BloomFilter usernames;
+        private final BloomFilter emails;
+
+        private Filters(long capacity, double falsePositiveRate) {
+            this.usernames = new BloomFilter(capacity, falsePositiveRate);
+            this.emails = new BloomFilter(capacity, falsePositiveRate);
+        }
+
+        private void put(String username, String email) {
+
+            if(username != null)
+                usernames.put(username);
+
+            if(email != null)
+                emails.put(email);
+        }
+    }
+}
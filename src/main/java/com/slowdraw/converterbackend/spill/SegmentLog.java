@@ -0,0 +1,205 @@
+package com.slowdraw.converterbackend.spill;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+//append-only log of opaque records in fixed-size memory-mapped segment files. a record is
+//[length][crc32 of payload][payload]; the length is written last, so a record torn by a crash reads as the end
+//of its segment. appends go to the active segment; once it is full, or sealActive is called, it is sealed and
+//becomes readable through sealedSegments. segments found on disk at open, i.e. left over from a previous run,
+//start out sealed
+public final class SegmentLog implements Closeable {
+
+    private static final String SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean syncEachRecord;
+
+    //oldest first
+    private final List<Path> sealed = new ArrayList<>();
+
+    private long nextSequence;
+
+    private MappedByteBuffer active;
+    private Path activePath;
+    private int activeRecords;
+
+    //without syncEachRecord a record survives the process dying but not the machine losing power
+    public SegmentLog(Path directory, int segmentBytes, boolean syncEachRecord) throws IOException {
+
+        if(segmentBytes <= HEADER_BYTES)
+            throw new IllegalArgumentException("Segments must be larger than a record header.");
+
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncEachRecord = syncEachRecord;
+
+        Files.createDirectories(directory);
+
+        try(DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for(Path segment : segments)
+                sealed.add(segment);
+        }
+
+        //names are zero-padded sequence numbers, so name order is append order
+        Collections.sort(sealed);
+
+        nextSequence = sealed.isEmpty() ? 0L : sequenceOf(sealed.get(sealed.size() - 1)) + 1;
+    }
+
+    public synchronized void append(byte[] payload) throws IOException {
+
+        if(payload.length == 0)
+            throw new IllegalArgumentException("Records must not be empty.");
+
+        int recordBytes = HEADER_BYTES + payload.length;
+
+        if(recordBytes > segmentBytes)
+            throw new IllegalArgumentException("A record of " + payload.length + " bytes does not fit a segment.");
+
+        if(active == null || active.remaining() < recordBytes)
+            rotate();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        int start = active.position();
+
+        active.position(start + HEADER_BYTES);
+        active.put(payload);
+        active.putInt(start + 4, (int) crc.getValue());
+        active.putInt(start, payload.length);
+
+        activeRecords++;
+
+        if(syncEachRecord)
+            active.force();
+    }
+
+    //seals the active segment if it holds any records, so they are handed out by sealedSegments
+    public synchronized void sealActive() throws IOException {
+
+        if(active == null || activeRecords == 0)
+            return;
+
+        active.force();
+        sealed.add(activePath);
+
+        active = null;
+        activePath = null;
+        activeRecords = 0;
+    }
+
+    public synchronized List<Path> sealedSegments() {
+        return new ArrayList<>(sealed);
+    }
+
+    public synchronized int pendingSegments() {
+        return sealed.size() + (activeRecords > 0 ? 1 : 0);
+    }
+
+    //call once every record of a sealed segment has been dealt with
+    public synchronized void delete(Path segment) throws IOException {
+        sealed.remove(segment);
+        Files.deleteIfExists(segment);
+    }
+
+    //hands each intact record of a sealed segment to consumer in order; returns false when it stopped at a
+    //damaged record rather than at the end of what was written
+    public static boolean forEachRecord(Path segment, Consumer<byte[]> consumer) throws IOException {
+
+        try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+            while(position + HEADER_BYTES <= size) {
+
+                header.clear();
+                readFully(channel, header, position);
+
+                int length = header.getInt(0);
+
+                //the unwritten rest of a segment is zeros
+                if(length == 0)
+                    return true;
+
+                if(length < 0 || position + HEADER_BYTES + length > size)
+                    return false;
+
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(channel, payload, position + HEADER_BYTES);
+
+                CRC32 crc = new CRC32();
+                crc.update(payload.array(), 0, length);
+
+                if((int) crc.getValue() != header.getInt(4))
+                    return false;
+
+                consumer.accept(payload.array());
+                position += HEADER_BYTES + length;
+            }
+
+            return true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sealActive();
+    }
+
+    private void rotate() throws IOException {
+
+        sealActive();
+
+        //a fresh segment that never got a record is reused rather than leaving an empty file behind
+        if(active != null)
+            return;
+
+        activePath = directory.resolve(String.format("%020d%s", nextSequence++, SUFFIX));
+
+        //the mapping stays valid after the file is closed
+        try(RandomAccessFile file = new RandomAccessFile(activePath.toFile(), "rw")) {
+            active = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Segment ended mid-record.");
+        }
+
+        buffer.flip();
+    }
+
+    private static long sequenceOf(Path segment) {
+
+        String name = segment.getFileName().toString();
+
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        }
+        catch(NumberFormatException exceptMe) {
+            return -1L;
+        }
+    }
+}
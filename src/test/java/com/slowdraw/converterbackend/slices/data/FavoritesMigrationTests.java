@@ -0,0 +1,73 @@
+package com.slowdraw.converterbackend.slices.data;
+
+import com.mongodb.DBRef;
+import com.slowdraw.converterbackend.domain.SiteUser;
+import com.slowdraw.converterbackend.migration.FavoritesMigration;
+import com.slowdraw.converterbackend.repository.SiteUserRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.AutoConfigureDataMongo;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+
+@ExtendWith(SpringExtension.class)
+@DataMongoTest
+@AutoConfigureDataMongo
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class FavoritesMigrationTests {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SiteUserRepository siteUserRepository;
+
+    @BeforeEach
+    void insertLegacyUser() {
+
+        mongoTemplate.dropCollection("users");
+
+        //shape written by the old @DBRef mapping
+        mongoTemplate.insert(new Document("_id", "legacyUser")
+                .append("password", "testPassword")
+                .append("email", "legacy@email.com")
+                .append("favoritesList", Arrays.asList(
+                        new DBRef("formulas", "pythagoreanTheorem"),
+                        new DBRef("formulas", "areaCircle"))), "users");
+    }
+
+    @Test
+    public void testMigrationRewritesReferencesAsNamesInOrder() {
+
+        Assertions.assertEquals(1, new FavoritesMigration(mongoTemplate).migrate());
+
+        SiteUser migratedUser = siteUserRepository.findById("legacyUser").get();
+
+        Assertions.assertEquals(Arrays.asList("pythagoreanTheorem", "areaCircle"),
+                migratedUser.getFavorites());
+
+        Document stored = mongoTemplate.findById("legacyUser", Document.class, "users");
+
+        Assertions.assertFalse(stored.containsKey("favoritesList"));
+    }
+
+    @Test
+    public void testMigrationIsNoOpOnceApplied() {
+
+        FavoritesMigration favoritesMigration = new FavoritesMigration(mongoTemplate);
+
+        favoritesMigration.migrate();
+
+        Assertions.assertEquals(0, favoritesMigration.migrate());
+    }
+}
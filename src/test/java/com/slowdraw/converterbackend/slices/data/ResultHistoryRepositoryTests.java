@@ -0,0 +1,168 @@
+package com.slowdraw.converterbackend.slices.data;
+
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.payload.ResultHistoryCursor;
+import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.AutoConfigureDataMongo;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@ExtendWith(SpringExtension.class)
+@DataMongoTest
+@AutoConfigureDataMongo
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class ResultHistoryRepositoryTests {
+
+    @Autowired
+    private ResultHistoryRepository resultHistoryRepository;
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    private List<ResultHistory> newestFirst;
+
+    @BeforeAll
+    void initResultHistory() {
+
+        mongoOperations.dropCollection(ResultHistory.class);
+
+        List<ResultHistory> entries = new ArrayList<>();
+
+        //pairs share a date so the _id tie-break is exercised, and two entries have no date at all
+        for(int i = 0; i < 7; i++) {
+            entries.add(ResultHistory.builder()
+                    .username("testUsername")
+                    .title("Result " + i)
+                    .entryDate(i < 5 ? new Date(1_000_000L + (i / 2) * 1000L) : null)
+                    .build());
+        }
+
+        entries.add(ResultHistory.builder()
+                .username("otherUsername")
+                .title("Other result")
+                .entryDate(new Date(5_000_000L))
+                .build());
+
+        entries.forEach(mongoOperations::insert);
+
+        Comparator<ResultHistory> byDate = Comparator.comparing(ResultHistory::getEntryDate,
+                Comparator.nullsFirst(Comparator.<Date>naturalOrder()));
+
+        newestFirst = entries.stream()
+                .filter(entry -> entry.getUsername().equals("testUsername"))
+                .sorted(byDate.thenComparing(ResultHistory::getId).reversed())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPagesWalkWholeHistoryNewestFirst() {
+
+        List<ResultHistory> walked = new ArrayList<>();
+        ResultHistoryCursor cursor = null;
+
+        while(true) {
+
+            List<ResultHistory> page = resultHistoryRepository.findByUsernameAfter("testUsername", cursor, 2);
+
+            if(page.isEmpty())
+                break;
+
+            Assertions.assertTrue(page.size() <= 2);
+
+            walked.addAll(page);
+            cursor = ResultHistoryCursor.of(page.get(page.size() - 1));
+        }
+
+        Assertions.assertEquals(newestFirst.stream().map(ResultHistory::getId).collect(Collectors.toList()),
+                walked.stream().map(ResultHistory::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testCursorSurvivesItsOwnTextForm() {
+
+        ResultHistoryCursor cursor = ResultHistoryCursor.parse(
+                ResultHistoryCursor.of(newestFirst.get(2)).toString());
+
+        List<ResultHistory> page = resultHistoryRepository.findByUsernameAfter("testUsername", cursor, 10);
+
+        Assertions.assertEquals(newestFirst.size() - 3, page.size());
+        Assertions.assertEquals(newestFirst.get(3).getId(), page.get(0).getId());
+    }
+
+    @Test
+    public void testUnorderedInsertStoresAllButTheDuplicates() {
+
+        ResultHistory duplicate = ResultHistory.builder()
+                .id(newestFirst.get(0).getId())
+                .username("bulkUsername")
+                .title("Duplicate")
+                .build();
+
+        List<ResultHistory> chunk = Arrays.asList(
+                ResultHistory.builder().username("bulkUsername").title("First").build(),
+                duplicate,
+                ResultHistory.builder().username("bulkUsername").title("Last").build());
+
+        Map<Integer, String> failures = resultHistoryRepository.insertUnordered(chunk);
+
+        Assertions.assertEquals(Collections.singleton(1), failures.keySet());
+
+        //unordered: the entry after the failed one is stored as well
+        Assertions.assertEquals(2, resultHistoryRepository.findByUsernameAfter("bulkUsername", null, 10).size());
+    }
+
+    @Test
+    public void testUnorderedInsertFailsUnmappableEntriesAlone() {
+
+        //Mongo field names cannot contain dots, so the mapper refuses this entry
+        Map<String, Object> dottedAttributes = new HashMap<>();
+        dottedAttributes.put("x.y", 10);
+
+        List<ResultHistory> chunk = Arrays.asList(
+                ResultHistory.builder().username("mappingUsername").title("First").build(),
+                ResultHistory.builder().username("mappingUsername").title("Dotted")
+                        .calculationAttributes(dottedAttributes).build(),
+                ResultHistory.builder().username("mappingUsername").title("Last").build());
+
+        Map<Integer, String> failures = resultHistoryRepository.insertUnordered(chunk);
+
+        Assertions.assertEquals(Collections.singleton(1), failures.keySet());
+        Assertions.assertEquals(2, resultHistoryRepository.findByUsernameAfter("mappingUsername", null, 10).size());
+    }
+
+    @Test
+    public void testUnorderedUpsertStoresEachIdOnce() {
+
+        ResultHistory entry = ResultHistory.builder()
+                .id(new ObjectId().toHexString())
+                .username("upsertUsername")
+                .title("Spilled")
+                .build();
+
+        Assertions.assertTrue(resultHistoryRepository.upsertUnordered(Collections.singletonList(entry)).isEmpty());
+
+        //replaying the same entry again, as after a replay cut short, overwrites rather than duplicates it
+        ResultHistory replayed = entry.toBuilder().title("Replayed").build();
+
+        Assertions.assertTrue(resultHistoryRepository.upsertUnordered(Collections.singletonList(replayed)).isEmpty());
+
+        List<ResultHistory> stored = resultHistoryRepository.findByUsernameAfter("upsertUsername", null, 10);
+
+        Assertions.assertEquals(1, stored.size());
+        Assertions.assertEquals(entry.getId(), stored.get(0).getId());
+        Assertions.assertEquals("Replayed", stored.get(0).getTitle());
+    }
+}
@@ -63,11 +63,6 @@ public class SiteUserRepositoryTests {
         mongoOperations.insert(pythagoreanTheorem, "formulas");
         mongoOperations.insert(mhzToMeters, "formulas");
 
-        List<Formula> formulaList = new ArrayList<>();
-        formulaList.add(areaCircle);
-        formulaList.add(pythagoreanTheorem);
-        formulaList.add(mhzToMeters);
-
         Role userRole = new Role();
         userRole.setUsername("testUsername");
         userRole.setRoleName("ROLE_USER");
@@ -78,7 +73,7 @@ public class SiteUserRepositoryTests {
                 .username("testUsername")
                 .password("testPassword")
                 .email("test@email.com")
-                .favoritesList(formulaList)
+                .favorites(Arrays.asList("areaCircle", "pythagoreanTheorem", "mhzToMeters"))
                 .roles(roles)
                 .build();
 
@@ -93,7 +88,7 @@ public class SiteUserRepositoryTests {
                 .username("testUsername2")
                 .password("testPassword2")
                 .email("test2@email.com")
-                .favoritesList(new ArrayList<>())
+                .favorites(new ArrayList<>())
                 .roles(new HashSet<>())
                 .build();
 
@@ -105,7 +100,7 @@ public class SiteUserRepositoryTests {
                 .hasFieldOrPropertyWithValue("username", "testUsername2")
                 .hasFieldOrPropertyWithValue("password", "testPassword2")
                 .hasFieldOrPropertyWithValue("email", "test2@email.com")
-                .hasFieldOrProperty("favoritesList")
+                .hasFieldOrProperty("favorites")
                 .hasFieldOrProperty("roles");
     }
 
@@ -136,7 +131,7 @@ public class SiteUserRepositoryTests {
                 .username("testUsername3")
                 .password("testPassword3")
                 .email("test3@email.com")
-                .favoritesList(new ArrayList<>())
+                .favorites(new ArrayList<>())
                 .roles(new HashSet<>())
                 .build();
 
@@ -152,7 +147,7 @@ public class SiteUserRepositoryTests {
                 .isInstanceOf(SiteUser.class)
                 .isEqualTo(testUser3);
 
-        //create some formulas to add to favoritesList
+        //create some formulas to add to favorites
         Formula areaCircle = Formula.builder()
                 .formulaName("areaCircle")
                 .formulaUrl("/areaCircle")
@@ -167,9 +162,9 @@ public class SiteUserRepositoryTests {
                 .displayName("Pythagorean Theorem")
                 .build();
 
-        List<Formula> formulaList = new ArrayList<>();
-        formulaList.add(areaCircle);
-        formulaList.add(pythagoreanTheorem);
+        List<String> favorites = new ArrayList<>();
+        favorites.add(areaCircle.getFormulaName());
+        favorites.add(pythagoreanTheorem.getFormulaName());
 
         //we will put a Role in here too
         Role userRole = new Role();
@@ -179,7 +174,7 @@ public class SiteUserRepositoryTests {
         Set<Role> roles = new HashSet<Role>();
 
         //make a change to the user persisted at top of method
-        testUser3.setFavoritesList(formulaList);
+        testUser3.setFavorites(favorites);
         testUser3.setRoles(roles);
 
         //persist the updates to user persisted at top of method and store in new SiteUser
@@ -190,7 +185,7 @@ public class SiteUserRepositoryTests {
 
         //make sure the changes we made are what we pulled out of the hat
         assertThat(fetchedUserAfterChanges)
-                .hasFieldOrPropertyWithValue("favoritesList", formulaList)
+                .hasFieldOrPropertyWithValue("favorites", favorites)
                 .hasFieldOrPropertyWithValue("roles", roles);
     }
 
@@ -202,7 +197,7 @@ public class SiteUserRepositoryTests {
                 .username("testUsername4")
                 .password("testPassword4")
                 .email("test4@email.com")
-                .favoritesList(new ArrayList<>())
+                .favorites(new ArrayList<>())
                 .roles(new HashSet<>())
                 .build();
 
@@ -216,6 +211,106 @@ public class SiteUserRepositoryTests {
         assertThat(!siteUserRepository.existsById(testUser4.getUsername()));
     }
 
+    @Test
+    public void testFavoritesUpdatesAreAppliedServerSide() {
+
+        SiteUser testUser5 = SiteUser.builder()
+                .username("testUsername5")
+                .password("testPassword5")
+                .email("test5@email.com")
+                .favorites(new ArrayList<>(Collections.singletonList("areaCircle")))
+                .roles(new HashSet<>())
+                .build();
+
+        siteUserRepository.save(testUser5);
+
+        //adding twice leaves a single entry
+        siteUserRepository.addFavorite("testUsername5", "mhzToMeters");
+        SiteUser afterAdd = siteUserRepository.addFavorite("testUsername5", "mhzToMeters").get();
+
+        Assertions.assertEquals(Arrays.asList("areaCircle", "mhzToMeters"), afterAdd.getFavorites());
+
+        //only the favorites are read back
+        Assertions.assertEquals("testUsername5", afterAdd.getUsername());
+        Assertions.assertNull(afterAdd.getPassword());
+        Assertions.assertNull(afterAdd.getRoles());
+
+        SiteUser afterRemove = siteUserRepository.removeFavorite("testUsername5", "areaCircle").get();
+
+        Assertions.assertEquals(Collections.singletonList("mhzToMeters"), afterRemove.getFavorites());
+
+        SiteUser afterReplace = siteUserRepository.replaceFavorites("testUsername5",
+                Arrays.asList("pythagoreanTheorem", "mhzToMeters")).get();
+
+        Assertions.assertEquals(Arrays.asList("pythagoreanTheorem", "mhzToMeters"), afterReplace.getFavorites());
+        SiteUser stored = siteUserRepository.findById("testUsername5").get();
+
+        Assertions.assertEquals(afterReplace.getFavorites(), stored.getFavorites());
+        Assertions.assertEquals("testPassword5", stored.getPassword());
+    }
+
+    @Test
+    public void testUpdatePasswordLeavesFavoritesAlone() {
+
+        siteUserRepository.save(SiteUser.builder()
+                .username("testUsername7")
+                .password("testPassword7")
+                .email("test7@email.com")
+                .favorites(new ArrayList<>(Collections.singletonList("areaCircle")))
+                .roles(new HashSet<>())
+                .build());
+
+        //a favorites update lands between another request's read of the user and its password change
+        siteUserRepository.addFavorite("testUsername7", "mhzToMeters");
+
+        Assertions.assertTrue(siteUserRepository.updatePassword("testUsername7", "newPassword7").isPresent());
+
+        SiteUser stored = siteUserRepository.findById("testUsername7").get();
+
+        Assertions.assertEquals("newPassword7", stored.getPassword());
+        Assertions.assertEquals(Arrays.asList("areaCircle", "mhzToMeters"), stored.getFavorites());
+        Assertions.assertFalse(siteUserRepository.updatePassword("unknown", "newPassword").isPresent());
+    }
+
+    @Test
+    public void testCompareAndSetFavoritesOnlyWritesOverExpectedList() {
+
+        siteUserRepository.save(SiteUser.builder()
+                .username("testUsername6")
+                .password("testPassword6")
+                .email("test6@email.com")
+                .favorites(new ArrayList<>(Collections.singletonList("areaCircle")))
+                .roles(new HashSet<>())
+                .build());
+
+        //stale expectation: nothing written
+        Assertions.assertFalse(siteUserRepository.compareAndSetFavorites("testUsername6",
+                new ArrayList<>(), Collections.singletonList("mhzToMeters")).isPresent());
+
+        SiteUser updated = siteUserRepository.compareAndSetFavorites("testUsername6",
+                Collections.singletonList("areaCircle"), Arrays.asList("mhzToMeters", "areaCircle")).get();
+
+        Assertions.assertEquals(Arrays.asList("mhzToMeters", "areaCircle"), updated.getFavorites());
+    }
+
+    @Test
+    public void testFavoritesUpdateForUnknownUsernameIsEmpty() {
+
+        Assertions.assertFalse(siteUserRepository.addFavorite("unknown", "areaCircle").isPresent());
+        Assertions.assertFalse(siteUserRepository.existsById("unknown"));
+    }
+
+    @Test
+    public void testForEachUsernameAndEmailVisitsStoredUsers() {
+
+        Map<String, String> emails = new HashMap<>();
+
+        siteUserRepository.forEachUsernameAndEmail(emails::put);
+
+        Assertions.assertEquals("test@email.com", emails.get(testUser.getUsername()));
+        Assertions.assertEquals(siteUserRepository.count(), emails.size());
+    }
+
     @Test
     public void testAttemptToDeleteInvalidUsernameDoesNothing() {
 
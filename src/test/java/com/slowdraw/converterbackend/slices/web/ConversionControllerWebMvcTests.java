@@ -0,0 +1,151 @@
+package com.slowdraw.converterbackend.slices.web;
+
+import com.slowdraw.converterbackend.catalog.FormulaCatalog;
+import com.slowdraw.converterbackend.controller.ConversionController;
+import com.slowdraw.converterbackend.domain.Formula;
+import com.slowdraw.converterbackend.repository.FormulasRepository;
+import com.slowdraw.converterbackend.security.JwtAuthenticationEntryPoint;
+import com.slowdraw.converterbackend.security.JwtAuthenticationFilter;
+import com.slowdraw.converterbackend.security.JwtTokenProvider;
+import com.slowdraw.converterbackend.service.ConversionService;
+import com.slowdraw.converterbackend.service.FormulaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.AutoConfigureDataMongo;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(controllers = ConversionController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@Import(ConversionService.class)
+@AutoConfigureDataMongo
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ConversionControllerWebMvcTests {
+
+    @MockBean
+    private FormulaService formulaService;
+
+    @MockBean
+    private FormulasRepository formulasRepository;
+
+    @MockBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    @MockBean
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @MockBean
+    private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    //mock beans are reset after every test, so the catalog is stubbed again each time
+    @BeforeEach
+    void initTests() {
+
+        Formula waterHeat = Formula.builder()
+                .formulaName("waterHeat")
+                .formulaUrl("/waterHeat")
+                .category("Physics")
+                .displayName("Water Heat")
+                .expression("4184 * t")
+                .inputUnit("degC")
+                .outputUnit("J")
+                .build();
+
+        Formula hourlyPower = Formula.builder()
+                .formulaName("hourlyPower")
+                .formulaUrl("/hourlyPower")
+                .category("Physics")
+                .displayName("Hourly Power")
+                .expression("energy / 3600")
+                .inputUnit("J")
+                .outputUnit("W")
+                .build();
+
+        given(formulaService.getCatalog())
+                .willReturn(FormulaCatalog.of(Arrays.asList(waterHeat, hourlyPower)));
+    }
+
+    @Test
+    public void testConvertBetweenRegisteredUnits() throws Exception {
+
+        mockMvc.perform(get("/convert")
+                .param("from", "mi")
+                .param("to", "km")
+                .param("value", "1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.from", is("mi")))
+                .andExpect(jsonPath("$.to", is("km")))
+                .andExpect(jsonPath("$.dimension", is("length")))
+                .andExpect(jsonPath("$.result", closeTo(1.609344, 1e-12)));
+    }
+
+    @Test
+    public void testConvertCompoundUnit() throws Exception {
+
+        mockMvc.perform(get("/convert")
+                .param("from", "kg*m/s^2")
+                .param("to", "lbf")
+                .param("value", "4.4482216152605"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.dimension", is("force")))
+                .andExpect(jsonPath("$.result", closeTo(1.0, 1e-12)));
+    }
+
+    @Test
+    public void testConvertIncompatibleUnitsGivesBadRequest() throws Exception {
+
+        mockMvc.perform(get("/convert")
+                .param("from", "kg")
+                .param("to", "m")
+                .param("value", "1"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.conversionError", startsWith("Cannot convert kg")));
+    }
+
+    @Test
+    public void testConvertAlongPathChainsFormulas() throws Exception {
+
+        mockMvc.perform(get("/convert/path")
+                .param("from", "degF")
+                .param("to", "kW")
+                .param("value", "212"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.path", contains("waterHeat", "hourlyPower")))
+                .andExpect(jsonPath("$.result", closeTo(4184.0 * 100 / 3600 / 1000, 1e-9)));
+    }
+
+    @Test
+    public void testConvertAlongPathWithoutRouteGivesBadRequest() throws Exception {
+
+        mockMvc.perform(get("/convert/path")
+                .param("from", "W")
+                .param("to", "degC")
+                .param("value", "1"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.conversionError", startsWith("No conversion path")));
+    }
+}
@@ -1,14 +1,24 @@
 package com.slowdraw.converterbackend.slices.web;
 
+import com.slowdraw.converterbackend.assembler.FormulaCatalogResponseCache;
 import com.slowdraw.converterbackend.assembler.FormulaEntityModelAssembler;
+import com.slowdraw.converterbackend.catalog.FormulaCatalog;
 import com.slowdraw.converterbackend.controller.FormulaController;
 import com.slowdraw.converterbackend.domain.Formula;
+import com.slowdraw.converterbackend.evaluation.BatchEvaluator;
+import com.slowdraw.converterbackend.evaluation.CompiledFormula;
+import com.slowdraw.converterbackend.evaluation.EvaluationMode;
+import com.slowdraw.converterbackend.evaluation.Rational;
+import com.slowdraw.converterbackend.evaluation.TableGenerator;
+import com.slowdraw.converterbackend.exception.EvaluationException;
 import com.slowdraw.converterbackend.repository.FormulasRepository;
 import com.slowdraw.converterbackend.security.JwtAuthenticationEntryPoint;
 import com.slowdraw.converterbackend.security.JwtAuthenticationFilter;
 import com.slowdraw.converterbackend.security.JwtTokenProvider;
 import com.slowdraw.converterbackend.service.FormulaService;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,27 +30,41 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(controllers = FormulaController.class)
 @AutoConfigureMockMvc(addFilters = false)
-@Import(FormulaEntityModelAssembler.class)
+@Import({FormulaEntityModelAssembler.class, FormulaCatalogResponseCache.class, BatchEvaluator.class,
+        TableGenerator.class})
 @AutoConfigureDataMongo
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class FormulaControllerWebMvcTests {
@@ -72,6 +96,13 @@ public class FormulaControllerWebMvcTests {
 
     private List<Formula> testFormulaList;
 
+    @BeforeEach
+    void stubEvaluationModes() {
+
+        given(formulaService.resolveEvaluationMode(any(), any()))
+                .willAnswer(invocation -> EvaluationMode.forName(invocation.getArgument(1)));
+    }
+
     @BeforeAll
     void initTests() {
 
@@ -126,9 +157,8 @@ public class FormulaControllerWebMvcTests {
         linksList.add(mhzToMetersLink);
         linksList.add(pythagoreanTheoremLink);
 
-        given(formulaService.getAllFormulas())
-                .willReturn(testFormulaList
-                        .stream().collect(Collectors.toSet()));
+        given(formulaService.getCatalog())
+                .willReturn(FormulaCatalog.of(testFormulaList));
 
         mockMvc.perform(get("/formulas")
                 .accept(MediaTypes.HAL_JSON))
@@ -191,4 +221,267 @@ public class FormulaControllerWebMvcTests {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("formulaNotFound", is(FORMULA_NOT_FOUND)));
     }
+
+    @Test
+    public void testGetAllFormulasReturnsNotModifiedForMatchingETag() throws Exception {
+
+        given(formulaService.getCatalog())
+                .willReturn(FormulaCatalog.of(testFormulaList));
+
+        MvcResult firstResult = mockMvc.perform(get("/formulas"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn();
+
+        String eTag = firstResult.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/formulas")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    public void testGetAllFormulasDoesNotMatchTheGzipETagForAnIdentityRequest() throws Exception {
+
+        given(formulaService.getCatalog())
+                .willReturn(FormulaCatalog.of(testFormulaList));
+
+        String gzippedETag = mockMvc.perform(get("/formulas")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/formulas")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, gzippedETag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/formulas")
+                .header(HttpHeaders.IF_NONE_MATCH, gzippedETag))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testGetAllFormulasReturnsGzippedBodyWhenAccepted() throws Exception {
+
+        given(formulaService.getCatalog())
+                .willReturn(FormulaCatalog.of(testFormulaList));
+
+        MvcResult rawResult = mockMvc.perform(get("/formulas"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        byte[] rawBody = rawResult.getResponse().getContentAsByteArray();
+
+        MvcResult gzippedResult = mockMvc.perform(get("/formulas")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn();
+
+        byte[] gzippedBody = gzippedResult.getResponse().getContentAsByteArray();
+
+        //the two codings are different representations, so they must not share a strong validator
+        Assertions.assertNotEquals(rawResult.getResponse().getHeader(HttpHeaders.ETAG),
+                gzippedResult.getResponse().getHeader(HttpHeaders.ETAG));
+
+        try(GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(gzippedBody))) {
+
+            ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+
+            while((read = gzip.read(buffer)) != -1)
+                inflated.write(buffer, 0, read);
+
+            Assertions.assertEquals(new String(rawBody, StandardCharsets.UTF_8),
+                    new String(inflated.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testSearchFormulasReturnsPageWithNavigationLinks() throws Exception {
+
+        List<Formula> mathematicsFormulas = new ArrayList<>();
+        mathematicsFormulas.add(testFormulaList.get(0));
+
+        given(formulaService.searchFormulas("Mathematics", "a", 0, 1))
+                .willReturn(new PageImpl<>(mathematicsFormulas, PageRequest.of(0, 1), 2));
+
+        mockMvc.perform(get("/formulas")
+                .param("category", "Mathematics")
+                .param("q", "a")
+                .param("page", "0")
+                .param("size", "1")
+                .accept(MediaTypes.HAL_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.formulas", hasSize(1)))
+                .andExpect(jsonPath("$._embedded.formulas[0].formulaName",
+                        is(testFormulaList.get(0).getFormulaName())))
+                .andExpect(jsonPath("$.page.totalElements", is(2)))
+                .andExpect(jsonPath("$.page.totalPages", is(2)))
+                .andExpect(jsonPath("$._links.next.href", containsString("page=1")))
+                .andExpect(jsonPath("$._links.prev").doesNotExist());
+    }
+
+    @Test
+    public void testEvaluateFormulaReturnsResult() throws Exception {
+
+        Map<String, Double> inputs = new HashMap<>();
+        inputs.put("r", 2.0);
+
+        given(formulaService.evaluateFormula("areaCircle", inputs, EvaluationMode.DOUBLE))
+                .willReturn(Math.PI * 4);
+
+        mockMvc.perform(post("/formulas/{name}/evaluate", "areaCircle")
+                .content("{\"inputs\": {\"r\": 2.0}}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.formulaName", is("areaCircle")))
+                .andExpect(jsonPath("$.inputs.r", is(2.0)))
+                .andExpect(jsonPath("$.result", closeTo(Math.PI * 4, 1e-9)))
+                .andExpect(jsonPath("$.mode", is("double")));
+    }
+
+    @Test
+    public void testEvaluateFormulaInFastMode() throws Exception {
+
+        Map<String, Double> inputs = new HashMap<>();
+        inputs.put("r", 2.0);
+
+        given(formulaService.evaluateFormula("areaCircle", inputs, EvaluationMode.FAST))
+                .willReturn(Math.PI * 4);
+
+        mockMvc.perform(post("/formulas/{name}/evaluate", "areaCircle")
+                .param("mode", "fast")
+                .content("{\"inputs\": {\"r\": 2.0}}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mode", is("fast")));
+
+        mockMvc.perform(post("/formulas/{name}/evaluate", "areaCircle")
+                .param("mode", "approximate")
+                .content("{\"inputs\": {\"r\": 2.0}}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.evaluationError", startsWith("Unknown evaluation mode")));
+    }
+
+    @Test
+    public void testEvaluateFormulaGivesBadRequestForInvalidInputs() throws Exception {
+
+        given(formulaService.evaluateFormula(eq("areaCircle"), any(), any()))
+                .willThrow(new EvaluationException("Missing input r for formula areaCircle."));
+
+        mockMvc.perform(post("/formulas/{name}/evaluate", "areaCircle")
+                .content("{\"inputs\": {}}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.evaluationError",
+                        is("Missing input r for formula areaCircle.")));
+    }
+
+    @Test
+    public void testEvaluateFormulaBatchStreamsResults() throws Exception {
+
+        given(formulaService.getCompiledFormula("areaCircle"))
+                .willReturn(CompiledFormula.compile("areaCircle", "pi * r^2", null));
+
+        MvcResult mvcResult = mockMvc.perform(post("/formulas/{name}/evaluateBatch", "areaCircle")
+                .content("{\"columns\": {\"r\": [1.0, 2.0, 3.0]}}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.formulaName", is("areaCircle")))
+                .andExpect(jsonPath("$.count", is(3)))
+                .andExpect(jsonPath("$.results[1]", closeTo(Math.PI * 4, 1e-9)))
+                .andExpect(jsonPath("$.results[2]", closeTo(Math.PI * 9, 1e-9)));
+    }
+
+    @Test
+    public void testEvaluateFormulaBatchGivesBadRequestForRaggedColumns() throws Exception {
+
+        given(formulaService.getCompiledFormula("pythagoreanTheorem"))
+                .willReturn(CompiledFormula.compile("pythagoreanTheorem", "sqrt(a^2 + b^2)", null));
+
+        mockMvc.perform(post("/formulas/{name}/evaluateBatch", "pythagoreanTheorem")
+                .content("{\"columns\": {\"a\": [3.0, 5.0], \"b\": [4.0]}}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.evaluationError").exists());
+    }
+
+    @Test
+    public void testFormulaTableStreamsCsvRows() throws Exception {
+
+        given(formulaService.getCompiledFormula("celsiusToFahrenheit"))
+                .willReturn(CompiledFormula.compile("celsiusToFahrenheit", "c * 9 / 5 + 32", null));
+
+        MvcResult mvcResult = mockMvc.perform(get("/formulas/{name}/table", "celsiusToFahrenheit")
+                .param("start", "-40")
+                .param("end", "100")
+                .param("step", "70")
+                .param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("c,result\n-40.0,-40.0\n30.0,86.0\n100.0,212.0\n"));
+    }
+
+    @Test
+    public void testFormulaTableGivesBadRequestForInvalidRange() throws Exception {
+
+        given(formulaService.getCompiledFormula("celsiusToFahrenheit"))
+                .willReturn(CompiledFormula.compile("celsiusToFahrenheit", "c * 9 / 5 + 32", null));
+
+        mockMvc.perform(get("/formulas/{name}/table", "celsiusToFahrenheit")
+                .param("start", "0")
+                .param("end", "10")
+                .param("step", "-1"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.evaluationError").exists());
+    }
+
+    @Test
+    public void testEvaluateFormulaInRationalModeReturnsExactResult() throws Exception {
+
+        Map<String, Double> inputs = new HashMap<>();
+        inputs.put("principal", 0.1);
+        inputs.put("rate", 0.2);
+
+        given(formulaService.evaluateFormulaExactly("simpleInterest", inputs))
+                .willReturn(Rational.of(3, 100));
+
+        mockMvc.perform(post("/formulas/{name}/evaluate", "simpleInterest")
+                .param("mode", "rational")
+                .content("{\"inputs\": {\"principal\": 0.1, \"rate\": 0.2}}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mode", is("rational")))
+                .andExpect(jsonPath("$.exactResult", is("0.03")))
+                .andExpect(jsonPath("$.result", is(0.03)));
+    }
 }
@@ -2,6 +2,7 @@ package com.slowdraw.converterbackend.slices.web;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.slowdraw.converterbackend.controller.LoginController;
+import com.slowdraw.converterbackend.exception.TooManyRequestsException;
 import com.slowdraw.converterbackend.domain.Formula;
 import com.slowdraw.converterbackend.domain.Role;
 import com.slowdraw.converterbackend.domain.SiteUser;
@@ -11,22 +12,28 @@ import com.slowdraw.converterbackend.repository.SiteUserRepository;
 import com.slowdraw.converterbackend.security.JwtAuthenticationEntryPoint;
 import com.slowdraw.converterbackend.security.JwtAuthenticationFilter;
 import com.slowdraw.converterbackend.security.JwtTokenProvider;
+import com.slowdraw.converterbackend.security.LoginThrottle;
+import com.slowdraw.converterbackend.security.PasswordHashingExecutor;
 import com.slowdraw.converterbackend.service.SiteUserService;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.AutoConfigureDataMongo;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
@@ -47,6 +54,7 @@ import static org.mockito.BDDMockito.given;
 @WebMvcTest(LoginController.class)
 @AutoConfigureMockMvc(addFilters = false)
 @AutoConfigureDataMongo
+@Import(PasswordHashingExecutor.class)
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class LoginControllerWebMvcTests {
 
@@ -74,6 +82,9 @@ public class LoginControllerWebMvcTests {
     @MockBean
     private PasswordEncoder passwordEncoder;
 
+    @MockBean
+    private LoginThrottle loginThrottle;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -122,8 +133,13 @@ public class LoginControllerWebMvcTests {
         will just be null. Integration tests are more appropriate for that
         portion of testing.
          */
-        mockMvc.perform(post("/auth/login")
+        //login completes on the password hashing pool, so the response arrives on an async dispatch
+        MvcResult started = mockMvc.perform(post("/auth/login")
                 .content(loginJson).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
@@ -132,6 +148,89 @@ public class LoginControllerWebMvcTests {
                 .andReturn();
     }
 
+    @Test
+    public void testThrottledLoginIsRejectedBeforeAuthenticating() throws Exception {
+
+        willThrow(new TooManyRequestsException("Too many login attempts; try again later."))
+                .given(loginThrottle).checkLoginAttempt(eq("throttledUsername"), anyString());
+
+        String loginJson = "{\"username\":\"throttledUsername\",\"password\":\"testPassword\"}";
+
+        mockMvc.perform(post("/auth/login")
+                .content(loginJson).contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isTooManyRequests());
+
+        verify(authenticationManager, never()).authenticate(any());
+    }
+
+    @Test
+    public void testRegisterHashesPasswordOffTheRequestThread() throws Exception {
+
+        given(siteUserService.isUsernameTaken("newUsername")).willReturn(false);
+        given(passwordEncoder.encode("newPassword")).willReturn("hashedPassword");
+
+        String registerJson = "{\"username\":\"newUsername\",\"password\":\"newPassword\"," +
+                "\"email\":\"new@email.com\"}";
+
+        MvcResult started = mockMvc.perform(post("/auth/register")
+                .content(registerJson).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andDo(print())
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.success", is(true)));
+
+        verify(siteUserService).reserveUser("newUsername", "new@email.com");
+        verify(siteUserRepository).insert(argThat((SiteUser user) -> "hashedPassword".equals(user.getPassword())));
+        verify(siteUserRepository, never()).save(ArgumentMatchers.any(SiteUser.class));
+    }
+
+    @Test
+    public void testRegisterRejectsUsernameTakenWhileHashing() throws Exception {
+
+        given(siteUserService.isUsernameTaken("racedUsername")).willReturn(false);
+        given(passwordEncoder.encode("newPassword")).willReturn("hashedPassword");
+        given(siteUserRepository.insert(ArgumentMatchers.any(SiteUser.class)))
+                .willThrow(new DuplicateKeyException("E11000 duplicate key error"));
+
+        String registerJson = "{\"username\":\"racedUsername\",\"password\":\"newPassword\"," +
+                "\"email\":\"new@email.com\"}";
+
+        MvcResult started = mockMvc.perform(post("/auth/register")
+                .content(registerJson).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success", is(false)));
+    }
+
+    @Test
+    public void testRegisterRejectsTakenUsernameWithoutHashing() throws Exception {
+
+        given(siteUserService.isUsernameTaken(testUser.getUsername())).willReturn(true);
+
+        String registerJson = "{\"username\":\"testUsername\",\"password\":\"newPassword\"," +
+                "\"email\":\"new@email.com\"}";
+
+        MvcResult started = mockMvc.perform(post("/auth/register")
+                .content(registerJson).contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success", is(false)));
+
+        verify(passwordEncoder, never()).encode(anyString());
+    }
+
     @Test
     public void testGetUsernameAvailabilityGivesTrueIfAvailable() throws Exception {
 
@@ -15,12 +15,15 @@ import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
 import com.slowdraw.converterbackend.security.JwtAuthenticationEntryPoint;
 import com.slowdraw.converterbackend.security.JwtAuthenticationFilter;
 import com.slowdraw.converterbackend.security.JwtTokenProvider;
+import com.slowdraw.converterbackend.service.ResultHistoryBulkImporter;
+import com.slowdraw.converterbackend.service.ResultHistoryExporter;
 import com.slowdraw.converterbackend.service.ResultHistoryService;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
@@ -32,6 +35,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -40,6 +44,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.JsonPathResultMatchers;
 
 import java.util.*;
@@ -56,7 +61,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(controllers = ResultHistoryController.class)
 @AutoConfigureMockMvc(addFilters = false)
-@Import({ResultHistoryEntityModelAssembler.class, ResultHistoryAssembleLinksForDeleteMethods.class})
+@Import({ResultHistoryEntityModelAssembler.class, ResultHistoryAssembleLinksForDeleteMethods.class,
+        ResultHistoryExporter.class, ResultHistoryBulkImporter.class})
 @AutoConfigureDataMongo
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class ResultHistoryControllerWebMvcTests {
@@ -242,7 +248,7 @@ public class ResultHistoryControllerWebMvcTests {
     @WithMockUser(roles = "USER")
     public void testGetAllUsernameResultHistoryReturnsAllResults() throws Exception {
 
-        given(resultHistoryService.findAllByUsername(testUser.getUsername()))
+        given(resultHistoryService.findPageByUsername(eq(testUser.getUsername()), isNull(), anyInt()))
                 .willReturn(testResultHistoryList.stream().collect(Collectors.toList()));
 
         mockMvc.perform(get("/resultHistory/{username}", testUser.getUsername())
@@ -284,6 +290,136 @@ public class ResultHistoryControllerWebMvcTests {
                 .andReturn();
     }
 
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testGetUsernameResultHistoryLinksToNextPage() throws Exception {
+
+        List<ResultHistory> stored = mongoOperations.findAll(ResultHistory.class);
+        ResultHistory lastOnPage = stored.get(1);
+
+        //asked for 2, the controller requests one more to learn that a next page exists
+        given(resultHistoryService.findPageByUsername(testUser.getUsername(), null, 3))
+                .willReturn(stored);
+
+        mockMvc.perform(get("/resultHistory/{username}", testUser.getUsername())
+                .param("limit", "2")
+                .accept(MediaTypes.HAL_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.resultHistories", hasSize(2)))
+                .andExpect(jsonPath("$._links.next.href", is(String.format(
+                        "http://localhost/resultHistory/%s?after=%d,%s&limit=2",
+                        testUser.getUsername(), lastOnPage.getEntryDate().getTime(), lastOnPage.getId()))));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testGetUsernameResultHistoryLastPageHasNoNextLink() throws Exception {
+
+        ResultHistory last = mongoOperations.findAll(ResultHistory.class).get(0);
+        String after = last.getEntryDate().getTime() + "," + last.getId();
+
+        given(resultHistoryService.findPageByUsername(eq(testUser.getUsername()), any(), eq(3)))
+                .willReturn(Collections.singletonList(last));
+
+        mockMvc.perform(get("/resultHistory/{username}", testUser.getUsername())
+                .param("after", after)
+                .param("limit", "2")
+                .accept(MediaTypes.HAL_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.resultHistories", hasSize(1)))
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+
+        verify(resultHistoryService).findPageByUsername(eq(testUser.getUsername()),
+                argThat(cursor -> cursor.getId().equals(last.getId())
+                        && cursor.getEntryDate().equals(last.getEntryDate())), eq(3));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testGetUsernameResultHistoryRejectsMalformedCursor() throws Exception {
+
+        mockMvc.perform(get("/resultHistory/{username}", testUser.getUsername())
+                .param("after", "yesterday"))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testExportStreamsHistoryAsCsvAttachment() throws Exception {
+
+        Iterator<ResultHistory> entries = mongoOperations.findAll(ResultHistory.class).iterator();
+
+        given(resultHistoryRepository.streamByUsername(eq(testUser.getUsername()), anyInt()))
+                .willReturn(new CloseableIterator<ResultHistory>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public ResultHistory next() {
+                        return entries.next();
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                });
+
+        MvcResult mvcResult = mockMvc.perform(get("/resultHistory/{username}/export", testUser.getUsername())
+                .param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        containsString("testUsername-result-history.csv")))
+                .andExpect(content().string(Matchers.startsWith("id,username,title,message,entryDate,calculationAttributes\n")))
+                .andExpect(content().string(containsString("Result 3")));
+
+        verify(resultHistoryService, never()).findAllByUsername(any());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testBulkSaveAcceptsNdjsonAndReportsEachItem() throws Exception {
+
+        String ndjson = "{\"username\":\"testUsername\",\"title\":\"Offline 1\"}\n"
+                + "{\"username\":\"testUsername\",\"title\":\"Offline 2\"}\n";
+
+        mockMvc.perform(post("/resultHistory/bulk")
+                .contentType("application/x-ndjson")
+                .content(ndjson))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted", is(2)))
+                .andExpect(jsonPath("$.failed", is(0)))
+                .andExpect(jsonPath("$.results[*].index", contains(0, 1)))
+                .andExpect(jsonPath("$.results[*].success", contains(true, true)))
+                .andExpect(jsonPath("$.results[0].id").exists())
+                .andExpect(jsonPath("$.results[0].error").doesNotExist());
+
+        verify(resultHistoryRepository).insertUnordered(argThat(chunk -> chunk.size() == 2));
+        verify(resultHistoryRepository, never()).save(ArgumentMatchers.any(ResultHistory.class));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testExportRejectsUnknownFormat() throws Exception {
+
+        mockMvc.perform(get("/resultHistory/{username}/export", testUser.getUsername())
+                .param("format", "xml"))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(roles = "USER")
     public void testGetUsernameResultHistoryThrowsNoResultResponseWhenNoResultHistoryPresent()
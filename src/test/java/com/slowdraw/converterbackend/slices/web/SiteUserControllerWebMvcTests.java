@@ -10,6 +10,7 @@ import com.slowdraw.converterbackend.domain.Role;
 import com.slowdraw.converterbackend.domain.SiteUser;
 import com.slowdraw.converterbackend.exception.UserAdvice;
 import com.slowdraw.converterbackend.exception.UserException;
+import com.slowdraw.converterbackend.payload.FavoritesOperation;
 import com.slowdraw.converterbackend.repository.FormulasRepository;
 import com.slowdraw.converterbackend.repository.SiteUserRepository;
 import com.slowdraw.converterbackend.security.JwtAuthenticationEntryPoint;
@@ -394,6 +395,47 @@ public class SiteUserControllerWebMvcTests {
                 .andExpect(jsonPath("userNotFound", is(USERNAME_NOT_FOUND)));
     }
 
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testPatchFavoritesAppliesOperationsInOneCall() throws Exception {
+
+        List<FavoritesOperation> operations = Arrays.asList(
+                new FavoritesOperation("remove", "areaCircle", null),
+                new FavoritesOperation("move", "mhzToMeters", 0));
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("operations", operations);
+
+        given(siteUserService.patchFavorites(testUser.getUsername(), operations))
+                .willReturn(testUser);
+
+        mockMvc.perform(patch("/user/{username}/favorites", testUser.getUsername())
+                .content(new ObjectMapper().writeValueAsString(body))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaTypes.HAL_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("username", is(testUser.getUsername())))
+                .andExpect(jsonPath("$.favoritesList[*].formulaName",
+                        containsInAnyOrder(testUser.getFavoritesList().stream()
+                                .map(Formula::getFormulaName).toArray())));
+
+        then(siteUserService).should().patchFavorites(testUser.getUsername(), operations);
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testPatchFavoritesRejectsEmptyOperations() throws Exception {
+
+        mockMvc.perform(patch("/user/{username}/favorites", testUser.getUsername())
+                .content("{\"operations\":[]}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest());
+
+        then(siteUserService).shouldHaveNoMoreInteractions();
+    }
+
     @Test
     @WithMockUser(roles = "USER")
     public void testDeleteFormulaFromFavoritesListWorks() throws Exception {
@@ -0,0 +1,61 @@
+package com.slowdraw.converterbackend.unit.cache;
+
+import com.slowdraw.converterbackend.cache.BloomFilter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BloomFilterUnitTests {
+
+    @Test
+    public void testPutValuesAreAlwaysFound() {
+
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+
+        for(int i = 0; i < 1000; i++)
+            filter.put("user" + i);
+
+        for(int i = 0; i < 1000; i++)
+            Assertions.assertTrue(filter.mightContain("user" + i));
+
+        Assertions.assertEquals(1000, filter.getInsertions());
+        Assertions.assertFalse(filter.isSaturated());
+    }
+
+    @Test
+    public void testFalsePositiveRateStaysNearTarget() {
+
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+
+        for(int i = 0; i < 10000; i++)
+            filter.put("user" + i + "@email.com");
+
+        int falsePositives = 0;
+
+        for(int i = 0; i < 10000; i++)
+            if(filter.mightContain("other" + i + "@email.com"))
+                falsePositives++;
+
+        //1% expected; allow for variance
+        Assertions.assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+    }
+
+    @Test
+    public void testSaturatedOncePastExpectedInsertions() {
+
+        BloomFilter filter = new BloomFilter(2, 0.01);
+
+        filter.put("first");
+        filter.put("second");
+        Assertions.assertFalse(filter.isSaturated());
+
+        filter.put("third");
+        Assertions.assertTrue(filter.isSaturated());
+    }
+
+    @Test
+    public void testRejectsInvalidSizing() {
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BloomFilter(10, 1.0));
+    }
+}
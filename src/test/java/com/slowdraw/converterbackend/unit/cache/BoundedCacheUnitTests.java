@@ -0,0 +1,97 @@
+package com.slowdraw.converterbackend.unit.cache;
+
+import com.slowdraw.converterbackend.cache.BoundedCache;
+import com.slowdraw.converterbackend.cache.CacheCounters;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BoundedCacheUnitTests {
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2, 1, new CacheCounters("test"));
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        //touch a so b becomes the eldest
+        Assertions.assertEquals(Integer.valueOf(1), cache.get("a"));
+
+        cache.put("c", 3);
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertNull(cache.get("b"));
+        Assertions.assertEquals(Integer.valueOf(1), cache.get("a"));
+        Assertions.assertEquals(Integer.valueOf(3), cache.get("c"));
+
+        Assertions.assertEquals(3, cache.getCounters().getHits());
+        Assertions.assertEquals(1, cache.getCounters().getMisses());
+        Assertions.assertEquals(1, cache.getCounters().getEvictions());
+    }
+
+    @Test
+    public void testComputeIfAbsentLoadsOnceAndSkipsFailures() {
+
+        BoundedCache<String, Integer> cache = new BoundedCache<>("test", 16);
+        AtomicInteger loads = new AtomicInteger();
+
+        Assertions.assertEquals(Integer.valueOf(3), cache.computeIfAbsent("abc", key -> {
+            loads.incrementAndGet();
+            return key.length();
+        }));
+        Assertions.assertEquals(Integer.valueOf(3), cache.computeIfAbsent("abc", key -> {
+            loads.incrementAndGet();
+            return key.length();
+        }));
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, cache.getCounters().getHits());
+        Assertions.assertEquals(1, cache.getCounters().getMisses());
+
+        Assertions.assertThrows(IllegalStateException.class, () -> cache.computeIfAbsent("bad", key -> {
+            throw new IllegalStateException(key);
+        }));
+        Assertions.assertNull(cache.get("bad"));
+    }
+
+    @Test
+    public void testEntriesExpireAfterWrite() {
+
+        AtomicLong now = new AtomicLong();
+        BoundedCache<String, Integer> cache = new BoundedCache<>(16, 1, new CacheCounters("test"),
+                Duration.ofSeconds(60), now::get);
+
+        cache.put("a", 1);
+        now.addAndGet(Duration.ofSeconds(59).toNanos());
+
+        Assertions.assertEquals(Integer.valueOf(1), cache.get("a"));
+
+        //reads do not extend the lifetime of an entry
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        Assertions.assertNull(cache.get("a"));
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(1, cache.getCounters().getEvictions());
+        Assertions.assertEquals(0.5, cache.getCounters().getHitRatio());
+    }
+
+    @Test
+    public void testLoadOverlappingInvalidationIsNotCached() {
+
+        BoundedCache<String, Integer> cache = new BoundedCache<>(16, 1, new CacheCounters("test"));
+
+        //a write lands while the old value is being loaded
+        Assertions.assertEquals(Integer.valueOf(1), cache.computeIfAbsent("a", key -> {
+            cache.invalidate(key);
+            return 1;
+        }));
+
+        Assertions.assertNull(cache.get("a"));
+        Assertions.assertEquals(Integer.valueOf(2), cache.computeIfAbsent("a", key -> 2));
+        Assertions.assertEquals(Integer.valueOf(2), cache.get("a"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.slowdraw.converterbackend.unit.conversion;
+
+import com.slowdraw.converterbackend.catalog.FormulaCatalog;
+import com.slowdraw.converterbackend.conversion.ConversionGraph;
+import com.slowdraw.converterbackend.conversion.Dimension;
+import com.slowdraw.converterbackend.conversion.StandardUnits;
+import com.slowdraw.converterbackend.conversion.UnitRegistry;
+import com.slowdraw.converterbackend.domain.Formula;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ConversionGraphUnitTests {
+
+    private static final Dimension ENERGY =
+            Dimension.MASS.multiply(Dimension.LENGTH.pow(2)).divide(Dimension.TIME.pow(2));
+
+    private static final Dimension POWER = ENERGY.divide(Dimension.TIME);
+
+    private final UnitRegistry unitRegistry = StandardUnits.registry();
+
+    private List<Formula> testFormulaList;
+
+    @BeforeEach
+    void initTests() {
+
+        //heat for one kilogram of water warmed from freezing
+        Formula waterHeat = Formula.builder()
+                .formulaName("waterHeat")
+                .displayName("Water Heat")
+                .expression("4184 * t")
+                .inputUnit("degC")
+                .outputUnit("kJ")
+                .build();
+
+        Formula hourlyPower = Formula.builder()
+                .formulaName("hourlyPower")
+                .displayName("Hourly Power")
+                .expression("energy / 3600")
+                .inputUnit("J")
+                .outputUnit("W")
+                .build();
+
+        //two inputs, so never an edge even though units are declared
+        Formula kineticEnergy = Formula.builder()
+                .formulaName("kineticEnergy")
+                .displayName("Kinetic Energy")
+                .expression("0.5 * m * v^2")
+                .inputUnit("kg")
+                .outputUnit("J")
+                .build();
+
+        testFormulaList = new ArrayList<>(Arrays.asList(waterHeat, hourlyPower, kineticEnergy));
+    }
+
+    @Test
+    public void testChainedRouteIsFusedAcrossFormulas() {
+
+        ConversionGraph graph = ConversionGraph.build(unitRegistry, FormulaCatalog.of(testFormulaList));
+
+        ConversionGraph.Route route = graph.findRoute(Dimension.TEMPERATURE, POWER)
+                .orElseThrow(AssertionError::new);
+
+        Assertions.assertEquals(Arrays.asList("waterHeat", "hourlyPower"), route.getFormulaNames());
+
+        //25 degC = 298.15 K in base units; 4184 * 25 kJ = 104600000 J; / 3600 -> W
+        Assertions.assertEquals(4184.0 * 25 * 1000 / 3600, route.apply(298.15), 1e-6);
+    }
+
+    @Test
+    public void testSameDimensionIsIdentityAndUnreachableHasNoRoute() {
+
+        ConversionGraph graph = ConversionGraph.build(unitRegistry, FormulaCatalog.of(testFormulaList));
+
+        Assertions.assertTrue(graph.findRoute(Dimension.LENGTH, Dimension.LENGTH)
+                .orElseThrow(AssertionError::new).getFormulaNames().isEmpty());
+
+        Assertions.assertFalse(graph.findRoute(POWER, Dimension.TEMPERATURE).isPresent());
+        Assertions.assertFalse(graph.findRoute(Dimension.MASS, ENERGY).isPresent());
+    }
+}
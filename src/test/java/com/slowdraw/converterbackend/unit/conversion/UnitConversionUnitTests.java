@@ -0,0 +1,63 @@
+package com.slowdraw.converterbackend.unit.conversion;
+
+import com.slowdraw.converterbackend.conversion.Dimension;
+import com.slowdraw.converterbackend.conversion.StandardUnits;
+import com.slowdraw.converterbackend.conversion.Unit;
+import com.slowdraw.converterbackend.conversion.UnitParser;
+import com.slowdraw.converterbackend.conversion.UnitRegistry;
+import com.slowdraw.converterbackend.exception.ConversionException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class UnitConversionUnitTests {
+
+    private final UnitRegistry unitRegistry = StandardUnits.registry();
+
+    private double convert(double value, String from, String to) {
+        return unitRegistry.convert(value,
+                UnitParser.parse(from, unitRegistry),
+                UnitParser.parse(to, unitRegistry));
+    }
+
+    @Test
+    public void testRegisteredUnitsConvertWithinFamily() {
+
+        Assertions.assertEquals(1.609344, convert(1, "mi", "km"), 1e-12);
+        Assertions.assertEquals(12.0, convert(1, "ft", "in"), 1e-12);
+        Assertions.assertEquals(3.6e6, convert(1, "kWh", "J"), 1e-6);
+        Assertions.assertEquals(1.0, convert(1, "mile", "Miles"), 1e-12);
+    }
+
+    @Test
+    public void testTemperatureOffsetsAreApplied() {
+
+        Assertions.assertEquals(212.0, convert(100, "\u00b0C", "\u00b0F"), 1e-9);
+        Assertions.assertEquals(-40.0, convert(-40, "degF", "celsius"), 1e-9);
+        Assertions.assertEquals(273.15, convert(0, "\u00b0C", "K"), 1e-9);
+    }
+
+    @Test
+    public void testCompoundUnitsAreCheckedByDimension() {
+
+        Unit newtonLike = UnitParser.parse("kg\u00b7m/s\u00b2", unitRegistry);
+
+        Assertions.assertEquals(Dimension.MASS.multiply(Dimension.LENGTH).divide(Dimension.TIME.pow(2)),
+                newtonLike.getDimension());
+        Assertions.assertEquals("force", unitRegistry.getFamilyName(newtonLike.getDimension()));
+
+        Assertions.assertEquals(5.0, convert(5, "kg*m/s^2", "N"), 1e-12);
+        Assertions.assertEquals(100.0, convert(360, "km/h", "m/s"), 1e-9);
+        Assertions.assertEquals(1.0, convert(1, "1/s", "Hz"), 1e-12);
+        Assertions.assertEquals(1e4, convert(1, "ha", "m\u00b2"), 1e-9);
+    }
+
+    @Test
+    public void testIncompatibleOrInvalidUnitsAreRejected() {
+
+        Assertions.assertThrows(ConversionException.class, () -> convert(1, "kg", "m"));
+        Assertions.assertThrows(ConversionException.class, () -> convert(1, "furlong", "m"));
+        Assertions.assertThrows(ConversionException.class, () -> convert(1, "\u00b0C\u00b7m", "K\u00b7m"));
+        Assertions.assertThrows(ConversionException.class, () -> convert(1, "kg//s", "kg/s"));
+        Assertions.assertThrows(ConversionException.class, () -> convert(1, "Mm", "m"));
+    }
+}
@@ -0,0 +1,73 @@
+package com.slowdraw.converterbackend.unit.evaluation;
+
+import com.slowdraw.converterbackend.evaluation.BatchEvaluator;
+import com.slowdraw.converterbackend.evaluation.CompiledFormula;
+import com.slowdraw.converterbackend.exception.EvaluationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class BatchEvaluatorUnitTests {
+
+    private final CompiledFormula pythagoreanTheorem =
+            CompiledFormula.compile("pythagoreanTheorem", "sqrt(a^2 + b^2)", null);
+
+    @Test
+    public void testSplitBatchMatchesSingleRowEvaluation() {
+
+        //tiny split threshold forces the fork/join path
+        BatchEvaluator batchEvaluator = new BatchEvaluator(4, 64, 1_000_000);
+
+        int rows = 10_000;
+
+        double[] a = new double[rows];
+        double[] b = new double[rows];
+
+        for(int i = 0; i < rows; i++) {
+            a[i] = i * 0.5;
+            b[i] = rows - i;
+        }
+
+        Map<String, double[]> columns = new HashMap<>();
+        columns.put("a", a);
+        columns.put("b", b);
+
+        double[] results = batchEvaluator.evaluate(pythagoreanTheorem, columns);
+
+        Assertions.assertEquals(rows, results.length);
+
+        for(int i = 0; i < rows; i++)
+            Assertions.assertEquals(Math.sqrt(a[i] * a[i] + b[i] * b[i]), results[i], 1e-9);
+
+        batchEvaluator.shutdown();
+    }
+
+    @Test
+    public void testMissingRaggedOrOversizedColumnsAreRejected() {
+
+        BatchEvaluator batchEvaluator = new BatchEvaluator(1, 16384, 3);
+
+        Map<String, double[]> missing = new HashMap<>();
+        missing.put("a", new double[]{1, 2});
+
+        Assertions.assertThrows(EvaluationException.class, () ->
+                batchEvaluator.evaluate(pythagoreanTheorem, missing));
+
+        Map<String, double[]> ragged = new HashMap<>(missing);
+        ragged.put("b", new double[]{1});
+
+        Assertions.assertThrows(EvaluationException.class, () ->
+                batchEvaluator.evaluate(pythagoreanTheorem, ragged));
+
+        Map<String, double[]> oversized = new HashMap<>();
+        oversized.put("a", new double[4]);
+        oversized.put("b", new double[4]);
+
+        Assertions.assertThrows(EvaluationException.class, () ->
+                batchEvaluator.evaluate(pythagoreanTheorem, oversized));
+
+        batchEvaluator.shutdown();
+    }
+}
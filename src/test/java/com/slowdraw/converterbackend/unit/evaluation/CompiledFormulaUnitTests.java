@@ -0,0 +1,80 @@
+package com.slowdraw.converterbackend.unit.evaluation;
+
+import com.slowdraw.converterbackend.evaluation.CompiledFormula;
+import com.slowdraw.converterbackend.evaluation.ExpressionParser;
+import com.slowdraw.converterbackend.exception.EvaluationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class CompiledFormulaUnitTests {
+
+    private static final double TOLERANCE = 1e-12;
+
+    @Test
+    public void testCompiledFormulaEvaluatesWithInferredParameters() {
+
+        CompiledFormula areaCircle = CompiledFormula.compile("areaCircle", "pi * r^2", null);
+
+        Assertions.assertEquals(Arrays.asList("r"), areaCircle.getParameters());
+        Assertions.assertEquals(Math.PI * 4, areaCircle.evaluate(new double[]{2}), TOLERANCE);
+    }
+
+    @Test
+    public void testCompiledFormulaHonorsDeclaredParameterOrder() {
+
+        CompiledFormula pythagoreanTheorem = CompiledFormula.compile("pythagoreanTheorem",
+                "sqrt(b^2 + a^2)", Arrays.asList("a", "b"));
+
+        Map<String, Double> inputs = new HashMap<>();
+        inputs.put("a", 3.0);
+        inputs.put("b", 4.0);
+
+        Assertions.assertEquals(5.0, pythagoreanTheorem.evaluate(inputs), TOLERANCE);
+    }
+
+    @Test
+    public void testOperatorPrecedenceAndAssociativity() {
+
+        Assertions.assertEquals(-4.0,
+                CompiledFormula.compile("x", "-2^2", null).evaluate(new double[0]), TOLERANCE);
+        Assertions.assertEquals(512.0,
+                CompiledFormula.compile("x", "2^3^2", null).evaluate(new double[0]), TOLERANCE);
+        Assertions.assertEquals(212.0,
+                CompiledFormula.compile("x", "c * 9 / 5 + 32", null).evaluate(new double[]{100}), TOLERANCE);
+        Assertions.assertEquals(2.5e-3,
+                CompiledFormula.compile("x", "2.5E-3 * x", null).evaluate(new double[]{1}), TOLERANCE);
+    }
+
+    @Test
+    public void testMissingOrUnknownInputsAreRejected() {
+
+        CompiledFormula pythagoreanTheorem = CompiledFormula.compile("pythagoreanTheorem",
+                "sqrt(a^2 + b^2)", null);
+
+        Map<String, Double> missing = new HashMap<>();
+        missing.put("a", 3.0);
+
+        Assertions.assertThrows(EvaluationException.class, () -> pythagoreanTheorem.evaluate(missing));
+
+        Map<String, Double> unknown = new HashMap<>(missing);
+        unknown.put("b", 4.0);
+        unknown.put("c", 5.0);
+
+        Assertions.assertThrows(EvaluationException.class, () -> pythagoreanTheorem.evaluate(unknown));
+    }
+
+    @Test
+    public void testMalformedExpressionsAreRejected() {
+
+        Assertions.assertThrows(EvaluationException.class, () -> ExpressionParser.parse("2 +* 3"));
+        Assertions.assertThrows(EvaluationException.class, () -> ExpressionParser.parse("(r"));
+        Assertions.assertThrows(EvaluationException.class, () -> ExpressionParser.parse("foo(r)"));
+        Assertions.assertThrows(EvaluationException.class, () -> ExpressionParser.parse("pow(r)"));
+        Assertions.assertThrows(EvaluationException.class, () ->
+                CompiledFormula.compile("x", "a + b", Arrays.asList("a")));
+    }
+}
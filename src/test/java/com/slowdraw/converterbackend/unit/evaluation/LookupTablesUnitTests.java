@@ -0,0 +1,100 @@
+package com.slowdraw.converterbackend.unit.evaluation;
+
+import com.slowdraw.converterbackend.evaluation.CompiledFormula;
+import com.slowdraw.converterbackend.evaluation.EvaluationMode;
+import com.slowdraw.converterbackend.evaluation.LookupTables;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+//property tests: FAST must stay within the declared bounds of the exact path for random inputs
+public class LookupTablesUnitTests {
+
+    private static final long SEED = 20200315L;
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    public void testSinAndCosStayWithinAbsoluteBound() {
+
+        Random random = new Random(SEED);
+
+        for(int i = 0; i < SAMPLES; i++) {
+
+            double x = (random.nextDouble() - 0.5) * 2e5;
+
+            Assertions.assertEquals(Math.sin(x), LookupTables.sin(x), LookupTables.SIN_COS_MAX_ABSOLUTE_ERROR);
+            Assertions.assertEquals(Math.cos(x), LookupTables.cos(x), LookupTables.SIN_COS_MAX_ABSOLUTE_ERROR);
+        }
+    }
+
+    @Test
+    public void testExpStaysWithinRelativeBound() {
+
+        Random random = new Random(SEED);
+
+        for(int i = 0; i < SAMPLES; i++) {
+
+            double x = (random.nextDouble() - 0.5) * 1400;
+            double exact = Math.exp(x);
+
+            Assertions.assertEquals(exact, LookupTables.exp(x), exact * LookupTables.EXP_MAX_RELATIVE_ERROR);
+        }
+    }
+
+    @Test
+    public void testLogStaysWithinAbsoluteBound() {
+
+        Random random = new Random(SEED);
+
+        for(int i = 0; i < SAMPLES; i++) {
+
+            //spread over many binary exponents, not just [0, 1)
+            double x = random.nextDouble() * Math.pow(10, random.nextInt(600) - 300);
+
+            Assertions.assertEquals(Math.log(x), LookupTables.log(x), LookupTables.LOG_MAX_ABSOLUTE_ERROR);
+        }
+    }
+
+    @Test
+    public void testPowStaysWithinRelativeBoundAndKeepsSpecialCases() {
+
+        Random random = new Random(SEED);
+
+        for(int i = 0; i < SAMPLES; i++) {
+
+            double base = random.nextDouble() * 1000;
+            double exponent = (random.nextDouble() - 0.5) * 20;
+            double exact = Math.pow(base, exponent);
+
+            Assertions.assertEquals(exact, LookupTables.pow(base, exponent), Math.abs(exact)
+                    * LookupTables.POW_MAX_RELATIVE_ERROR_PER_EXPONENT * Math.max(1.0, Math.abs(exponent)));
+        }
+
+        Assertions.assertEquals(-8.0, LookupTables.pow(-2.0, 3.0));
+        Assertions.assertEquals(1.0, LookupTables.pow(0.0, 0.0));
+        Assertions.assertTrue(Double.isNaN(LookupTables.log(-1.0)));
+    }
+
+    @Test
+    public void testFastFormulaTracksExactFormula() {
+
+        CompiledFormula exact = CompiledFormula.compile("dampedWave", "exp(-t / 5) * sin(2 * pi * t)", null);
+        CompiledFormula fast = exact.withMode(EvaluationMode.FAST);
+
+        Assertions.assertEquals(EvaluationMode.FAST, fast.getMode());
+        Assertions.assertSame(exact, fast.withMode(EvaluationMode.DOUBLE));
+
+        Random random = new Random(SEED);
+        double[] input = new double[1];
+
+        for(int i = 0; i < SAMPLES; i++) {
+
+            input[0] = random.nextDouble() * 50;
+
+            //|e^a sin b - e^a' sin b'| <= e^a (|sin b - sin b'| + |e^a' / e^a - 1|) and e^a <= 1 here
+            Assertions.assertEquals(exact.evaluate(input), fast.evaluate(input),
+                    LookupTables.SIN_COS_MAX_ABSOLUTE_ERROR + LookupTables.EXP_MAX_RELATIVE_ERROR);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.slowdraw.converterbackend.unit.evaluation;
+
+import com.slowdraw.converterbackend.evaluation.CompiledFormula;
+import com.slowdraw.converterbackend.evaluation.EvaluationMode;
+import com.slowdraw.converterbackend.evaluation.Rational;
+import com.slowdraw.converterbackend.exception.EvaluationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+public class RationalUnitTests {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RationalUnitTests.class);
+
+    @Test
+    public void testDecimalInputsAddWithoutDrift() {
+
+        Rational sum = Rational.valueOf(0.1).add(Rational.valueOf(0.2));
+
+        Assertions.assertEquals(Rational.of(3, 10), sum);
+        Assertions.assertEquals("0.3", sum.toDecimalString());
+        Assertions.assertFalse(sum.isBig());
+
+        Assertions.assertEquals("0.3333333333333333333333333333333333", Rational.of(1, 3).toDecimalString());
+        Assertions.assertEquals("-7/2", Rational.valueOf(-3.5).toString());
+    }
+
+    @Test
+    public void testOverflowSpillsToBigIntegerAndShrinksBack() {
+
+        Rational large = Rational.of(Long.MAX_VALUE);
+        Rational squared = large.multiply(large);
+
+        Assertions.assertTrue(squared.isBig());
+        Assertions.assertEquals(BigInteger.valueOf(Long.MAX_VALUE).pow(2), squared.getNumerator());
+
+        Rational back = squared.divide(large);
+
+        Assertions.assertFalse(back.isBig());
+        Assertions.assertEquals(large, back);
+
+        Assertions.assertEquals(Rational.of(Long.MIN_VALUE).negate().negate(), Rational.of(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testLongPathMatchesBigIntegerPath() {
+
+        Random random = new Random(20200315L);
+
+        for(int i = 0; i < 10_000; i++) {
+
+            long a = random.nextInt(), b = random.nextInt(1_000_000) + 1;
+            long c = random.nextLong() >> random.nextInt(63), d = random.nextInt(1_000_000) + 1;
+
+            Rational left = Rational.of(a, b);
+            Rational right = Rational.of(c, d);
+
+            BigInteger expectedNumerator = BigInteger.valueOf(a).multiply(BigInteger.valueOf(d))
+                    .add(BigInteger.valueOf(c).multiply(BigInteger.valueOf(b)));
+            BigInteger expectedDenominator = BigInteger.valueOf(b).multiply(BigInteger.valueOf(d));
+
+            Assertions.assertEquals(Rational.of(expectedNumerator, expectedDenominator), left.add(right));
+            Assertions.assertEquals(Rational.of(BigInteger.valueOf(a).multiply(BigInteger.valueOf(c)),
+                    expectedDenominator), left.multiply(right));
+        }
+    }
+
+    @Test
+    public void testRoundingFunctionsMatchMath() {
+
+        double[] values = {-2.5, -1.5, -0.4, 0.0, 0.4, 1.5, 2.5, 7.0};
+
+        for(double value : values) {
+
+            Rational rational = Rational.valueOf(value);
+
+            Assertions.assertEquals(Math.floor(value), rational.floor().doubleValue(), 0.0);
+            Assertions.assertEquals(Math.ceil(value), rational.ceil().doubleValue(), 0.0);
+            Assertions.assertEquals((double) Math.round(value), rational.round().doubleValue(), 0.0);
+            Assertions.assertEquals(value % 0.75, rational.remainder(Rational.valueOf(0.75)).doubleValue(), 1e-15);
+        }
+    }
+
+    @Test
+    public void testRationalFormulaModes() {
+
+        CompiledFormula compoundInterest =
+                CompiledFormula.compile("compoundInterest", "p * (1 + r / 12)^(12 * y)", null);
+
+        Rational exact = compoundInterest.evaluateExactly(new double[]{1000, 0.06, 2});
+
+        Assertions.assertTrue(exact.isBig());
+        Assertions.assertEquals(1000 * Math.pow(1.005, 24), exact.doubleValue(), 1e-9);
+        Assertions.assertEquals(exact.doubleValue(),
+                compoundInterest.withMode(EvaluationMode.RATIONAL).evaluate(new double[]{1000, 0.06, 2}));
+
+        //undefined inputs read as NaN on the double-based paths and as an error on the exact one
+        CompiledFormula ratio = CompiledFormula.compile("ratio", "a / b", null);
+
+        Assertions.assertTrue(Double.isNaN(ratio.withMode(EvaluationMode.RATIONAL).evaluate(new double[]{1, 0})));
+        Assertions.assertThrows(EvaluationException.class, () -> ratio.evaluateExactly(new double[]{1, 0}));
+
+        CompiledFormula wave = CompiledFormula.compile("wave", "sin(x)", null);
+
+        Assertions.assertFalse(wave.supportsMode(EvaluationMode.RATIONAL));
+        Assertions.assertThrows(EvaluationException.class, () -> wave.withMode(EvaluationMode.RATIONAL));
+        Assertions.assertThrows(EvaluationException.class, () ->
+                CompiledFormula.compile("root", "x^0.5", null).withMode(EvaluationMode.RATIONAL));
+    }
+
+    //timing of the exact mode against the double path, off by default: BENCHMARKS=true ./gradlew test
+    //--tests '*RationalUnitTests'. a plain timing loop rather than JMH, so read the ratios, not the nanoseconds
+    @Test
+    @EnabledIfEnvironmentVariable(named = "BENCHMARKS", matches = "true")
+    public void benchmarkRationalModeAgainstDouble() {
+
+        //stays on the long fast path: two-decimal inputs and small denominators
+        CompiledFormula invoice = CompiledFormula.compile("invoice", "(q * p - d) * (1 + t / 100)", null);
+
+        //spills to BigInteger: the 24th power of 1 + r / 12 has a 60-digit denominator
+        CompiledFormula compoundInterest =
+                CompiledFormula.compile("compoundInterest", "p * (1 + r / 12)^(12 * y)", null);
+
+        Random random = new Random(20200315L);
+        double[][] invoiceInputs = new double[1024][];
+        double[][] interestInputs = new double[1024][];
+
+        for(int i = 0; i < invoiceInputs.length; i++) {
+            invoiceInputs[i] = new double[]{random.nextInt(50) + 1, (random.nextInt(100_000) + 1) / 100.0,
+                    random.nextInt(1_000) / 100.0, random.nextInt(25)};
+            interestInputs[i] = new double[]{random.nextInt(100_000) + 1, (random.nextInt(10) + 1) / 100.0, 2};
+        }
+
+        time("long path", invoice, invoiceInputs, 200);
+        time("BigInteger path", compoundInterest, interestInputs, 20);
+    }
+
+    private static void time(String label, CompiledFormula formula, double[][] inputs, int rounds) {
+
+        CompiledFormula exact = formula.withMode(EvaluationMode.RATIONAL);
+
+        //warm-up, and a check that both modes answer the same
+        for(double[] input : inputs)
+            Assertions.assertEquals(formula.evaluate(input), exact.evaluate(input),
+                    Math.abs(formula.evaluate(input)) * 1e-12);
+
+        long doubleNanos = Long.MAX_VALUE;
+        long exactNanos = Long.MAX_VALUE;
+        double sink = 0;
+
+        //best of five, each over rounds passes of the inputs
+        for(int run = 0; run < 5; run++) {
+
+            long start = System.nanoTime();
+
+            for(int round = 0; round < rounds; round++)
+                for(double[] input : inputs)
+                    sink += formula.evaluate(input);
+
+            long middle = System.nanoTime();
+
+            for(int round = 0; round < rounds; round++)
+                for(double[] input : inputs)
+                    sink += exact.evaluate(input);
+
+            doubleNanos = Math.min(doubleNanos, middle - start);
+            exactNanos = Math.min(exactNanos, System.nanoTime() - middle);
+        }
+
+        long evaluations = (long) rounds * inputs.length;
+
+        LOGGER.info("{} ({}): double {} ns/op, rational {} ns/op, {}x",
+                label, formula.getFormulaName(),
+                String.format("%.1f", (double) doubleNanos / evaluations),
+                String.format("%.1f", (double) exactNanos / evaluations),
+                String.format("%.1f", (double) exactNanos / doubleNanos));
+
+        //keeps the loops from being optimized away
+        Assertions.assertFalse(Double.isNaN(sink));
+    }
+}
@@ -0,0 +1,100 @@
+package com.slowdraw.converterbackend.unit.evaluation;
+
+import com.slowdraw.converterbackend.evaluation.CompiledFormula;
+import com.slowdraw.converterbackend.evaluation.TableFormat;
+import com.slowdraw.converterbackend.evaluation.TableGenerator;
+import com.slowdraw.converterbackend.exception.EvaluationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class TableGeneratorUnitTests {
+
+    private final CompiledFormula celsiusToFahrenheit =
+            CompiledFormula.compile("celsiusToFahrenheit", "c * 9 / 5 + 32", null);
+
+    private final TableGenerator tableGenerator = new TableGenerator(10_000_000);
+
+    @Test
+    public void testCsvTableIncludesBothEndpoints() throws IOException {
+
+        TableGenerator.Table table = tableGenerator.prepare(celsiusToFahrenheit, 0, 1, 0.1);
+
+        Assertions.assertEquals(11, table.getRows());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        table.writeTo(outputStream, TableFormat.CSV);
+
+        String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+
+        Assertions.assertEquals(12, lines.length);
+        Assertions.assertEquals("c,result", lines[0]);
+        Assertions.assertEquals("0.0,32.0", lines[1]);
+        Assertions.assertEquals("1.0,33.8", lines[11]);
+    }
+
+    @Test
+    public void testNdjsonWritesUndefinedResultsAsNull() throws IOException {
+
+        CompiledFormula reciprocal = CompiledFormula.compile("reciprocal", "1 / x", null);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        tableGenerator.prepare(reciprocal, -1, 1, 1).writeTo(outputStream, TableFormat.NDJSON);
+
+        Assertions.assertEquals("{\"x\":-1.0,\"result\":-1.0}\n"
+                        + "{\"x\":0.0,\"result\":null}\n"
+                        + "{\"x\":1.0,\"result\":1.0}\n",
+                new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testMillionRowTableIsStreamedWithoutBuffering() throws IOException {
+
+        long[] bytes = new long[1];
+        int[] largestWrite = new int[1];
+
+        OutputStream countingStream = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytes[0] += len;
+                largestWrite[0] = Math.max(largestWrite[0], len);
+            }
+        };
+
+        TableGenerator.Table table = tableGenerator.prepare(celsiusToFahrenheit, -100, 1000, 0.0011);
+
+        Assertions.assertEquals(1_000_001, table.getRows());
+
+        table.writeTo(countingStream, TableFormat.NDJSON);
+
+        Assertions.assertTrue(bytes[0] > 1_000_000 * 20);
+        Assertions.assertTrue(largestWrite[0] < 64 * 1024);
+    }
+
+    @Test
+    public void testInvalidTablesAreRejected() {
+
+        CompiledFormula pythagoreanTheorem =
+                CompiledFormula.compile("pythagoreanTheorem", "sqrt(a^2 + b^2)", null);
+
+        Assertions.assertThrows(EvaluationException.class, () ->
+                tableGenerator.prepare(pythagoreanTheorem, 0, 1, 1));
+        Assertions.assertThrows(EvaluationException.class, () ->
+                tableGenerator.prepare(celsiusToFahrenheit, 0, 1, 0));
+        Assertions.assertThrows(EvaluationException.class, () ->
+                tableGenerator.prepare(celsiusToFahrenheit, 1, 0, 1));
+        Assertions.assertThrows(EvaluationException.class, () ->
+                tableGenerator.prepare(celsiusToFahrenheit, 0, 1e9, 1e-3));
+        Assertions.assertThrows(EvaluationException.class, () ->
+                TableFormat.forName("xml"));
+    }
+}
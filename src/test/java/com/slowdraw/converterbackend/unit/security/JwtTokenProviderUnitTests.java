@@ -0,0 +1,91 @@
+package com.slowdraw.converterbackend.unit.security;
+
+import com.slowdraw.converterbackend.security.JwtTokenProvider;
+import com.slowdraw.converterbackend.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Date;
+
+public class JwtTokenProviderUnitTests {
+
+    private static final String SECRET = "JWTSuperSecretSquirrel";
+
+    private JwtTokenProvider jwtTokenProvider;
+
+    private UsernamePasswordAuthenticationToken authentication;
+
+    @BeforeEach
+    void initTokenProvider() {
+
+        jwtTokenProvider = new JwtTokenProvider();
+
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationInMs", 60_000);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedCacheSize", 16);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedCacheTtlMs", 60_000L);
+        ReflectionTestUtils.invokeMethod(jwtTokenProvider, "init");
+
+        UserPrincipal principal = new UserPrincipal("testUsername", "test@email.com", null,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    @Test
+    public void testRepeatedTokenIsVerifiedOnce() {
+
+        String token = jwtTokenProvider.generateToken(authentication);
+
+        Claims first = jwtTokenProvider.verifyToken(token);
+        Claims second = jwtTokenProvider.verifyToken(token);
+
+        Assertions.assertEquals("testUsername", first.getSubject());
+        Assertions.assertEquals(Collections.singletonList("ROLE_USER"), first.get("roles"));
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, jwtTokenProvider.getVerifiedCacheCounters().getHits());
+        Assertions.assertEquals("testUsername", jwtTokenProvider.getUserIdFromJWT(token));
+    }
+
+    @Test
+    public void testTamperedAndExpiredTokensAreRejected() {
+
+        String token = jwtTokenProvider.generateToken(authentication);
+        String tampered = token.substring(0, token.length() - 4)
+                + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+
+        Assertions.assertNull(jwtTokenProvider.verifyToken(tampered));
+        Assertions.assertFalse(jwtTokenProvider.validateToken(""));
+
+        String expired = Jwts.builder()
+                .setSubject("testUsername")
+                .setIssuedAt(new Date(System.currentTimeMillis() - 120_000))
+                .setExpiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(SignatureAlgorithm.HS512, SECRET)
+                .compact();
+
+        Assertions.assertNull(jwtTokenProvider.verifyToken(expired));
+    }
+
+    @Test
+    public void testTokensSignedWithTheStringSecretStillVerify() {
+
+        //how tokens were signed before the key was derived once at startup
+        String legacyToken = Jwts.builder()
+                .setSubject("testUsername")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(SignatureAlgorithm.HS512, SECRET)
+                .compact();
+
+        Assertions.assertEquals("testUsername", jwtTokenProvider.getUserIdFromJWT(legacyToken));
+    }
+}
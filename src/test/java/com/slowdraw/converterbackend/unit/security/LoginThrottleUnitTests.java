@@ -0,0 +1,48 @@
+package com.slowdraw.converterbackend.unit.security;
+
+import com.slowdraw.converterbackend.exception.TooManyRequestsException;
+import com.slowdraw.converterbackend.security.LoginThrottle;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LoginThrottleUnitTests {
+
+    @Test
+    public void testUsernameLimitAppliesAcrossAddresses() {
+
+        LoginThrottle loginThrottle = new LoginThrottle(60000, 2, 100, 1000);
+
+        loginThrottle.checkLoginAttempt("testUsername", "10.0.0.1");
+        loginThrottle.checkLoginAttempt("testUsername", "10.0.0.2");
+
+        Assertions.assertThrows(TooManyRequestsException.class,
+                () -> loginThrottle.checkLoginAttempt("testUsername", "10.0.0.3"));
+        Assertions.assertEquals(1, loginThrottle.getRejected());
+    }
+
+    @Test
+    public void testAddressLimitAppliesAcrossUsernames() {
+
+        LoginThrottle loginThrottle = new LoginThrottle(60000, 100, 2, 1000);
+
+        loginThrottle.checkLoginAttempt("firstUsername", "10.0.0.1");
+        loginThrottle.checkLoginAttempt("secondUsername", "10.0.0.1");
+
+        Assertions.assertThrows(TooManyRequestsException.class,
+                () -> loginThrottle.checkLoginAttempt("thirdUsername", "10.0.0.1"));
+
+        //another address is unaffected
+        loginThrottle.checkLoginAttempt("thirdUsername", "10.0.0.2");
+    }
+
+    @Test
+    public void testZeroLimitsTurnChecksOff() {
+
+        LoginThrottle loginThrottle = new LoginThrottle(60000, 0, 0, 1000);
+
+        for(int i = 0; i < 100; i++)
+            loginThrottle.checkLoginAttempt("testUsername", "10.0.0.1");
+
+        Assertions.assertEquals(0, loginThrottle.getRejected());
+    }
+}
@@ -0,0 +1,66 @@
+package com.slowdraw.converterbackend.unit.security;
+
+import com.slowdraw.converterbackend.exception.ServiceUnavailableException;
+import com.slowdraw.converterbackend.security.PasswordHashingExecutor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PasswordHashingExecutorUnitTests {
+
+    @Test
+    public void testSubmitRunsWorkOffTheCallingThread() throws Exception {
+
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+
+        try {
+            String worker = executor.submit(() -> Thread.currentThread().getName())
+                    .get(5, TimeUnit.SECONDS);
+
+            Assertions.assertTrue(worker.startsWith("password-hashing-"));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubmitRejectsOnceThreadsAndQueueAreFull() throws Exception {
+
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            CompletableFuture<Boolean> running = executor.submit(() -> {
+                started.countDown();
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            });
+
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            CompletableFuture<Boolean> queued = executor.submit(() -> true);
+
+            Assertions.assertEquals(1, executor.getQueueDepth());
+            Assertions.assertThrows(ServiceUnavailableException.class, () -> executor.submit(() -> true));
+            Assertions.assertEquals(1, executor.getRejected());
+
+            release.countDown();
+
+            Assertions.assertTrue(running.get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(queued.get(5, TimeUnit.SECONDS));
+        }
+        finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.slowdraw.converterbackend.unit.security;
+
+import com.slowdraw.converterbackend.security.PrincipalCache;
+import com.slowdraw.converterbackend.security.SiteUserDetailsService;
+import com.slowdraw.converterbackend.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PrincipalCacheUnitTests {
+
+    @Mock
+    private SiteUserDetailsService siteUserDetailsService;
+
+    private UserPrincipal testPrincipal;
+
+    @BeforeEach
+    void initPrincipal() {
+
+        reset(siteUserDetailsService);
+
+        testPrincipal = new UserPrincipal("testUsername", "test@email.com", "testPassword",
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+
+        doReturn(testPrincipal).when(siteUserDetailsService).loadUserByUsername("testUsername");
+    }
+
+    @Test
+    public void testPrincipalIsLoadedOncePerToken() {
+
+        PrincipalCache principalCache = new PrincipalCache(siteUserDetailsService, 16, 30_000, false);
+
+        Claims firstToken = claims(new Date(1_000_000L));
+
+        Assertions.assertSame(testPrincipal, principalCache.getPrincipal(firstToken));
+        Assertions.assertSame(testPrincipal, principalCache.getPrincipal(firstToken));
+        verify(siteUserDetailsService, times(1)).loadUserByUsername("testUsername");
+
+        //a freshly issued token is its own entry
+        principalCache.getPrincipal(claims(new Date(2_000_000L)));
+        verify(siteUserDetailsService, times(2)).loadUserByUsername("testUsername");
+
+        Assertions.assertEquals(1, principalCache.getCounters().getHits());
+    }
+
+    @Test
+    public void testEvictDropsEveryTokenOfTheUser() {
+
+        PrincipalCache principalCache = new PrincipalCache(siteUserDetailsService, 16, 30_000, false);
+
+        principalCache.getPrincipal(claims(new Date(1_000_000L)));
+        principalCache.getPrincipal(claims(new Date(2_000_000L)));
+
+        principalCache.evict("testUsername");
+
+        principalCache.getPrincipal(claims(new Date(1_000_000L)));
+        principalCache.getPrincipal(claims(new Date(2_000_000L)));
+
+        verify(siteUserDetailsService, times(4)).loadUserByUsername("testUsername");
+    }
+
+    @Test
+    public void testTrustedRoleClaimsSkipTheLookup() {
+
+        PrincipalCache principalCache = new PrincipalCache(siteUserDetailsService, 16, 30_000, true);
+
+        Claims claims = claims(new Date());
+        claims.put("roles", Arrays.asList("ROLE_USER", "ROLE_ADMIN"));
+        claims.put("email", "test@email.com");
+
+        UserPrincipal principal = principalCache.getPrincipal(claims);
+
+        Assertions.assertEquals("testUsername", principal.getUsername());
+        Assertions.assertEquals("test@email.com", principal.getEmail());
+        Assertions.assertEquals(Arrays.asList("ROLE_USER", "ROLE_ADMIN"), principal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList()));
+        verifyNoMoreInteractions(siteUserDetailsService);
+
+        //tokens without role claims fall back to the lookup
+        Assertions.assertSame(testPrincipal, principalCache.getPrincipal(claims(new Date())));
+    }
+
+    private static Claims claims(Date issuedAt) {
+        return Jwts.claims().setSubject("testUsername").setIssuedAt(issuedAt);
+    }
+}
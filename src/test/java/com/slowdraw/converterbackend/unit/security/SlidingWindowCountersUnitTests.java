@@ -0,0 +1,88 @@
+package com.slowdraw.converterbackend.unit.security;
+
+import com.slowdraw.converterbackend.security.SlidingWindowCounters;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SlidingWindowCountersUnitTests {
+
+    private AtomicLong clock;
+
+    private SlidingWindowCounters counters;
+
+    @BeforeEach
+    void initCounters() {
+
+        clock = new AtomicLong(1_000_000L);
+        counters = new SlidingWindowCounters(3, Duration.ofMillis(1000), 4, 1, clock::get);
+    }
+
+    @Test
+    public void testTryAcquireStopsAtLimitWithinWindow() {
+
+        Assertions.assertTrue(counters.tryAcquire("testUsername"));
+        Assertions.assertTrue(counters.tryAcquire("testUsername"));
+        Assertions.assertTrue(counters.tryAcquire("testUsername"));
+        Assertions.assertFalse(counters.tryAcquire("testUsername"));
+
+        //keys are limited independently
+        Assertions.assertTrue(counters.tryAcquire("otherUsername"));
+    }
+
+    @Test
+    public void testPreviousWindowIsWeightedByOverlap() {
+
+        for(int i = 0; i < 3; i++)
+            Assertions.assertTrue(counters.tryAcquire("testUsername"));
+
+        //a tenth into the next window, 90% of the previous three still counts: 2.7 + 1 > 3
+        clock.addAndGet(1100);
+        Assertions.assertFalse(counters.tryAcquire("testUsername"));
+
+        //halfway in only 1.5 counts, which leaves room for one more
+        clock.addAndGet(400);
+        Assertions.assertTrue(counters.tryAcquire("testUsername"));
+        Assertions.assertFalse(counters.tryAcquire("testUsername"));
+
+        //two windows on, nothing from before counts
+        clock.addAndGet(1500);
+        for(int i = 0; i < 3; i++)
+            Assertions.assertTrue(counters.tryAcquire("testUsername"));
+    }
+
+    @Test
+    public void testIdleKeysAreSweptToMakeRoom() {
+
+        for(int i = 0; i < 4; i++)
+            Assertions.assertTrue(counters.tryAcquire("user" + i));
+
+        Assertions.assertEquals(4, counters.size());
+
+        clock.addAndGet(2500);
+
+        Assertions.assertTrue(counters.tryAcquire("newUsername"));
+        Assertions.assertEquals(1, counters.size());
+    }
+
+    @Test
+    public void testFullShardTurnsNewKeysAwayUntilTheNextSweep() {
+
+        for(int i = 0; i < 4; i++)
+            Assertions.assertTrue(counters.tryAcquire("user" + i));
+
+        Assertions.assertFalse(counters.tryAcquire("newUsername"));
+        Assertions.assertEquals(1, counters.getOverflowRejections());
+        Assertions.assertEquals(4, counters.size());
+
+        //keys already tracked keep their own budget
+        Assertions.assertTrue(counters.tryAcquire("user0"));
+
+        //once the old keys have gone idle for a full window they are swept and new keys are counted again
+        clock.addAndGet(2500);
+        Assertions.assertTrue(counters.tryAcquire("newUsername"));
+    }
+}
@@ -1,8 +1,11 @@
 package com.slowdraw.converterbackend.unit.service;
 
+import com.slowdraw.converterbackend.catalog.FormulaCatalog;
 import com.slowdraw.converterbackend.domain.Formula;
 import com.slowdraw.converterbackend.domain.Role;
 import com.slowdraw.converterbackend.domain.SiteUser;
+import com.slowdraw.converterbackend.exception.BadRequestException;
+import com.slowdraw.converterbackend.exception.EvaluationException;
 import com.slowdraw.converterbackend.exception.FormulaException;
 import com.slowdraw.converterbackend.exception.UserException;
 import com.slowdraw.converterbackend.repository.FormulasRepository;
@@ -17,7 +20,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.text.Normalizer;
 import java.util.*;
@@ -86,6 +91,8 @@ public class FormulaServiceUnitTests {
 
         when(formulasRepository.findAll()).thenReturn(testFormulaList);
 
+        formulaService.refreshCatalog();
+
         Set<Formula> checkReturnSet = formulaService.getAllFormulas();
 
         Assertions.assertEquals(testFormulaListSize, checkReturnSet.size());
@@ -95,8 +102,9 @@ public class FormulaServiceUnitTests {
     @Test
     public void testGetSingleFormulaWorks() {
 
-        when(formulasRepository.findById(any(String.class)))
-                .thenReturn(Optional.ofNullable(testFormulaList.get(0)));
+        when(formulasRepository.findAll()).thenReturn(testFormulaList);
+
+        formulaService.refreshCatalog();
 
         Formula checkFormula =
                 formulaService
@@ -110,11 +118,9 @@ public class FormulaServiceUnitTests {
     @Test
     public void testGetSingleFormulaThrowsFormulaExceptionWhenNotFound() {
 
-        when(formulasRepository.findById(any(String.class)))
-                .thenThrow(new FormulaException(
-                        String.format(
-                                FORMULA_NOT_FOUND,
-                                testFormulaList.get(0).getFormulaName())));
+        when(formulasRepository.findAll()).thenReturn(new ArrayList<>());
+
+        formulaService.refreshCatalog();
 
         Exception exceptMe = Assertions.assertThrows(FormulaException.class, () ->
                 formulaService
@@ -126,4 +132,173 @@ public class FormulaServiceUnitTests {
                 testFormulaList.get(0).getFormulaName()),
                 exceptMe.getMessage());
     }
+
+    @Test
+    public void testGetSingleFormulaIsServedFromCatalogWithoutRepositoryLookup() {
+
+        when(formulasRepository.findAll()).thenReturn(testFormulaList);
+
+        formulaService.refreshCatalog();
+
+        for(Formula formula : testFormulaList) {
+            Assertions.assertEquals(formula,
+                    formulaService.getSingleFormulaInfo(formula.getFormulaName()));
+        }
+
+        verify(formulasRepository, never()).findById(any(String.class));
+    }
+
+    @Test
+    public void testRefreshCatalogKeepsSnapshotWhenCollectionUnchanged() {
+
+        when(formulasRepository.findAll()).thenReturn(testFormulaList);
+
+        formulaService.refreshCatalog();
+
+        FormulaCatalog firstCatalog = formulaService.getCatalog();
+
+        formulaService.refreshCatalog();
+
+        Assertions.assertSame(firstCatalog, formulaService.getCatalog());
+    }
+
+    @Test
+    public void testRefreshCatalogSwapsSnapshotWhenCollectionChanges() {
+
+        when(formulasRepository.findAll()).thenReturn(testFormulaList);
+
+        formulaService.refreshCatalog();
+
+        FormulaCatalog firstCatalog = formulaService.getCatalog();
+
+        List<Formula> changedFormulaList = new ArrayList<>(testFormulaList);
+        changedFormulaList.remove(0);
+
+        when(formulasRepository.findAll()).thenReturn(changedFormulaList);
+
+        formulaService.refreshCatalog();
+
+        Assertions.assertNotSame(firstCatalog, formulaService.getCatalog());
+        Assertions.assertEquals(changedFormulaList.size(), formulaService.getAllFormulas().size());
+        Assertions.assertEquals(1,
+                formulaService.getCatalog().getFormulasInCategory("Mathematics").size());
+    }
+
+    @Test
+    public void testSearchFormulasMatchesWordPrefixesInDisplayOrder() {
+
+        when(formulasRepository.findAll()).thenReturn(testFormulaList);
+
+        formulaService.refreshCatalog();
+
+        Page<Formula> checkPage = formulaService.searchFormulas(null, "circ", 0, 10);
+
+        Assertions.assertEquals(1, checkPage.getTotalElements());
+        Assertions.assertEquals("areaCircle", checkPage.getContent().get(0).getFormulaName());
+
+        Page<Formula> mixedCasePage = formulaService.searchFormulas(null, "PYTHAG", 0, 10);
+
+        Assertions.assertEquals("pythagoreanTheorem",
+                mixedCasePage.getContent().get(0).getFormulaName());
+
+        Assertions.assertTrue(formulaService.searchFormulas(null, "zzz", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testSearchFormulasFiltersByCategoryAndPages() {
+
+        when(formulasRepository.findAll()).thenReturn(testFormulaList);
+
+        formulaService.refreshCatalog();
+
+        Page<Formula> firstPage = formulaService.searchFormulas("Mathematics", null, 0, 1);
+
+        Assertions.assertEquals(2, firstPage.getTotalElements());
+        Assertions.assertEquals(2, firstPage.getTotalPages());
+        Assertions.assertEquals("Area of a Circle", firstPage.getContent().get(0).getDisplayName());
+
+        Page<Formula> secondPage = formulaService.searchFormulas("Mathematics", null, 1, 1);
+
+        Assertions.assertEquals("Pythagorean Theorem",
+                secondPage.getContent().get(0).getDisplayName());
+
+        Assertions.assertTrue(formulaService.searchFormulas("Physics", "area", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testSearchFormulasRejectsInvalidPageRequest() {
+
+        Assertions.assertThrows(BadRequestException.class, () ->
+                formulaService.searchFormulas(null, null, -1, 10));
+
+        Assertions.assertThrows(BadRequestException.class, () ->
+                formulaService.searchFormulas(null, null, 0, 0));
+    }
+
+    @Test
+    public void testEvaluateFormulaUsesCompiledExpression() {
+
+        List<Formula> evaluableFormulaList = new ArrayList<>(testFormulaList);
+        evaluableFormulaList.set(0, testFormulaList.get(0).toBuilder()
+                .expression("pi * r^2")
+                .build());
+
+        when(formulasRepository.findAll()).thenReturn(evaluableFormulaList);
+
+        formulaService.refreshCatalog();
+
+        Map<String, Double> inputs = new HashMap<>();
+        inputs.put("r", 2.0);
+
+        Assertions.assertEquals(Math.PI * 4,
+                formulaService.evaluateFormula("areaCircle", inputs), 1e-12);
+
+        Assertions.assertSame(formulaService.getCompiledFormula("areaCircle"),
+                formulaService.getCompiledFormula("areaCircle"));
+    }
+
+    @Test
+    public void testEvaluateFormulaWithoutExpressionThrowsEvaluationException() {
+
+        when(formulasRepository.findAll()).thenReturn(testFormulaList);
+
+        formulaService.refreshCatalog();
+
+        Assertions.assertThrows(EvaluationException.class, () ->
+                formulaService.evaluateFormula("mhzToMeters", new HashMap<>()));
+
+        Assertions.assertThrows(FormulaException.class, () ->
+                formulaService.evaluateFormula("unknown", new HashMap<>()));
+    }
+
+    @Test
+    public void testRepeatedEvaluationIsServedFromResultCache() {
+
+        ReflectionTestUtils.setField(formulaService, "resultCacheSize", 16);
+
+        List<Formula> evaluableFormulaList = new ArrayList<>(testFormulaList);
+        evaluableFormulaList.set(0, testFormulaList.get(0).toBuilder()
+                .expression("pi * r^2")
+                .build());
+
+        when(formulasRepository.findAll()).thenReturn(evaluableFormulaList);
+
+        formulaService.refreshCatalog();
+
+        long hits = formulaService.getResultCacheCounters().getHits();
+        long misses = formulaService.getResultCacheCounters().getMisses();
+
+        Map<String, Double> inputs = new HashMap<>();
+        inputs.put("r", 3.0);
+
+        Assertions.assertEquals(Math.PI * 9,
+                formulaService.evaluateFormula("areaCircle", inputs), 1e-12);
+        Assertions.assertEquals(Math.PI * 9,
+                formulaService.evaluateFormula("areaCircle", inputs), 1e-12);
+
+        Assertions.assertEquals(hits + 1, formulaService.getResultCacheCounters().getHits());
+        Assertions.assertEquals(misses + 1, formulaService.getResultCacheCounters().getMisses());
+
+        ReflectionTestUtils.setField(formulaService, "resultCacheSize", 0);
+    }
 }
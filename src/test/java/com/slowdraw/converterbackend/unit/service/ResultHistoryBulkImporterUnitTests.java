@@ -0,0 +1,130 @@
+package com.slowdraw.converterbackend.unit.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.exception.BadRequestException;
+import com.slowdraw.converterbackend.payload.BulkInsertResponse;
+import com.slowdraw.converterbackend.payload.BulkItemResult;
+import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
+import com.slowdraw.converterbackend.service.ResultHistoryBulkImporter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class ResultHistoryBulkImporterUnitTests {
+
+    private ResultHistoryRepository resultHistoryRepository;
+
+    private ResultHistoryBulkImporter resultHistoryBulkImporter;
+
+    private List<List<String>> insertedChunks;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void initImporter() {
+
+        insertedChunks = new ArrayList<>();
+        resultHistoryRepository = mock(ResultHistoryRepository.class);
+
+        //every entry titled "duplicate" is refused by the database
+        doAnswer(invocation -> {
+
+            List<ResultHistory> chunk = invocation.getArgument(0);
+            Map<Integer, String> failures = new HashMap<>();
+
+            insertedChunks.add(chunk.stream().map(ResultHistory::getTitle).collect(Collectors.toList()));
+
+            for(int i = 0; i < chunk.size(); i++)
+                if("duplicate".equals(chunk.get(i).getTitle()))
+                    failures.put(i, "E11000 duplicate key error");
+
+            return failures;
+        }).when(resultHistoryRepository).insertUnordered(anyList());
+
+        resultHistoryBulkImporter = new ResultHistoryBulkImporter(resultHistoryRepository, new ObjectMapper());
+        ReflectionTestUtils.setField(resultHistoryBulkImporter, "chunkSize", 2);
+        ReflectionTestUtils.setField(resultHistoryBulkImporter, "maxItems", 100);
+    }
+
+    @Test
+    public void testArrayIsInsertedInChunksWithPerItemResults() throws Exception {
+
+        BulkInsertResponse response = resultHistoryBulkImporter.importFrom(body(
+                "[{\"title\":\"a\"},{\"title\":\"duplicate\",\"id\":\"fixedId\"},{\"title\":\"c\"}]"));
+
+        Assertions.assertEquals(Arrays.asList(Arrays.asList("a", "duplicate"), Collections.singletonList("c")),
+                insertedChunks);
+        Assertions.assertEquals(2, response.getInserted());
+        Assertions.assertEquals(1, response.getFailed());
+
+        List<BulkItemResult> results = response.getResults();
+
+        Assertions.assertEquals(Arrays.asList(0, 1, 2),
+                results.stream().map(BulkItemResult::getIndex).collect(Collectors.toList()));
+        Assertions.assertTrue(results.get(0).isSuccess());
+        Assertions.assertNotNull(results.get(0).getId());
+        Assertions.assertFalse(results.get(1).isSuccess());
+        Assertions.assertTrue(results.get(1).getError().contains("duplicate key"));
+        Assertions.assertTrue(results.get(2).isSuccess());
+    }
+
+    @Test
+    public void testNdjsonItemThatIsNotAnEntryFailsAlone() throws Exception {
+
+        BulkInsertResponse response = resultHistoryBulkImporter.importFrom(body(
+                "{\"title\":\"a\"}\n{\"title\":{\"not\":\"text\"}}\n{\"title\":\"c\"}\n"));
+
+        Assertions.assertEquals(Collections.singletonList(Arrays.asList("a", "c")), insertedChunks);
+        Assertions.assertEquals(2, response.getInserted());
+        Assertions.assertFalse(response.getResults().get(1).isSuccess());
+        Assertions.assertEquals(1, response.getResults().get(1).getIndex());
+        Assertions.assertEquals(2, response.getResults().get(2).getIndex());
+    }
+
+    @Test
+    public void testBrokenSyntaxStopsReadingButKeepsEarlierItems() throws Exception {
+
+        BulkInsertResponse response = resultHistoryBulkImporter.importFrom(body(
+                "{\"title\":\"a\"}\n{\"title\": oops}\n{\"title\":\"c\"}\n"));
+
+        Assertions.assertEquals(Collections.singletonList(Collections.singletonList("a")), insertedChunks);
+        Assertions.assertEquals(1, response.getInserted());
+        Assertions.assertEquals(1, response.getFailed());
+        Assertions.assertEquals(2, response.getResults().size());
+    }
+
+    @Test
+    public void testItemsPastTheLimitAreNotRead() throws Exception {
+
+        ReflectionTestUtils.setField(resultHistoryBulkImporter, "maxItems", 2);
+
+        BulkInsertResponse response = resultHistoryBulkImporter.importFrom(body(
+                "[{\"title\":\"a\"},{\"title\":\"b\"},{\"title\":\"c\"},{\"title\":\"d\"}]"));
+
+        Assertions.assertEquals(2, response.getInserted());
+        Assertions.assertEquals(1, response.getFailed());
+        Assertions.assertEquals(2, response.getResults().get(2).getIndex());
+    }
+
+    @Test
+    public void testBodyThatIsNotJsonIsBadRequest() {
+
+        Assertions.assertThrows(BadRequestException.class,
+                () -> resultHistoryBulkImporter.importFrom(body("not json")));
+        verify(resultHistoryRepository, never()).insertUnordered(anyList());
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
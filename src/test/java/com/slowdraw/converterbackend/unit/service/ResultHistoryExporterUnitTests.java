@@ -0,0 +1,124 @@
+package com.slowdraw.converterbackend.unit.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.exception.BadRequestException;
+import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
+import com.slowdraw.converterbackend.service.ResultHistoryExportFormat;
+import com.slowdraw.converterbackend.service.ResultHistoryExporter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ResultHistoryExporterUnitTests {
+
+    private ResultHistoryRepository resultHistoryRepository;
+
+    private ResultHistoryExporter resultHistoryExporter;
+
+    private boolean cursorClosed;
+
+    @BeforeEach
+    void initExporter() {
+
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("x", 10);
+        attributes.put("result", 2300);
+
+        List<ResultHistory> entries = Arrays.asList(
+                ResultHistory.builder()
+                        .id("2")
+                        .username("testUsername")
+                        .title("Result, with comma")
+                        .message("Said \"hi\"\nthen left")
+                        .entryDate(new Date(0L))
+                        .calculationAttributes(attributes)
+                        .build(),
+                ResultHistory.builder()
+                        .id("1")
+                        .username("testUsername")
+                        .title("Plain")
+                        .build());
+
+        cursorClosed = false;
+        resultHistoryRepository = mock(ResultHistoryRepository.class);
+
+        doAnswer(invocation -> cursorOver(entries))
+                .when(resultHistoryRepository).streamByUsername(eq("testUsername"), anyInt());
+
+        resultHistoryExporter = new ResultHistoryExporter(resultHistoryRepository, new ObjectMapper());
+        ReflectionTestUtils.setField(resultHistoryExporter, "batchSize", 2);
+    }
+
+    @Test
+    public void testCsvQuotesFieldsThatNeedIt() throws Exception {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        resultHistoryExporter.export("testUsername", ResultHistoryExportFormat.CSV, output);
+
+        Assertions.assertEquals("id,username,title,message,entryDate,calculationAttributes\n"
+                        + "2,testUsername,\"Result, with comma\",\"Said \"\"hi\"\"\nthen left\","
+                        + "1970-01-01T00:00:00Z,\"{\"\"x\"\":10,\"\"result\"\":2300}\"\n"
+                        + "1,testUsername,Plain,,,\n",
+                new String(output.toByteArray(), StandardCharsets.UTF_8));
+        Assertions.assertTrue(cursorClosed);
+        verify(resultHistoryRepository).streamByUsername("testUsername", 2);
+    }
+
+    @Test
+    public void testNdjsonWritesOneEntryPerLine() throws Exception {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        resultHistoryExporter.export("testUsername", ResultHistoryExportFormat.NDJSON, output);
+
+        String[] lines = new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n", -1);
+
+        Assertions.assertEquals(3, lines.length);
+        Assertions.assertTrue(lines[0].startsWith("{\"id\":\"2\""));
+        Assertions.assertTrue(lines[1].startsWith("{\"id\":\"1\""));
+        Assertions.assertEquals("", lines[2]);
+        Assertions.assertTrue(cursorClosed);
+    }
+
+    @Test
+    public void testUnknownFormatIsRejected() {
+
+        Assertions.assertThrows(BadRequestException.class, () -> ResultHistoryExportFormat.forName("xml"));
+        Assertions.assertEquals(ResultHistoryExportFormat.CSV, ResultHistoryExportFormat.forName(" CSV "));
+    }
+
+    private CloseableIterator<ResultHistory> cursorOver(List<ResultHistory> entries) {
+
+        Iterator<ResultHistory> iterator = entries.iterator();
+
+        return new CloseableIterator<ResultHistory>() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public ResultHistory next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+                cursorClosed = true;
+            }
+        };
+    }
+}
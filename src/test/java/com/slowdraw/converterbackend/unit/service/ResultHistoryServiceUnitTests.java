@@ -7,11 +7,14 @@ import com.slowdraw.converterbackend.domain.SiteUser;
 import com.slowdraw.converterbackend.exception.FormulaException;
 import com.slowdraw.converterbackend.exception.ResultHistoryException;
 import com.slowdraw.converterbackend.exception.UserException;
+import com.slowdraw.converterbackend.payload.ResultHistoryCursor;
 import com.slowdraw.converterbackend.repository.FormulasRepository;
 import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
 import com.slowdraw.converterbackend.repository.SiteUserRepository;
 import com.slowdraw.converterbackend.service.FormulaService;
 import com.slowdraw.converterbackend.service.ResultHistoryService;
+import com.slowdraw.converterbackend.service.ResultHistorySpillover;
+import com.slowdraw.converterbackend.service.ResultHistoryWriteBehind;
 import com.slowdraw.converterbackend.service.SiteUserService;
 import org.hamcrest.core.IsInstanceOf;
 import org.hamcrest.Matchers;
@@ -21,6 +24,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.text.Normalizer;
@@ -44,6 +48,12 @@ public class ResultHistoryServiceUnitTests {
     @Mock
     private ResultHistoryRepository resultHistoryRepository;
 
+    @Mock
+    private ResultHistoryWriteBehind writeBehind;
+
+    @Mock
+    private ResultHistorySpillover spillover;
+
     @InjectMocks
     private ResultHistoryService resultHistoryService;
 
@@ -183,6 +193,18 @@ public class ResultHistoryServiceUnitTests {
                 exceptMe.getMessage());
     }
 
+    @Test
+    public void testFindPageByUsernamePassesCursorAndLimitThrough() {
+
+        ResultHistoryCursor cursor = new ResultHistoryCursor(new Date(1000L), "5e8f8f8f8f8f8f8f8f8f8f8f");
+
+        when(resultHistoryRepository.findByUsernameAfter("testUsername", cursor, 3))
+                .thenReturn(testResultHistoryList);
+
+        Assertions.assertEquals(testResultHistoryList,
+                resultHistoryService.findPageByUsername("testUsername", cursor, 3));
+    }
+
     @Test
     public void testPersistResultHistoryWorks() {
 
@@ -198,6 +220,70 @@ public class ResultHistoryServiceUnitTests {
 
     }
 
+    @Test
+    public void testPersistResultHistoryQueuesNewEntriesWhenWriteBehindIsEnabled() {
+
+        ResultHistory newEntry = testResultHistoryList.get(0).toBuilder().id(null).build();
+
+        doReturn(true).when(writeBehind).isEnabled();
+
+        ResultHistory checkResult = resultHistoryService.persistResultHistory(newEntry);
+
+        Assertions.assertSame(newEntry, checkResult);
+        verify(writeBehind).submit(newEntry);
+        verify(resultHistoryRepository, never()).save(any(ResultHistory.class));
+    }
+
+    @Test
+    public void testPersistResultHistorySavesEntriesWithAnIdWhenWriteBehindIsEnabled() {
+
+        doReturn(true).when(writeBehind).isEnabled();
+        when(resultHistoryRepository.save(any(ResultHistory.class)))
+                .thenReturn(testResultHistoryList.get(0));
+
+        Assertions.assertEquals(testResultHistoryList.get(0),
+                resultHistoryService.persistResultHistory(testResultHistoryList.get(0)));
+        verify(writeBehind, never()).submit(any(ResultHistory.class));
+    }
+
+    @Test
+    public void testPersistResultHistorySpillsWhenMongoIsUnavailable() {
+
+        ResultHistory entry = testResultHistoryList.get(0);
+
+        doReturn(true).when(spillover).isEnabled();
+        doReturn(entry).when(spillover).spill(entry);
+        when(resultHistoryRepository.save(any(ResultHistory.class)))
+                .thenThrow(new DataAccessResourceFailureException("Timed out waiting for a server"));
+
+        Assertions.assertSame(entry, resultHistoryService.persistResultHistory(entry));
+        verify(spillover).markUnavailable();
+        verify(spillover).spill(entry);
+    }
+
+    @Test
+    public void testPersistResultHistorySkipsMongoWhileSpillIsDiverting() {
+
+        ResultHistory entry = testResultHistoryList.get(0);
+
+        doReturn(true).when(spillover).isDiverting();
+        doReturn(entry).when(spillover).spill(entry);
+
+        Assertions.assertSame(entry, resultHistoryService.persistResultHistory(entry));
+        verify(resultHistoryRepository, never()).save(any(ResultHistory.class));
+    }
+
+    @Test
+    public void testPersistResultHistoryRethrowsWhenMongoIsUnavailableAndSpillIsOff() {
+
+        when(resultHistoryRepository.save(any(ResultHistory.class)))
+                .thenThrow(new DataAccessResourceFailureException("Timed out waiting for a server"));
+
+        Assertions.assertThrows(DataAccessResourceFailureException.class,
+                () -> resultHistoryService.persistResultHistory(testResultHistoryList.get(0)));
+        verify(spillover, never()).spill(any(ResultHistory.class));
+    }
+
     @Test
     public void testUpdateResultHistoryWorks() {
 
@@ -0,0 +1,192 @@
+package com.slowdraw.converterbackend.unit.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
+import com.slowdraw.converterbackend.service.ResultHistorySpillover;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ResultHistorySpilloverUnitTests {
+
+    private Path directory;
+
+    private ResultHistoryRepository resultHistoryRepository;
+
+    private ResultHistorySpillover spillover;
+
+    //ids in the order they were upserted, one list per bulk upsert
+    private List<List<String>> upserted;
+
+    @BeforeEach
+    void openSpillover() throws IOException {
+
+        directory = Files.createTempDirectory("result-history-spill");
+        resultHistoryRepository = mock(ResultHistoryRepository.class);
+        upserted = new ArrayList<>();
+
+        doAnswer(invocation -> {
+            List<ResultHistory> batch = invocation.getArgument(0);
+            upserted.add(batch.stream().map(ResultHistory::getId).collect(Collectors.toList()));
+            return Collections.emptyMap();
+        }).when(resultHistoryRepository).upsertUnordered(anyList());
+
+        spillover = spillover(true);
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+
+        spillover.close();
+
+        try(Stream<Path> files = Files.walk(directory)) {
+            for(Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSpillAssignsAnIdAndKeepsTheEntryPending() {
+
+        ResultHistory spilled = spillover.spill(entry("spilled"));
+
+        Assertions.assertNotNull(spilled.getId());
+        Assertions.assertEquals(1, spillover.getPendingSegments());
+        verify(resultHistoryRepository, never()).upsertUnordered(anyList());
+    }
+
+    @Test
+    public void testReplayUpsertsSpilledEntriesInBatchesAndDeletesTheSegment() {
+
+        List<String> ids = new ArrayList<>();
+
+        for(int i = 0; i < 3; i++)
+            ids.add(spillover.spill(entry("entry " + i)).getId());
+
+        spillover.replay();
+
+        Assertions.assertEquals(Arrays.asList(ids.subList(0, 2), ids.subList(2, 3)), upserted);
+        Assertions.assertEquals(0, spillover.getPendingSegments());
+        Assertions.assertEquals(0, countSegments());
+    }
+
+    @Test
+    public void testReplayKeepsTheLogWhileMongoIsUnavailable() {
+
+        doThrow(new DataAccessResourceFailureException("Timed out waiting for a server"))
+                .when(resultHistoryRepository).upsertUnordered(anyList());
+
+        spillover.spill(entry("waiting"));
+        spillover.replay();
+
+        Assertions.assertEquals(1, spillover.getPendingSegments());
+
+        doReturn(Collections.emptyMap()).when(resultHistoryRepository).upsertUnordered(anyList());
+
+        spillover.replay();
+
+        verify(resultHistoryRepository, times(2)).upsertUnordered(anyList());
+
+        Assertions.assertEquals(0, spillover.getPendingSegments());
+    }
+
+    @Test
+    public void testWritesStayDivertedUntilMongoAnswersAgain() {
+
+        doThrow(new DataAccessResourceFailureException("Timed out waiting for a server"))
+                .when(resultHistoryRepository).existsById(anyString());
+
+        spillover.markUnavailable();
+        spillover.replay();
+
+        Assertions.assertTrue(spillover.isDiverting());
+
+        doReturn(false).when(resultHistoryRepository).existsById(anyString());
+
+        spillover.replay();
+
+        Assertions.assertFalse(spillover.isDiverting());
+    }
+
+    @Test
+    public void testFailedReplayDivertsWrites() {
+
+        doThrow(new DataAccessResourceFailureException("Timed out waiting for a server"))
+                .when(resultHistoryRepository).upsertUnordered(anyList());
+
+        spillover.spill(entry("waiting"));
+        spillover.replay();
+
+        Assertions.assertTrue(spillover.isDiverting());
+    }
+
+    @Test
+    public void testEntriesSpilledBeforeARestartAreReplayed() throws IOException {
+
+        ResultHistory spilled = spillover.spill(entry("before restart"));
+        spillover.close();
+
+        ResultHistorySpillover restarted = spillover(true);
+        restarted.replay();
+
+        Assertions.assertEquals(Collections.singletonList(Collections.singletonList(spilled.getId())), upserted);
+        Assertions.assertEquals(0, restarted.getPendingSegments());
+    }
+
+    @Test
+    public void testDisabledSpilloverDoesNothing() throws IOException {
+
+        spillover.close();
+        spillover = spillover(false);
+
+        spillover.replay();
+
+        Assertions.assertFalse(spillover.isEnabled());
+
+        spillover.markUnavailable();
+
+        Assertions.assertFalse(spillover.isDiverting());
+        Assertions.assertEquals(0, spillover.getPendingSegments());
+        verify(resultHistoryRepository, never()).upsertUnordered(anyList());
+    }
+
+    private ResultHistorySpillover spillover(boolean enabled) {
+
+        ResultHistorySpillover opened = new ResultHistorySpillover(resultHistoryRepository, new ObjectMapper(),
+                enabled, directory.toString(), 4096, false, 2);
+        opened.open();
+
+        return opened;
+    }
+
+    private long countSegments() {
+        try(Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+        catch(IOException exceptMe) {
+            throw new AssertionError(exceptMe);
+        }
+    }
+
+    private static ResultHistory entry(String title) {
+        return ResultHistory.builder()
+                .username("testUsername")
+                .title(title)
+                .entryDate(new Date(1_000_000L))
+                .build();
+    }
+}
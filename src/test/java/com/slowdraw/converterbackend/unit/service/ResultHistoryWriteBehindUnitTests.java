@@ -0,0 +1,268 @@
+package com.slowdraw.converterbackend.unit.service;
+
+import com.slowdraw.converterbackend.domain.ResultHistory;
+import com.slowdraw.converterbackend.exception.ServiceUnavailableException;
+import com.slowdraw.converterbackend.repository.ResultHistoryRepository;
+import com.slowdraw.converterbackend.service.ResultHistorySpillover;
+import com.slowdraw.converterbackend.service.ResultHistoryWriteBehind;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mapping.MappingException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class ResultHistoryWriteBehindUnitTests {
+
+    private ResultHistoryRepository resultHistoryRepository;
+
+    private ResultHistorySpillover spillover;
+
+    private ResultHistoryWriteBehind writeBehind;
+
+    @BeforeEach
+    void initRepository() {
+        resultHistoryRepository = mock(ResultHistoryRepository.class);
+        spillover = mock(ResultHistorySpillover.class);
+    }
+
+    @AfterEach
+    void stopWriter() {
+        if(writeBehind != null)
+            writeBehind.shutdown();
+    }
+
+    @Test
+    public void testFullBatchIsWrittenWithoutWaitingForTheDelay() throws Exception {
+
+        writeBehind = started(10, 2, 60000L);
+
+        CompletableFuture<ResultHistory> first = writeBehind.submit(entry("first"));
+        CompletableFuture<ResultHistory> second = writeBehind.submit(entry("second"));
+
+        Assertions.assertEquals("first", first.get(5, TimeUnit.SECONDS).getTitle());
+        Assertions.assertEquals("second", second.get(5, TimeUnit.SECONDS).getTitle());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ResultHistory>> batch = ArgumentCaptor.forClass(List.class);
+        verify(resultHistoryRepository).insertUnordered(batch.capture());
+
+        Assertions.assertEquals(2, batch.getValue().size());
+    }
+
+    @Test
+    public void testPartialBatchIsWrittenAfterTheDelay() throws Exception {
+
+        writeBehind = started(10, 100, 10L);
+
+        ResultHistory stored = writeBehind.submit(entry("only")).get(5, TimeUnit.SECONDS);
+
+        Assertions.assertEquals("only", stored.getTitle());
+        Assertions.assertEquals(0, writeBehind.getQueueDepth());
+    }
+
+    @Test
+    public void testSubmitAssignsAnIdBeforeTheEntryIsWritten() {
+
+        writeBehind = started(10, 100, 60000L);
+
+        ResultHistory entry = entry("pending");
+        writeBehind.submit(entry);
+
+        Assertions.assertNotNull(entry.getId());
+        verify(resultHistoryRepository, never()).insertUnordered(anyList());
+    }
+
+    @Test
+    public void testSubmitRejectsOnceTheQueueIsFull() throws Exception {
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Collections.emptyMap();
+        }).when(resultHistoryRepository).insertUnordered(anyList());
+
+        writeBehind = started(1, 1, 60000L);
+
+        try {
+            CompletableFuture<ResultHistory> inFlight = writeBehind.submit(entry("in flight"));
+            Assertions.assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            CompletableFuture<ResultHistory> queued = writeBehind.submit(entry("queued"));
+
+            Assertions.assertEquals(1, writeBehind.getQueueDepth());
+            Assertions.assertThrows(ServiceUnavailableException.class,
+                    () -> writeBehind.submit(entry("rejected")));
+
+            release.countDown();
+
+            Assertions.assertNotNull(inFlight.get(5, TimeUnit.SECONDS));
+            Assertions.assertNotNull(queued.get(5, TimeUnit.SECONDS));
+        }
+        finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testFailedItemsCompleteTheirFutureExceptionally() throws Exception {
+
+        doReturn(Collections.singletonMap(1, "E11000 duplicate key"))
+                .when(resultHistoryRepository).insertUnordered(anyList());
+
+        writeBehind = started(10, 2, 60000L);
+
+        CompletableFuture<ResultHistory> stored = writeBehind.submit(entry("stored"));
+        CompletableFuture<ResultHistory> duplicate = writeBehind.submit(entry("duplicate"));
+
+        Assertions.assertNotNull(stored.get(5, TimeUnit.SECONDS));
+        ExecutionException thrown = Assertions.assertThrows(ExecutionException.class,
+                () -> duplicate.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(thrown.getCause().getMessage().contains("duplicate key"));
+    }
+
+    @Test
+    public void testEntriesAreSpilledWhenMongoStaysUnavailable() throws Exception {
+
+        doThrow(new DataAccessResourceFailureException("Timed out waiting for a server"))
+                .when(resultHistoryRepository).insertUnordered(anyList());
+        doThrow(new DataAccessResourceFailureException("Timed out waiting for a server"))
+                .when(resultHistoryRepository).upsertUnordered(anyList());
+        doReturn(true).when(spillover).isEnabled();
+        doAnswer(invocation -> invocation.getArgument(0)).when(spillover).spill(any(ResultHistory.class));
+
+        writeBehind = started(10, 1, 60000L);
+
+        ResultHistory stored = writeBehind.submit(entry("spilled")).get(5, TimeUnit.SECONDS);
+
+        Assertions.assertEquals("spilled", stored.getTitle());
+        verify(resultHistoryRepository).insertUnordered(anyList());
+        verify(resultHistoryRepository, times(2)).upsertUnordered(anyList());
+        verify(spillover).markUnavailable();
+        verify(spillover).spill(stored);
+    }
+
+    @Test
+    public void testEntriesAreSpilledWithoutTryingMongoWhileSpillIsDiverting() throws Exception {
+
+        doReturn(true).when(spillover).isEnabled();
+        doReturn(true).when(spillover).isDiverting();
+        doAnswer(invocation -> invocation.getArgument(0)).when(spillover).spill(any(ResultHistory.class));
+
+        writeBehind = started(10, 1, 60000L);
+
+        ResultHistory stored = writeBehind.submit(entry("diverted")).get(5, TimeUnit.SECONDS);
+
+        verify(spillover).spill(stored);
+        verify(resultHistoryRepository, never()).insertUnordered(anyList());
+    }
+
+    @Test
+    public void testRetryUpsertsSoEntriesStoredByTheFailedAttemptAreNotDuplicates() throws Exception {
+
+        doThrow(new DataAccessResourceFailureException("Connection reset"))
+                .when(resultHistoryRepository).insertUnordered(anyList());
+        doReturn(Collections.emptyMap()).when(resultHistoryRepository).upsertUnordered(anyList());
+
+        writeBehind = started(10, 2, 60000L);
+
+        CompletableFuture<ResultHistory> first = writeBehind.submit(entry("first"));
+        CompletableFuture<ResultHistory> second = writeBehind.submit(entry("second"));
+
+        Assertions.assertNotNull(first.get(5, TimeUnit.SECONDS));
+        Assertions.assertNotNull(second.get(5, TimeUnit.SECONDS));
+        verify(resultHistoryRepository).upsertUnordered(anyList());
+        verify(spillover, never()).spill(any(ResultHistory.class));
+    }
+
+    @Test
+    public void testAnEntryThatCannotBeMappedFailsAloneAndTheWriterKeepsGoing() throws Exception {
+
+        doAnswer(invocation -> {
+            List<ResultHistory> batch = invocation.getArgument(0);
+
+            if(batch.stream().anyMatch(entry -> "poison".equals(entry.getTitle())))
+                throw new MappingException("Map key x.y contains dots but no replacement was configured!");
+
+            return Collections.emptyMap();
+        }).when(resultHistoryRepository).insertUnordered(anyList());
+
+        writeBehind = started(10, 3, 60000L);
+
+        CompletableFuture<ResultHistory> before = writeBehind.submit(entry("before"));
+        CompletableFuture<ResultHistory> poison = writeBehind.submit(entry("poison"));
+        CompletableFuture<ResultHistory> after = writeBehind.submit(entry("after"));
+
+        Assertions.assertNotNull(before.get(5, TimeUnit.SECONDS));
+        Assertions.assertNotNull(after.get(5, TimeUnit.SECONDS));
+        ExecutionException thrown = Assertions.assertThrows(ExecutionException.class,
+                () -> poison.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(thrown.getCause() instanceof MappingException);
+
+        //the writer is still running and picks up the next batch
+        List<CompletableFuture<ResultHistory>> later = Arrays.asList(writeBehind.submit(entry("later 1")),
+                writeBehind.submit(entry("later 2")), writeBehind.submit(entry("later 3")));
+
+        for(CompletableFuture<ResultHistory> future : later)
+            Assertions.assertNotNull(future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testShutdownWritesEverythingQueued() throws Exception {
+
+        writeBehind = started(10, 100, 60000L);
+
+        CompletableFuture<ResultHistory> first = writeBehind.submit(entry("first"));
+        CompletableFuture<ResultHistory> second = writeBehind.submit(entry("second"));
+        CompletableFuture<ResultHistory> third = writeBehind.submit(entry("third"));
+
+        writeBehind.shutdown();
+
+        Assertions.assertTrue(first.isDone() && second.isDone() && third.isDone());
+        Assertions.assertFalse(first.isCompletedExceptionally());
+        Assertions.assertEquals(0, writeBehind.getQueueDepth());
+        Assertions.assertThrows(ServiceUnavailableException.class, () -> writeBehind.submit(entry("late")));
+    }
+
+    @Test
+    public void testSubmitIsRefusedWhenDisabled() {
+
+        writeBehind = new ResultHistoryWriteBehind(resultHistoryRepository, spillover, false, 10, 2, 50L, 1000L);
+        writeBehind.start();
+
+        Assertions.assertFalse(writeBehind.isEnabled());
+        Assertions.assertThrows(ServiceUnavailableException.class, () -> writeBehind.submit(entry("any")));
+    }
+
+    private ResultHistoryWriteBehind started(int capacity, int batchSize, long maxDelayMs) {
+
+        ResultHistoryWriteBehind started = new ResultHistoryWriteBehind(resultHistoryRepository, spillover,
+                true, capacity, batchSize, maxDelayMs, 5000L);
+        started.start();
+
+        return started;
+    }
+
+    private static ResultHistory entry(String title) {
+        return ResultHistory.builder()
+                .username("testUsername")
+                .title(title)
+                .build();
+    }
+}
@@ -1,13 +1,19 @@
 package com.slowdraw.converterbackend.unit.service;
 
+import com.slowdraw.converterbackend.catalog.FormulaCatalog;
 import com.slowdraw.converterbackend.domain.Formula;
 import com.slowdraw.converterbackend.domain.Role;
 import com.slowdraw.converterbackend.domain.SiteUser;
+import com.slowdraw.converterbackend.exception.BadRequestException;
+import com.slowdraw.converterbackend.exception.FavoritesConflictException;
 import com.slowdraw.converterbackend.exception.UserException;
+import com.slowdraw.converterbackend.payload.FavoritesOperation;
 import com.slowdraw.converterbackend.repository.FormulasRepository;
 import com.slowdraw.converterbackend.repository.SiteUserRepository;
+import com.slowdraw.converterbackend.security.PrincipalCache;
 import com.slowdraw.converterbackend.service.FormulaService;
 import com.slowdraw.converterbackend.service.SiteUserService;
+import com.slowdraw.converterbackend.service.UserAvailabilityFilters;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -15,6 +21,7 @@ import org.mockito.Mock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -41,6 +48,12 @@ public class SiteUserServiceUnitTests {
     @Mock
     private FormulasRepository formulasRepository;
 
+    @Mock
+    private PrincipalCache principalCache;
+
+    @Mock
+    private UserAvailabilityFilters availabilityFilters;
+
     @InjectMocks
     private SiteUserService siteUserService;
 
@@ -88,9 +101,15 @@ public class SiteUserServiceUnitTests {
                 .username("testUsername")
                 .password("testPassword")
                 .email("test@email.com")
+                .favorites(testFormulaList.stream()
+                        .map(Formula::getFormulaName)
+                        .collect(Collectors.toList()))
                 .favoritesList(testFormulaList)
                 .roles(roles)
                 .build();
+
+        lenient().when(formulaService.getCatalog())
+                .thenReturn(FormulaCatalog.of(testFormulaList));
     }
 
     @Test
@@ -122,10 +141,7 @@ public class SiteUserServiceUnitTests {
     @Test
     void testModifyUsernameFavoritesListWorks() {
 
-        lenient().when(siteUserRepository.findById(any(String.class)))
-                .thenReturn(Optional.ofNullable(testUser));
-
-        lenient().when(siteUserRepository.save(any(SiteUser.class))).thenReturn(testUser);
+        doReturn(Optional.ofNullable(testUser)).when(siteUserRepository).replaceFavorites(any(String.class), anyList());
 
         SiteUser verifyUserSaved =
                 siteUserService
@@ -149,10 +165,10 @@ public class SiteUserServiceUnitTests {
     @Test
     public void testModifyUsernameFavoritesListThrowsExceptionOnBadUsername() {
 
-        when(siteUserRepository.findById(any(String.class)))
-                .thenThrow(new UserException(String.format(
-                        USERNAME_NOT_FOUND,
-                        testUser.getUsername())));
+        doThrow(new UserException(String.format(
+                USERNAME_NOT_FOUND,
+                testUser.getUsername())))
+                .when(siteUserRepository).replaceFavorites(any(String.class), anyList());
 
         Exception exceptMe = Assertions.assertThrows(UserException.class, () -> {
             siteUserService
@@ -173,13 +189,10 @@ public class SiteUserServiceUnitTests {
     @Test
     public void testModifyUsernameFavoritesListThrowsExceptionWhenSavingUpdatedUser() {
 
-        lenient().when(siteUserRepository.findById(any(String.class)))
-                .thenReturn(Optional.ofNullable(testUser));
-
-        lenient().when(siteUserRepository.save(any(SiteUser.class)))
-                .thenThrow(new UserException(String.format(
-                        USERNAME_NOT_FOUND,
-                        testUser.getUsername())));
+        doThrow(new UserException(String.format(
+                USERNAME_NOT_FOUND,
+                testUser.getUsername())))
+                .when(siteUserRepository).replaceFavorites(any(String.class), anyList());
 
         Exception exceptMe = Assertions.assertThrows(UserException.class, () -> {
             siteUserService
@@ -199,11 +212,7 @@ public class SiteUserServiceUnitTests {
     @Test
     public void testSaveFormulaToFavoritesWorks() {
 
-        lenient().when(siteUserRepository.findById(any(String.class)))
-                .thenReturn(Optional.ofNullable(testUser));
-
-        lenient().when(siteUserRepository.save(any(SiteUser.class)))
-                .thenReturn(testUser);
+        doReturn(Optional.ofNullable(testUser)).when(siteUserRepository).addFavorite(any(String.class), any(String.class));
 
         when(mock(SiteUserService.class)
                 .saveFormulaToFavoritesList(any(String.class), any(String.class)))
@@ -228,13 +237,10 @@ public class SiteUserServiceUnitTests {
     @Test
     public void testSaveFormulaToFavoritesListGivesUserExceptionUsernameNotFound() {
 
-        lenient().when(siteUserRepository.findById(any(String.class)))
-                .thenReturn(Optional.ofNullable(testUser));
-
-        lenient().when(siteUserRepository.save(any(SiteUser.class)))
-                .thenThrow(new UserException(String.format(
-                        USERNAME_NOT_FOUND,
-                        testUser.getUsername())));
+        doThrow(new UserException(String.format(
+                USERNAME_NOT_FOUND,
+                testUser.getUsername())))
+                .when(siteUserRepository).addFavorite(any(String.class), any(String.class));
 
         Exception exceptMe = Assertions.assertThrows(UserException.class, () -> {
             siteUserService
@@ -251,11 +257,7 @@ public class SiteUserServiceUnitTests {
     @Test
     void testDeleteAllFavoritesWorks() {
 
-        lenient().when(siteUserRepository.findById(any(String.class)))
-                .thenReturn(Optional.ofNullable(testUser));
-
-        lenient().when(siteUserRepository.save(any(SiteUser.class)))
-                .thenReturn(testUser);
+        doReturn(Optional.ofNullable(testUser)).when(siteUserRepository).replaceFavorites(any(String.class), anyList());
 
         SiteUser verifyUserSaved =
                 siteUserService
@@ -274,13 +276,10 @@ public class SiteUserServiceUnitTests {
     @Test
     public void testDeleteAllFavoritesThrowsUserExceptionWithBadUsername() {
 
-        lenient().when(siteUserRepository.findById(any(String.class)))
-                .thenReturn(Optional.ofNullable(testUser));
-
-        lenient().when(siteUserRepository.save(any(SiteUser.class)))
-                .thenThrow(new UserException(String.format(
-                        USERNAME_NOT_FOUND,
-                        testUser.getUsername())));
+        doThrow(new UserException(String.format(
+                USERNAME_NOT_FOUND,
+                testUser.getUsername())))
+                .when(siteUserRepository).replaceFavorites(any(String.class), anyList());
 
         Exception exceptMe = Assertions.assertThrows(UserException.class, () -> {
             siteUserService.deleteAllFavorites(testUser.getUsername());
@@ -295,11 +294,7 @@ public class SiteUserServiceUnitTests {
     @Test
     void testDeleteSingleFormulaFromFavoritesWorks() {
 
-        lenient().when(siteUserRepository.findById(any(String.class)))
-                .thenReturn(Optional.ofNullable(testUser));
-
-        lenient().when(siteUserRepository.save(any(SiteUser.class)))
-                .thenReturn(testUser);
+        doReturn(Optional.ofNullable(testUser)).when(siteUserRepository).removeFavorite(any(String.class), any(String.class));
 
         SiteUser verifyUserSaved =
                 siteUserService
@@ -320,13 +315,10 @@ public class SiteUserServiceUnitTests {
     @Test
     public void testDeleteSingleFormulaFromFavoritesThrowsUserExceptionWithBadUsername() {
 
-        lenient().when(siteUserRepository.findById(any(String.class)))
-                .thenReturn(Optional.ofNullable(testUser));
-
-        lenient().when(siteUserRepository.save(any(SiteUser.class)))
-                .thenThrow(new UserException(String.format(
-                        USERNAME_NOT_FOUND,
-                        testUser.getUsername())));
+        doThrow(new UserException(String.format(
+                USERNAME_NOT_FOUND,
+                testUser.getUsername())))
+                .when(siteUserRepository).removeFavorite(any(String.class), any(String.class));
 
         Exception exceptMe = Assertions.assertThrows(UserException.class, () -> {
             siteUserService
@@ -341,9 +333,222 @@ public class SiteUserServiceUnitTests {
                 exceptMe.getMessage());
     }
 
+    @Test
+    void testFindUserByIdResolvesFavoritesInOrderWithSingleQuery() {
+
+        clearInvocations(siteUserRepository);
+
+        SiteUser storedUser = testUser.toBuilder()
+                .favorites(new ArrayList<>(Arrays.asList("mhzToMeters", "removedFormula", "areaCircle")))
+                .favoritesList(new ArrayList<>())
+                .build();
+
+        doReturn(Optional.of(storedUser)).when(siteUserRepository).findById(any(String.class));
+
+        SiteUser fetchedUser = siteUserService.findUserById(testUser.getUsername());
+
+        //names whose formula is no longer in the catalog are skipped, not dropped from storage
+        Assertions.assertEquals(Arrays.asList(testFormulaList.get(2), testFormulaList.get(0)),
+                fetchedUser.getFavoritesList());
+        Assertions.assertEquals(3, fetchedUser.getFavorites().size());
+
+        verify(siteUserRepository, times(1)).findById(testUser.getUsername());
+        verifyNoMoreInteractions(siteUserRepository);
+    }
+
+    @Test
+    void testSaveFormulaToFavoritesIsSingleAtomicUpdate() {
+
+        clearInvocations(siteUserRepository);
+
+        SiteUser updatedUser = testUser.toBuilder()
+                .favorites(new ArrayList<>(Arrays.asList("areaCircle", "pythagoreanTheorem")))
+                .favoritesList(new ArrayList<>())
+                .build();
+
+        doReturn(Optional.of(updatedUser))
+                .when(siteUserRepository).addFavorite(testUser.getUsername(), "pythagoreanTheorem");
+
+        SiteUser savedUser = siteUserService
+                .saveFormulaToFavoritesList(testUser.getUsername(), "pythagoreanTheorem");
+
+        Assertions.assertEquals(testFormulaList.subList(0, 2), savedUser.getFavoritesList());
+
+        //no read of the user document and no full-document save
+        verify(siteUserRepository, times(1)).addFavorite(testUser.getUsername(), "pythagoreanTheorem");
+        verifyNoMoreInteractions(siteUserRepository);
+    }
+
+    @Test
+    void testFavoritesUpdateForUnknownUsernameThrowsUserException() {
+
+        doReturn(Optional.empty())
+                .when(siteUserRepository).removeFavorite(any(String.class), any(String.class));
+
+        Exception exceptMe = Assertions.assertThrows(UserException.class, () ->
+                siteUserService.deleteSingleFormulaFromFavorite("unknown", "areaCircle"));
+
+        Assertions.assertEquals("Username unknown not found.", exceptMe.getMessage());
+    }
+
+    @Test
+    void testPatchFavoritesAppliesOperationsInOrderAsOneUpdate() {
+
+        clearInvocations(siteUserRepository);
+
+        SiteUser storedUser = testUser.toBuilder()
+                .favorites(new ArrayList<>(Arrays.asList("areaCircle", "mhzToMeters")))
+                .build();
+
+        List<String> expected = Arrays.asList("mhzToMeters", "pythagoreanTheorem");
+
+        doReturn(Optional.of(storedUser)).when(siteUserRepository).findById(testUser.getUsername());
+        doReturn(Optional.of(storedUser.toBuilder().favorites(new ArrayList<>(expected)).build()))
+                .when(siteUserRepository).compareAndSetFavorites(testUser.getUsername(),
+                        Arrays.asList("areaCircle", "mhzToMeters"), expected);
+
+        SiteUser patchedUser = siteUserService.patchFavorites(testUser.getUsername(), Arrays.asList(
+                new FavoritesOperation("add", "pythagoreanTheorem", 0),
+                new FavoritesOperation("remove", "areaCircle", null),
+                new FavoritesOperation("MOVE", "mhzToMeters", -5),
+                new FavoritesOperation("add", "mhzToMeters", null)));
+
+        Assertions.assertEquals(expected, patchedUser.getFavorites());
+        Assertions.assertEquals(Arrays.asList(testFormulaList.get(2), testFormulaList.get(1)),
+                patchedUser.getFavoritesList());
+    }
+
+    @Test
+    void testUpdateUserPasswordSetsOnlyThePassword() {
+
+        doReturn(Optional.of(SiteUser.builder().username(testUser.getUsername()).build()))
+                .when(siteUserRepository).updatePassword(testUser.getUsername(), "newPassword");
+
+        siteUserService.updateUserPassword(testUser.getUsername(), "newPassword");
+
+        verify(siteUserRepository).updatePassword(testUser.getUsername(), "newPassword");
+        verify(siteUserRepository, never()).save(any(SiteUser.class));
+    }
+
+    @Test
+    void testUpdateUserPasswordThrowsForAnUnknownUser() {
+
+        doReturn(Optional.empty()).when(siteUserRepository).updatePassword("nobody", "newPassword");
+
+        Assertions.assertThrows(UserException.class,
+                () -> siteUserService.updateUserPassword("nobody", "newPassword"));
+    }
+
+    @Test
+    void testPatchFavoritesThatChangesNothingAnswersWithFavoritesOnly() {
+
+        doReturn(Optional.of(testUser)).when(siteUserRepository).findById(testUser.getUsername());
+
+        SiteUser patchedUser = siteUserService.patchFavorites(testUser.getUsername(),
+                Collections.singletonList(new FavoritesOperation("add", "areaCircle", null)));
+
+        Assertions.assertEquals(testUser.getFavorites(), patchedUser.getFavorites());
+        Assertions.assertEquals(testUser.getUsername(), patchedUser.getUsername());
+        Assertions.assertNull(patchedUser.getPassword());
+        Assertions.assertNull(patchedUser.getEmail());
+        Assertions.assertNull(patchedUser.getRoles());
+        verify(siteUserRepository, never()).compareAndSetFavorites(any(String.class), anyList(), anyList());
+    }
+
+    @Test
+    void testPatchFavoritesRetriesWhenListChangedConcurrently() {
+
+        clearInvocations(siteUserRepository);
+
+        SiteUser firstRead = testUser.toBuilder()
+                .favorites(new ArrayList<>(Collections.singletonList("areaCircle")))
+                .build();
+
+        SiteUser secondRead = testUser.toBuilder()
+                .favorites(new ArrayList<>(Arrays.asList("areaCircle", "mhzToMeters")))
+                .build();
+
+        List<String> expected = Arrays.asList("areaCircle", "mhzToMeters", "pythagoreanTheorem");
+
+        doReturn(Optional.of(firstRead), Optional.of(secondRead))
+                .when(siteUserRepository).findById(testUser.getUsername());
+        doReturn(Optional.empty())
+                .when(siteUserRepository).compareAndSetFavorites(testUser.getUsername(),
+                        firstRead.getFavorites(), Arrays.asList("areaCircle", "pythagoreanTheorem"));
+        doReturn(Optional.of(secondRead.toBuilder().favorites(new ArrayList<>(expected)).build()))
+                .when(siteUserRepository).compareAndSetFavorites(testUser.getUsername(),
+                        secondRead.getFavorites(), expected);
+
+        SiteUser patchedUser = siteUserService.patchFavorites(testUser.getUsername(),
+                Collections.singletonList(new FavoritesOperation("add", "pythagoreanTheorem", null)));
+
+        //the concurrent add of mhzToMeters survives
+        Assertions.assertEquals(expected, patchedUser.getFavorites());
+        verify(siteUserRepository, times(2)).findById(testUser.getUsername());
+    }
+
+    @Test
+    void testPatchFavoritesGivesUpAfterRepeatedConflicts() {
+
+        doReturn(Optional.of(testUser)).when(siteUserRepository).findById(testUser.getUsername());
+        doReturn(Optional.empty()).when(siteUserRepository)
+                .compareAndSetFavorites(any(String.class), anyList(), anyList());
+
+        Assertions.assertThrows(FavoritesConflictException.class, () ->
+                siteUserService.patchFavorites(testUser.getUsername(), Collections.singletonList(
+                        new FavoritesOperation("remove", "areaCircle", null))));
+    }
+
+    @Test
+    void testPatchFavoritesRejectsBadOperationsBeforeAnyQuery() {
+
+        clearInvocations(siteUserRepository);
+
+        Assertions.assertThrows(BadRequestException.class, () ->
+                siteUserService.patchFavorites(testUser.getUsername(), Collections.singletonList(
+                        new FavoritesOperation("rename", "areaCircle", null))));
+
+        verifyNoMoreInteractions(siteUserRepository);
+    }
+
+    @Test
+    void testProfileCacheServesRepeatReadsUntilAWriteInvalidatesIt() {
+
+        ReflectionTestUtils.setField(siteUserService, "profileCacheSize", 16);
+        ReflectionTestUtils.setField(siteUserService, "profileCacheTtlMs", 60_000L);
+        ReflectionTestUtils.invokeMethod(siteUserService, "initProfileCache");
+
+        try {
+            clearInvocations(siteUserRepository);
+
+            doReturn(Optional.of(testUser)).when(siteUserRepository).findById(testUser.getUsername());
+            doReturn(Optional.of(testUser)).when(siteUserRepository)
+                    .removeFavorite(testUser.getUsername(), "areaCircle");
+
+            SiteUser first = siteUserService.findUserById(testUser.getUsername());
+            SiteUser second = siteUserService.findUserById(testUser.getUsername());
+
+            //callers get their own copy of the cached user
+            Assertions.assertNotSame(first, second);
+            Assertions.assertEquals(first, second);
+            verify(siteUserRepository, times(1)).findById(testUser.getUsername());
+
+            siteUserService.deleteSingleFormulaFromFavorite(testUser.getUsername(), "areaCircle");
+            siteUserService.findUserById(testUser.getUsername());
+
+            verify(siteUserRepository, times(2)).findById(testUser.getUsername());
+            Assertions.assertEquals(1, siteUserService.getProfileCacheCounters().getHits());
+            Assertions.assertEquals(2, siteUserService.getProfileCacheCounters().getMisses());
+        }
+        finally {
+            ReflectionTestUtils.setField(siteUserService, "profileCache", null);
+        }
+    }
+
     @Test
     public void testCheckUsernameAvailabilityReturnsTrueIfAvailable() {
 
+        doReturn(true).when(availabilityFilters).mightHaveUsername(any(String.class));
         when(siteUserRepository.existsById(any(String.class)))
                 .thenReturn(false);
 
@@ -353,6 +558,7 @@ public class SiteUserServiceUnitTests {
     @Test
     public void testCheckUsernameAvailabilityReturnsFalseIfNotAvailable() {
 
+        doReturn(true).when(availabilityFilters).mightHaveUsername(any(String.class));
         when(siteUserRepository.existsById(any(String.class)))
                 .thenReturn(true);
 
@@ -362,6 +568,7 @@ public class SiteUserServiceUnitTests {
     @Test
     public void testCheckEmailAvailabilityReturnsTrueIfAvailable() {
 
+        doReturn(true).when(availabilityFilters).mightHaveEmail(any(String.class));
         when(siteUserRepository.existsByEmail(any(String.class)))
                 .thenReturn(false);
 
@@ -371,9 +578,33 @@ public class SiteUserServiceUnitTests {
     @Test
     public void testCheckEmailAvailabilityReturnsFalseIfNotAvailable() {
 
+        doReturn(true).when(availabilityFilters).mightHaveEmail(any(String.class));
         when(siteUserRepository.existsByEmail(any(String.class)))
                 .thenReturn(true);
 
         Assertions.assertFalse(siteUserService.checkEmailAvailability(testUser.getEmail()));
     }
+
+    @Test
+    public void testIsUsernameTakenAsksMongoEvenOnFilterMiss() {
+
+        doReturn(false).when(availabilityFilters).mightHaveUsername(any(String.class));
+        when(siteUserRepository.existsById("otherInstanceUsername")).thenReturn(true);
+
+        Assertions.assertTrue(siteUserService.isUsernameTaken("otherInstanceUsername"));
+    }
+
+    @Test
+    public void testCheckAvailabilitySkipsQueryOnFilterMiss() {
+
+        doReturn(false).when(availabilityFilters).mightHaveUsername(any(String.class));
+        doReturn(false).when(availabilityFilters).mightHaveEmail(any(String.class));
+        clearInvocations(siteUserRepository);
+
+        Assertions.assertTrue(siteUserService.checkUsernameAvailability("freshUsername"));
+        Assertions.assertTrue(siteUserService.checkEmailAvailability("fresh@email.com"));
+
+        verify(siteUserRepository, never()).existsById(any(String.class));
+        verify(siteUserRepository, never()).existsByEmail(any(String.class));
+    }
 }
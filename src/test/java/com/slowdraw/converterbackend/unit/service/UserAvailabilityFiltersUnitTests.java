@@ -0,0 +1,100 @@
+package com.slowdraw.converterbackend.unit.service;
+
+import com.slowdraw.converterbackend.repository.SiteUserRepository;
+import com.slowdraw.converterbackend.service.UserAvailabilityFilters;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.function.BiConsumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class UserAvailabilityFiltersUnitTests {
+
+    private SiteUserRepository siteUserRepository;
+
+    private UserAvailabilityFilters availabilityFilters;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void initFilters() {
+
+        siteUserRepository = mock(SiteUserRepository.class);
+
+        doReturn(1L).when(siteUserRepository).count();
+        doAnswer(invocation -> {
+            ((BiConsumer<String, String>) invocation.getArgument(0)).accept("testUsername", "test@email.com");
+            return null;
+        }).when(siteUserRepository).forEachUsernameAndEmail(any());
+
+        availabilityFilters = new UserAvailabilityFilters(siteUserRepository);
+        ReflectionTestUtils.setField(availabilityFilters, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(availabilityFilters, "maxAgeMs", 600000L);
+    }
+
+    @Test
+    public void testEverythingMightBeTakenBeforeFirstBuild() {
+
+        Assertions.assertTrue(availabilityFilters.mightHaveUsername("freshUsername"));
+        Assertions.assertTrue(availabilityFilters.mightHaveEmail("fresh@email.com"));
+    }
+
+    @Test
+    public void testBuiltFiltersAnswerForStoredAndRecordedUsers() {
+
+        availabilityFilters.rebuildIfNeeded();
+
+        Assertions.assertTrue(availabilityFilters.mightHaveUsername("testUsername"));
+        Assertions.assertTrue(availabilityFilters.mightHaveEmail("test@email.com"));
+        Assertions.assertFalse(availabilityFilters.mightHaveUsername("freshUsername"));
+
+        availabilityFilters.recordUser("freshUsername", "fresh@email.com");
+
+        Assertions.assertTrue(availabilityFilters.mightHaveUsername("freshUsername"));
+        Assertions.assertTrue(availabilityFilters.mightHaveEmail("fresh@email.com"));
+
+        //one check answered from the filters alone
+        Assertions.assertEquals(1, availabilityFilters.getCounters().getHits());
+    }
+
+    @Test
+    public void testRebuildOnlyRunsWhenNeeded() {
+
+        availabilityFilters.rebuildIfNeeded();
+        availabilityFilters.rebuildIfNeeded();
+
+        verify(siteUserRepository, times(1)).forEachUsernameAndEmail(any());
+
+        //the only stored user was deleted, well past a tenth
+        availabilityFilters.recordDeletion();
+        availabilityFilters.rebuildIfNeeded();
+
+        verify(siteUserRepository, times(2)).forEachUsernameAndEmail(any());
+    }
+
+    @Test
+    public void testFiltersOlderThanMaxAgeAreRebuilt() {
+
+        ReflectionTestUtils.setField(availabilityFilters, "maxAgeMs", 0L);
+
+        availabilityFilters.rebuildIfNeeded();
+        availabilityFilters.rebuildIfNeeded();
+
+        verify(siteUserRepository, times(2)).forEachUsernameAndEmail(any());
+    }
+
+    @Test
+    public void testFailedBuildFallsBackToQueries() {
+
+        doThrow(new DataAccessResourceFailureException("down"))
+                .when(siteUserRepository).forEachUsernameAndEmail(any());
+
+        availabilityFilters.rebuildIfNeeded();
+
+        Assertions.assertTrue(availabilityFilters.mightHaveUsername("freshUsername"));
+    }
+}
@@ -0,0 +1,165 @@
+package com.slowdraw.converterbackend.unit.spill;
+
+import com.slowdraw.converterbackend.spill.SegmentLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class SegmentLogUnitTests {
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("segment-log");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try(Stream<Path> files = Files.walk(directory)) {
+            for(Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testRecordsAreReadBackInOrderOnceSealed() throws IOException {
+
+        SegmentLog log = new SegmentLog(directory, 1024, false);
+
+        log.append(bytes("first"));
+        log.append(bytes("second"));
+
+        Assertions.assertTrue(log.sealedSegments().isEmpty());
+        Assertions.assertEquals(1, log.pendingSegments());
+
+        log.sealActive();
+
+        Assertions.assertEquals(1, log.sealedSegments().size());
+        Assertions.assertEquals(Arrays.asList("first", "second"), read(log.sealedSegments().get(0), true));
+    }
+
+    @Test
+    public void testFullSegmentRotatesToTheNextOne() throws IOException {
+
+        SegmentLog log = new SegmentLog(directory, 32, false);
+
+        //8 header bytes each, so only two 8-byte records fit a 32-byte segment
+        log.append(bytes("record-1"));
+        log.append(bytes("record-2"));
+        log.append(bytes("record-3"));
+        log.sealActive();
+
+        List<Path> segments = log.sealedSegments();
+
+        Assertions.assertEquals(2, segments.size());
+        Assertions.assertEquals(Arrays.asList("record-1", "record-2"), read(segments.get(0), true));
+        Assertions.assertEquals(Arrays.asList("record-3"), read(segments.get(1), true));
+    }
+
+    @Test
+    public void testSealingAnEmptyLogLeavesNoSegment() throws IOException {
+
+        SegmentLog log = new SegmentLog(directory, 1024, false);
+
+        log.sealActive();
+
+        Assertions.assertTrue(log.sealedSegments().isEmpty());
+        Assertions.assertEquals(0, log.pendingSegments());
+    }
+
+    @Test
+    public void testSegmentsLeftOnDiskAreSealedWhenReopened() throws IOException {
+
+        SegmentLog log = new SegmentLog(directory, 1024, false);
+        log.append(bytes("before restart"));
+
+        //no seal and no close, as if the process had died
+        SegmentLog reopened = new SegmentLog(directory, 1024, false);
+
+        Assertions.assertEquals(1, reopened.sealedSegments().size());
+        Assertions.assertEquals(Arrays.asList("before restart"), read(reopened.sealedSegments().get(0), true));
+
+        reopened.append(bytes("after restart"));
+        reopened.sealActive();
+
+        List<Path> segments = reopened.sealedSegments();
+
+        Assertions.assertEquals(2, segments.size());
+        Assertions.assertEquals(Arrays.asList("after restart"), read(segments.get(1), true));
+    }
+
+    @Test
+    public void testReadingStopsAtADamagedRecord() throws IOException {
+
+        SegmentLog log = new SegmentLog(directory, 1024, false);
+
+        log.append(bytes("intact"));
+        log.append(bytes("damaged"));
+        log.append(bytes("unreachable"));
+        log.sealActive();
+
+        Path segment = log.sealedSegments().get(0);
+
+        //flip a payload byte of the second record: 8 + 6 bytes for the first, then its own 8-byte header
+        try(RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(14 + 8);
+            file.write('D');
+        }
+
+        Assertions.assertEquals(Arrays.asList("intact"), read(segment, false));
+    }
+
+    @Test
+    public void testDeleteRemovesTheSegment() throws IOException {
+
+        SegmentLog log = new SegmentLog(directory, 1024, false);
+
+        log.append(bytes("replayed"));
+        log.sealActive();
+
+        Path segment = log.sealedSegments().get(0);
+        log.delete(segment);
+
+        Assertions.assertFalse(Files.exists(segment));
+        Assertions.assertTrue(log.sealedSegments().isEmpty());
+    }
+
+    @Test
+    public void testOversizedRecordsAreRefused() throws IOException {
+
+        SegmentLog log = new SegmentLog(directory, 16, false);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> log.append(bytes("far too long to fit")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> log.append(new byte[0]));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> read(Path segment, boolean expectIntact) throws IOException {
+
+        List<String> records = new ArrayList<>();
+
+        boolean intact = SegmentLog.forEachRecord(segment,
+                record -> records.add(new String(record, StandardCharsets.UTF_8)));
+
+        Assertions.assertEquals(expectIntact, intact);
+
+        return records;
+    }
+}